@@ -102,6 +102,13 @@ public interface PrideArchiveField {
     String PRIDE_REANALYSIS_COLLECTION_NAME = "pride_reanalysis_collection";
     String PRIDE_MOLECULES_COLLECTION_NAME = "pride_molecules";
     String PRIDE_SDRF_COLLECTION_NAME = "pride_sdrf";
+    String PRIDE_INGESTION_JOURNAL_COLLECTION_NAME = "pride_ingestion_journal";
+
+    /** Ingestion journal **/
+    String JOURNAL_SUBMISSION = "submission";
+    String JOURNAL_COLLECTION = "targetCollection";
+    String JOURNAL_BATCH_INDEX = "batchIndex";
+    String JOURNAL_BATCH_SIZE = "batchSize";
 
     String PUBLIC_PROJECT = "public_project";
 
@@ -116,6 +123,7 @@ public interface PrideArchiveField {
 
     //** File Fields **/
     String FILE_CATEGORY = "fileCategory";
+    String FILE_CATEGORY_ACCESSION = "fileCategory.accession";
     String FILE_SOURCE_TYPE = "fileSourceType";
     String FILE_SOURCE_FOLDER = "fileSourceFolder";
     String FILE_CHECKSUM = "fileChecksum";
@@ -1,11 +1,15 @@
 package uk.ac.ebi.pride.mongodb.archive.model;
 
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
 import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
 import uk.ac.ebi.pride.archive.dataprovider.reference.ReferenceProvider;
 import uk.ac.ebi.pride.archive.dataprovider.user.Contact;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Pride Archive Field Enums this is used to Query the PRIDE Archive and other resources.
@@ -29,7 +33,7 @@ public enum PrideFieldEnum {
     PROJECT_PUBLICATION_DATE (PrideArchiveField.PUBLICATION_DATE, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Date.class),
     PROJECT_UPDATED_DATE (PrideArchiveField.UPDATED_DATE, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Date.class),
     PROJECT_SUBMITTER(PrideArchiveField.PROJECT_SUBMITTER, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Contact.class),
-    PROJECT_PI_NAMES (PrideArchiveField.PROJECT_PI_NAMES, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, CvParam.class),
+    PROJECT_PI_NAMES (PrideArchiveField.PROJECT_PI_NAMES, "headLab", new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Contact.class),
     INSTRUMENTS(PrideArchiveField.INSTRUMENTS, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, CvParam.class),
     SOFTWARES (PrideArchiveField.SOFTWARES, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, CvParam.class),
     QUANTIFICATION_METHODS(PrideArchiveField.QUANTIFICATION_METHODS, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, CvParam.class),
@@ -37,29 +41,63 @@ public enum PrideFieldEnum {
     SAMPLE_ATTRIBUTES_NAMES(PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME},String.class),
     PROJECT_REFERENCES(PrideArchiveField.PROJECT_REFERENCES, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME},ReferenceProvider.class),
     PROJECT_IDENTIFIED_PTM (PrideArchiveField.PROJECT_IDENTIFIED_PTM, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME},String.class),
-    PUBLIC_PROJECT (PrideArchiveField.PUBLIC_PROJECT, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, String.class),
-    EXPERIMENTAL_FACTORS(PrideArchiveField.EXPERIMENTAL_FACTORS, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, CvParam.class),
+    PUBLIC_PROJECT (PrideArchiveField.PUBLIC_PROJECT, "publicProject", new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Boolean.class),
+    EXPERIMENTAL_FACTORS(PrideArchiveField.EXPERIMENTAL_FACTORS, new String[]{PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME}, Tuple.class),
     EXTERNAL_PROJECT_ACCESSIONS (PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
     EXTERNAL_ANALYSIS_ACCESSIONS(PrideArchiveField.EXTERNAL_ANALYSIS_ACCESSIONS, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
-    FILE_CATEGORY(PrideArchiveField.FILE_CATEGORY, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
+    FILE_CATEGORY(PrideArchiveField.FILE_CATEGORY, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, CvParam.class),
     FILE_SOURCE_FOLDER(PrideArchiveField.FILE_SOURCE_TYPE, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
     FILE_CHECKSUM(PrideArchiveField.FILE_CHECKSUM, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
     FILE_PUBLIC_LOCATIONS (PrideArchiveField.FILE_PUBLIC_LOCATIONS, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
-    FILE_SIZE_MB (PrideArchiveField.FILE_SIZE_MB,new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
+    FILE_SIZE_MB (PrideArchiveField.FILE_SIZE_MB, "fileSizeBytes", new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, Long.class),
     FILE_EXTENSION (PrideArchiveField.FILE_EXTENSION,new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME},String.class),
     FILE_NAME (PrideArchiveField.FILE_NAME,new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME}, String.class),
-    FILE_IS_COMPRESS (PrideArchiveField.FILE_NAME, new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME},Boolean.class);
+    FILE_IS_COMPRESS (PrideArchiveField.FILE_IS_COMPRESS, "compress", new String[]{PrideArchiveField.PRIDE_FILE_COLLECTION_NAME},Boolean.class);
+
+    /** Fields by normalized name (lower case without underscores), the name, the field name and the document field are all accepted **/
+    private static final Map<String, PrideFieldEnum> FIELDS_BY_NAME = new HashMap<>();
+
+    static {
+        for (PrideFieldEnum field : values()) {
+            FIELDS_BY_NAME.putIfAbsent(normalizeName(field.fieldName), field);
+            FIELDS_BY_NAME.putIfAbsent(normalizeName(field.documentField), field);
+            FIELDS_BY_NAME.putIfAbsent(normalizeName(field.name()), field);
+        }
+    }
 
     private String fieldName;
+    private final String documentField;
     private Class classType;
     private String[] collections;
 
     PrideFieldEnum(String fieldName, String[] collections, Class classType) {
+        this(fieldName, fieldName, collections, classType);
+    }
+
+    /**
+     * Field where the name of the index (fieldName) is different from the name of the property stored in the document.
+     */
+    PrideFieldEnum(String fieldName, String documentField, String[] collections, Class classType) {
         this.classType = classType;
         this.fieldName = fieldName;
+        this.documentField = documentField;
         this.collections = collections;
     }
 
+    /**
+     * Find a field by name, the lookup ignores the case and the underscores (public_project, publicProject and PUBLIC_PROJECT are the same).
+     *
+     * @param name name of the field
+     * @return PrideFieldEnum or null if the name is not a known field
+     */
+    public static PrideFieldEnum fromFieldName(String name) {
+        return (name == null) ? null : FIELDS_BY_NAME.get(normalizeName(name));
+    }
+
+    private static String normalizeName(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
     public String getFieldName() {
         return fieldName;
     }
@@ -68,6 +106,15 @@ public enum PrideFieldEnum {
         this.fieldName = fieldName;
     }
 
+    /**
+     * Name of the property in the stored documents.
+     *
+     * @return document field
+     */
+    public String getDocumentField() {
+        return documentField;
+    }
+
     public String[] getCollections() {
         return collections;
     }
@@ -84,6 +131,7 @@ public enum PrideFieldEnum {
     public String toString() {
         return "PrideFieldEnum{" +
                 "fieldName='" + getFieldName() + '\'' +
+                ", documentField='" + getDocumentField() + '\'' +
                 ", classType=" + getClassType() +
                 ", collections=" + Arrays.toString(getCollections()) +
                 '}';
@@ -8,6 +8,7 @@ import lombok.experimental.Tolerate;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
@@ -26,12 +27,15 @@ import java.util.stream.Collectors;
  *
  * The combination between FileName and Project Accessions should be unique.
  *
+ * The filters on the file category compare the accession of the term, it has its own index.
+ *
  * @author ypriverol
  */
 @Data
 @Builder
 @Document(collection = PrideArchiveField.PRIDE_FILE_COLLECTION_NAME)
 @TypeAlias(PrideArchiveField.MONGO_FILE_DOCUMENT_ALIAS)
+@CompoundIndex(name = PrideArchiveField.FILE_CATEGORY_ACCESSION, def = "{'" + PrideArchiveField.FILE_CATEGORY_ACCESSION + "': 1}")
 public class MongoPrideFile implements PrideArchiveField, FileProvider {
 
     @Id
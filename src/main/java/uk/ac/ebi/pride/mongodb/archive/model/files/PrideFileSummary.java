@@ -0,0 +1,39 @@
+package uk.ac.ebi.pride.mongodb.archive.model.files;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.bson.types.ObjectId;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Read-only projection of a {@link MongoPrideFile}. It is filled only with the fields requested by the query ({@link PrideFileView} or a
+ * field set), the properties that were not projected are null.
+ *
+ * @author ypriverol
+ */
+@Getter
+@ToString
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PrideFileSummary {
+
+    private ObjectId id;
+    private String accession;
+    private String fileName;
+    private Long fileSizeBytes;
+    private CvParam fileCategory;
+    private String fileExtension;
+    private Boolean compress;
+    private String checksum;
+    private String submitterFileChecksum;
+    private Set<String> projectAccessions;
+    private Set<String> analysisAccessions;
+    private Set<CvParam> publicFileLocations;
+    private Date submissionDate;
+    private Date publicationDate;
+    private Date updatedDate;
+}
@@ -0,0 +1,32 @@
+package uk.ac.ebi.pride.mongodb.archive.model.files;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Predefined projections of {@link MongoPrideFile} into {@link PrideFileSummary}, every view retrieves only the fields that one kind of
+ * client needs.
+ */
+public enum PrideFileView {
+
+    /** File listing: accession, name, size and category **/
+    FILE_LISTING("accession", "fileName", "fileSizeBytes", "fileCategory"),
+
+    /** Download pages: the listing fields plus the checksum and the public locations **/
+    FILE_DOWNLOAD("accession", "fileName", "fileSizeBytes", "fileCategory", "checksum", "publicFileLocations"),
+
+    /** Checksum validation: accession, checksums and projects **/
+    FILE_CHECKSUM("accession", "checksum", "submitterFileChecksum", "projectAccessions");
+
+    private final Set<String> fields;
+
+    PrideFileView(String... fields) {
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fields)));
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+}
@@ -0,0 +1,55 @@
+package uk.ac.ebi.pride.mongodb.archive.model.ingestion;
+
+import lombok.Builder;
+import lombok.Data;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+
+import java.util.Date;
+
+/**
+ * A checkpoint of the ingestion journal. Every checkpoint records that one batch (write window) of a submission has been committed into a
+ * collection, so a restarted load can skip the batch without reading it again from the database. A batch is identified by the submission,
+ * the target collection and the position of the batch in the load.
+ */
+@Document(collection = PrideArchiveField.PRIDE_INGESTION_JOURNAL_COLLECTION_NAME)
+@CompoundIndex(name = "submission_collection_batch", unique = true,
+        def = "{'" + PrideArchiveField.JOURNAL_SUBMISSION + "': 1, '" + PrideArchiveField.JOURNAL_COLLECTION + "': 1, '" + PrideArchiveField.JOURNAL_BATCH_INDEX + "': 1}")
+@Data
+@Builder
+@TypeAlias("MongoIngestionCheckpoint")
+public class MongoIngestionCheckpoint {
+
+    @Id
+    private ObjectId id;
+
+    /** Submission (usually the project accession) that is loaded **/
+    @Field(value = PrideArchiveField.JOURNAL_SUBMISSION)
+    private String submission;
+
+    /** Collection where the batch has been written **/
+    @Field(value = PrideArchiveField.JOURNAL_COLLECTION)
+    private String collection;
+
+    /** Position of the batch in the load (starting with 0) **/
+    @Field(value = PrideArchiveField.JOURNAL_BATCH_INDEX)
+    private int batchIndex;
+
+    /** Number of documents in the batch, a resumed load must use the same batch size **/
+    @Field(value = PrideArchiveField.JOURNAL_BATCH_SIZE)
+    private int batchSize;
+
+    /** Documents inserted in the batch **/
+    private int inserted;
+
+    /** Documents of the batch that were already in the database **/
+    private int skipped;
+
+    /** Date when the batch was committed **/
+    private Date committedDate;
+}
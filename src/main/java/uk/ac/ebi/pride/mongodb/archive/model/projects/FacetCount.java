@@ -0,0 +1,13 @@
+package uk.ac.ebi.pride.mongodb.archive.model.projects;
+
+import lombok.Data;
+
+/**
+ * Number of projects with one value of a facet.
+ */
+@Data
+public class FacetCount {
+
+    private final String value;
+    private final long count;
+}
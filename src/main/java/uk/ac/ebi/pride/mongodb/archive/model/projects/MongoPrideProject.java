@@ -6,6 +6,7 @@ import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.TypeAlias;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
@@ -52,12 +53,14 @@ public class MongoPrideProject implements ProjectProvider, PrideArchiveField {
      * Title of the Project
      **/
     @Field(value = PrideArchiveField.PROJECT_TILE)
+    @TextIndexed(weight = 10)
     protected String title;
 
     /**
      * PRIDE Project short description
      **/
     @Field(value = PrideArchiveField.PROJECT_DESCRIPTION)
+    @TextIndexed(weight = 4)
     protected String description;
 
     /**
@@ -73,12 +76,14 @@ public class MongoPrideProject implements ProjectProvider, PrideArchiveField {
      * Sample Processing
      **/
     @Field(value = PrideArchiveField.PROJECT_SAMPLE_PROTOCOL)
+    @TextIndexed(weight = 2)
     protected String sampleProcessing;
 
     /**
      * Data Processing Protocol
      **/
     @Field(value = PrideArchiveField.PROJECT_DATA_PROTOCOL)
+    @TextIndexed(weight = 2)
     protected String dataProcessing;
 
     /**
@@ -98,12 +103,14 @@ public class MongoPrideProject implements ProjectProvider, PrideArchiveField {
      * List of keywords added by the user
      **/
     @Indexed(name = PROJECT_KEYWORDS)
+    @TextIndexed(weight = 8)
     protected Collection<String> keywords;
 
     /**
      * This are tags provided by the curator of PRIDE
      **/
     @Indexed(name = PROJECT_TAGS)
+    @TextIndexed(weight = 6)
     protected Collection<String> projectTags;
 
     /* This are CVParams to describe the type of the experiment */
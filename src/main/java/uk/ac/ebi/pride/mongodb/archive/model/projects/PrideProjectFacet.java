@@ -0,0 +1,53 @@
+package uk.ac.ebi.pride.mongodb.archive.model.projects;
+
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+
+/**
+ * Facets of the project search. Every facet counts the projects by one value: the name of a CvParam of a list, a String field or the year
+ * of a date.
+ */
+public enum PrideProjectFacet {
+
+    INSTRUMENTS("instruments", PrideArchiveField.INSTRUMENTS, PrideArchiveField.INSTRUMENTS + ".name", null),
+    ORGANISMS("organisms", PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES, PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES + ".value.name", "OBI:0100026"),
+    ORGANISM_PARTS("organismParts", PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES, PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES + ".value.name", "EFO:0000635"),
+    PTMS("ptms", PrideArchiveField.PROJECT_IDENTIFIED_PTM, PrideArchiveField.PROJECT_IDENTIFIED_PTM + ".name", null),
+    EXPERIMENT_TYPES("experimentTypes", "experimentTypes", "experimentTypes.name", null),
+    SUBMISSION_TYPE("submissionType", null, PrideArchiveField.PROJECT_SUBMISSION_TYPE, null),
+    COUNTRIES("countries", PrideArchiveField.COUNTRIES, PrideArchiveField.COUNTRIES, null),
+    PUBLICATION_YEAR("publicationYear", null, PrideArchiveField.PUBLICATION_DATE, null);
+
+    private final String name;
+    private final String unwindField;
+    private final String valueField;
+    private final String sampleKeyAccession;
+
+    /**
+     * @param name               name of the facet in the aggregation result
+     * @param unwindField        list field that is unwound before counting, null for single value fields
+     * @param valueField         field counted by the facet
+     * @param sampleKeyAccession for sample attributes, accession of the key (for example organism) whose values are counted
+     */
+    PrideProjectFacet(String name, String unwindField, String valueField, String sampleKeyAccession) {
+        this.name = name;
+        this.unwindField = unwindField;
+        this.valueField = valueField;
+        this.sampleKeyAccession = sampleKeyAccession;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUnwindField() {
+        return unwindField;
+    }
+
+    public String getValueField() {
+        return valueField;
+    }
+
+    public String getSampleKeyAccession() {
+        return sampleKeyAccession;
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.ebi.pride.mongodb.archive.model.projects;
+
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a faceted project search: one page of projects and the top values of every requested facet, all computed by one aggregation.
+ */
+@Data
+public class PrideProjectFacetResult {
+
+    private final Page<MongoPrideProject> projects;
+    private final Map<PrideProjectFacet, List<FacetCount>> facets;
+}
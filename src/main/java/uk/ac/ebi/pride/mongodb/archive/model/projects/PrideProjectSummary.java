@@ -0,0 +1,44 @@
+package uk.ac.ebi.pride.mongodb.archive.model.projects;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.mapping.Field;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Read-only projection of a {@link MongoPrideProject} with the fields requested by the query ({@link PrideProjectView} or a field set).
+ *
+ * @author ypriverol
+ */
+@Getter
+@ToString
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PrideProjectSummary {
+
+    private ObjectId id;
+    private String accession;
+
+    @Field(value = PrideArchiveField.PROJECT_TILE)
+    private String title;
+
+    @Field(value = PrideArchiveField.PROJECT_DESCRIPTION)
+    private String description;
+
+    private String submissionType;
+    private Date submissionDate;
+    private Date publicationDate;
+    private Date updatedDate;
+    private Collection<String> keywords;
+    private Collection<String> projectTags;
+    private Collection<CvParam> instruments;
+    private Collection<CvParam> experimentTypes;
+    private String doi;
+    private Boolean publicProject;
+}
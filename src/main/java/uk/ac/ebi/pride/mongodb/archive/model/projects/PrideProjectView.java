@@ -0,0 +1,28 @@
+package uk.ac.ebi.pride.mongodb.archive.model.projects;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Predefined projections of {@link MongoPrideProject} into {@link PrideProjectSummary}.
+ */
+public enum PrideProjectView {
+
+    /** Project listing: accession, title, dates and submission type **/
+    PROJECT_LISTING("accession", "title", "submissionType", "submissionDate", "publicationDate"),
+
+    /** Project cards: the listing fields plus description, keywords, instruments and DOI **/
+    PROJECT_SUMMARY("accession", "title", "submissionType", "submissionDate", "publicationDate", "description", "keywords", "instruments", "doi");
+
+    private final Set<String> fields;
+
+    PrideProjectView(String... fields) {
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fields)));
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+}
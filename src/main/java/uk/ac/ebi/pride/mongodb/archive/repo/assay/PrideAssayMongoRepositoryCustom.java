@@ -3,6 +3,7 @@ package uk.ac.ebi.pride.mongodb.archive.repo.assay;
 
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
 
 import java.util.List;
 
@@ -20,4 +21,13 @@ import java.util.List;
 public interface PrideAssayMongoRepositoryCustom {
 
     List<MongoPrideAssay> filterByAttributes(List<Triple<String, String, String>> filters);
+
+    /**
+     * Insert or update a List of assays with unordered bulk upserts on the unique accession, the existing assays are replaced and keep their
+     * _id. Nothing is read before the write, so two loads of the same new assay do not race on the _id.
+     *
+     * @param assays List of {@link MongoPrideAssay}
+     * @return inserted and updated (matched) counts
+     */
+    BulkUpsertResult saveAllByAccession(List<MongoPrideAssay> assays);
 }
@@ -4,10 +4,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
 import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
 
 import java.util.List;
 
@@ -24,6 +27,9 @@ import java.util.List;
  */
 public class PrideAssayMongoRepositoryImpl implements PrideAssayMongoRepositoryCustom {
 
+    /** Number of assays by bulk write **/
+    private static final int BULK_BATCH_SIZE = 1000;
+
     MongoTemplate mongoTemplate;
 
     @Autowired
@@ -35,17 +41,30 @@ public class PrideAssayMongoRepositoryImpl implements PrideAssayMongoRepositoryC
 
     MongoOperations mongoOperations;
 
+    IndexAwareQueryPlanner queryPlanner;
+
     @Autowired
     @Qualifier("archiveMongoTemplate")
     public void setMongoOperations(MongoTemplate mongoTemplate){
         this.mongoOperations = mongoTemplate;
     }
 
+    @Autowired
+    public void setQueryPlanner(IndexAwareQueryPlanner queryPlanner) {
+        this.queryPlanner = queryPlanner;
+    }
+
 
     @Override
     public List<MongoPrideAssay> filterByAttributes(List<Triple<String, String, String>> filters) {
-//        Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-        return mongoTemplate.find(queryMongo, MongoPrideAssay.class);
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideAssay.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> mongoTemplate.find(plan.toQuery(), MongoPrideAssay.class));
+    }
+
+    @Override
+    public BulkUpsertResult saveAllByAccession(List<MongoPrideAssay> assays) {
+        if (assays == null || assays.isEmpty())
+            return new BulkUpsertResult();
+        return PrideMongoUtils.bulkUpsertByAccession(mongoTemplate, MongoPrideAssay.class, assays, MongoPrideAssay::getAccession, true, BULK_BATCH_SIZE);
     }
 }
@@ -2,9 +2,14 @@ package uk.ac.ebi.pride.mongodb.archive.repo.files;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileSummary;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,9 +21,59 @@ public interface PrideFileMongoRepositoryCustom {
 
     Page<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page);
 
+    /**
+     * Filter page by page computing the total of the search with a {@link CountStrategy}.
+     *
+     * @param filters       filters of the query
+     * @param page          page requested
+     * @param countStrategy how the total number of results is computed
+     * @return CountedPage
+     */
+    Page<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, CountStrategy countStrategy);
+
+    /**
+     * Filter with keyset pagination: the results are sorted by the first order of the sort and the _id, and every page starts after the
+     * last result of the previous one, so deep pages are as fast as the first one.
+     *
+     * @param filters  filters of the query
+     * @param sort     sort of the results, only the first order is used
+     * @param cursor   cursor of the previous page, null for the first page
+     * @param pageSize number of results by page
+     * @return CursorPage with the results and the cursor of the next page
+     */
+    CursorPage<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Sort sort, String cursor, int pageSize);
+
     List<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters);
 
+    /**
+     * Filter the Files page by page retrieving only some fields.
+     *
+     * @param filters filters of the query
+     * @param page    page requested
+     * @param fields  properties of {@link PrideFileSummary} to retrieve
+     * @return Page of read-only projections
+     */
+    Page<PrideFileSummary> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, Collection<String> fields);
+
+    /**
+     * Filter the Files retrieving only some fields.
+     *
+     * @param filters filters of the query
+     * @param fields  properties of {@link PrideFileSummary} to retrieve
+     * @return read-only projections of the Files
+     */
+    List<PrideFileSummary> filterByAttributes(List<Triple<String, String, String>> filters, Collection<String> fields);
+
     List<MongoPrideFile> findByProjectAccessions(List<String> accessions);
 
     List<String> findProjectAccessionsWhereChecksumIsNull();
+
+    /**
+     * Find the Files whose checksum or submitter checksum is in the given List, with one query that uses the checksum indexes. Only the
+     * accession, the checksums and the project accessions of the Files are retrieved.
+     *
+     * @param checksums checksums of the Files
+     * @return Files with the same content
+     */
+    List<MongoPrideFile> findByChecksums(Collection<String> checksums);
 }
@@ -6,17 +6,26 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.repository.support.PageableExecutionUtils;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
 import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
-import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileSummary;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCounter;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
+import uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination;
+import uk.ac.ebi.pride.mongodb.utils.projection.FieldProjection;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -36,29 +45,60 @@ public class PrideFileMongoRepositoryImpl implements PrideFileMongoRepositoryCus
 
     MongoOperations mongoOperations;
 
+    IndexAwareQueryPlanner queryPlanner;
+
     @Autowired
     @Qualifier("archiveMongoTemplate")
     public void setMongoOperations(MongoTemplate mongoTemplate) {
         this.mongoOperations = mongoTemplate;
     }
 
+    @Autowired
+    public void setQueryPlanner(IndexAwareQueryPlanner queryPlanner) {
+        this.queryPlanner = queryPlanner;
+    }
+
     @Override
     public Page<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page) {
-//        Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-//        if(queryCriteria!=null){
-//            queryMongo.addCriteria(queryCriteria);
-//        }
-        queryMongo.with(page);
-        List<MongoPrideFile> files = mongoTemplate.find(queryMongo, MongoPrideFile.class);
-        return PageableExecutionUtils.getPage(files, page, () -> mongoOperations.count(queryMongo, MongoPrideFile.class));
+        return filterByAttributes(filters, page, CountStrategy.EXACT);
+    }
+
+    @Override
+    public Page<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, CountStrategy countStrategy) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideFile.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> {
+            List<MongoPrideFile> results = mongoTemplate.find(plan.toQuery(page), MongoPrideFile.class);
+            return FilterCounter.getPage(results, page, mongoOperations, MongoPrideFile.class, plan, countStrategy);
+        });
+    }
+
+    @Override
+    public CursorPage<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters, Sort sort, String cursor, int pageSize) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideFile.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> KeysetPagination.find(mongoOperations, plan.toQuery(), MongoPrideFile.class, sort, cursor, pageSize));
     }
 
     @Override
     public List<MongoPrideFile> filterByAttributes(List<Triple<String, String, String>> filters) {
-        // Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-        return mongoTemplate.find(queryMongo, MongoPrideFile.class);
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideFile.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> mongoTemplate.find(plan.toQuery(), MongoPrideFile.class));
+    }
+
+    @Override
+    public Page<PrideFileSummary> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, Collection<String> fields) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideFile.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> {
+            Query queryMongo = FieldProjection.include(plan.toQuery(page), PrideFileSummary.class, fields);
+            List<PrideFileSummary> results = mongoTemplate.find(queryMongo, PrideFileSummary.class, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME);
+            return FilterCounter.getPage(results, page, mongoOperations, MongoPrideFile.class, plan, CountStrategy.EXACT);
+        });
+    }
+
+    @Override
+    public List<PrideFileSummary> filterByAttributes(List<Triple<String, String, String>> filters, Collection<String> fields) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideFile.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> mongoTemplate.find(FieldProjection.include(plan.toQuery(), PrideFileSummary.class, fields),
+                PrideFileSummary.class, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME));
     }
 
     @Override
@@ -74,4 +114,17 @@ public class PrideFileMongoRepositoryImpl implements PrideFileMongoRepositoryCus
         return mongoTemplate.getCollection(PrideArchiveField.PRIDE_FILE_COLLECTION_NAME)
                 .distinct(PrideArchiveField.ACCESSION, Filters.exists(PrideArchiveField.CHECKSUM, false), String.class).into(new ArrayList<>());
     }
+
+    @Override
+    public List<MongoPrideFile> findByChecksums(Collection<String> checksums) {
+        Query queryMongo = new Query(new Criteria().orOperator(
+                Criteria.where(PrideArchiveField.CHECKSUM).in(checksums),
+                Criteria.where(PrideArchiveField.SUBMITTER_FILE_CHECKSUM).in(checksums)));
+        queryMongo.fields()
+                .include(PrideArchiveField.ACCESSION)
+                .include(PrideArchiveField.CHECKSUM)
+                .include(PrideArchiveField.SUBMITTER_FILE_CHECKSUM)
+                .include(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS);
+        return mongoTemplate.find(queryMongo, MongoPrideFile.class);
+    }
 }
@@ -0,0 +1,21 @@
+package uk.ac.ebi.pride.mongodb.archive.repo.ingestion;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.ingestion.MongoIngestionCheckpoint;
+
+import java.util.List;
+
+@Repository
+public interface PrideIngestionJournalMongoRepository extends MongoRepository<MongoIngestionCheckpoint, ObjectId> {
+
+    @Query(value = "{'" + PrideArchiveField.JOURNAL_SUBMISSION + "' : ?0, '" + PrideArchiveField.JOURNAL_COLLECTION + "' : ?1}",
+            fields = "{'" + PrideArchiveField.JOURNAL_BATCH_INDEX + "' : 1, '" + PrideArchiveField.JOURNAL_BATCH_SIZE + "' : 1}")
+    List<MongoIngestionCheckpoint> findCheckpoints(String submission, String collection);
+
+    @Query(value = "{'" + PrideArchiveField.JOURNAL_SUBMISSION + "' : ?0}", delete = true)
+    Long deleteBySubmission(String submission);
+}
@@ -4,15 +4,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.repository.support.PageableExecutionUtils;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
 import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
-import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCounter;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
+import uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination;
 
 import java.util.List;
 import java.util.Optional;
@@ -33,29 +39,43 @@ public class PrideMSRunMongoRepositoryImpl implements PrideMSRunMongoRepositoryC
 
     MongoOperations mongoOperations;
 
+    IndexAwareQueryPlanner queryPlanner;
+
     @Autowired
     @Qualifier("archiveMongoTemplate")
     public void setMongoOperations(MongoTemplate mongoTemplate){
         this.mongoOperations = mongoTemplate;
     }
 
+    @Autowired
+    public void setQueryPlanner(IndexAwareQueryPlanner queryPlanner) {
+        this.queryPlanner = queryPlanner;
+    }
+
     @Override
     public Page<MongoPrideMSRun> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page) {
-//        Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-//        if(queryCriteria!=null){
-//            queryMongo.addCriteria(queryCriteria);
-//        }
-        queryMongo.with(page);
-        List<MongoPrideMSRun> files =  mongoTemplate.find(queryMongo, MongoPrideMSRun.class);
-        return PageableExecutionUtils.getPage(files, page, () -> mongoOperations.count(queryMongo, MongoPrideMSRun.class));
+        return filterByAttributes(filters, page, CountStrategy.EXACT);
+    }
+
+    @Override
+    public Page<MongoPrideMSRun> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, CountStrategy countStrategy) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideMSRun.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> {
+            List<MongoPrideMSRun> results = mongoTemplate.find(plan.toQuery(page), MongoPrideMSRun.class);
+            return FilterCounter.getPage(results, page, mongoOperations, MongoPrideMSRun.class, plan, countStrategy);
+        });
+    }
+
+    @Override
+    public CursorPage<MongoPrideMSRun> filterByAttributes(List<Triple<String, String, String>> filters, Sort sort, String cursor, int pageSize) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideMSRun.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> KeysetPagination.find(mongoOperations, plan.toQuery(), MongoPrideMSRun.class, sort, cursor, pageSize));
     }
 
     @Override
     public List<MongoPrideMSRun> filterByAttributes(List<Triple<String, String, String>> filters) {
-//        Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-        return mongoTemplate.find(queryMongo, MongoPrideMSRun.class);
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideMSRun.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> mongoTemplate.find(plan.toQuery(), MongoPrideMSRun.class));
     }
 
     @Override
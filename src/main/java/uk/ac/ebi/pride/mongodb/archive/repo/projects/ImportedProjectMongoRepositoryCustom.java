@@ -1,9 +1,12 @@
 package uk.ac.ebi.pride.mongodb.archive.repo.projects;
 
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoImportedProject;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
 
+import java.util.Collection;
 import java.util.Set;
 
 
@@ -20,4 +23,30 @@ public interface ImportedProjectMongoRepositoryCustom {
 
     Set<String> getAllProjectAccessions();
 
+    /**
+     * Insert the project if no project with the same accession exists, in one round trip.
+     *
+     * @param project {@link MongoImportedProject}
+     * @return _id of the new project, null if the accession was already in the database
+     */
+    ObjectId insertByAccession(MongoImportedProject project);
+
+    /**
+     * Replace the project with the same accession in one round trip, the _id of the stored project is kept.
+     *
+     * @param project {@link MongoImportedProject}
+     * @param upsert  insert the project if the accession is not in the database
+     * @return _id of the stored project, null if upsert is false and the accession is not in the database
+     */
+    ObjectId replaceByAccession(MongoImportedProject project, boolean upsert);
+
+    /**
+     * Write a batch of projects keyed on the accession with unordered bulk writes.
+     *
+     * @param projects        projects to write
+     * @param replaceExisting if true the existing projects are replaced, if false they are left untouched
+     * @return inserted, matched and modified counts
+     */
+    BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoImportedProject> projects, boolean replaceExisting);
+
 }
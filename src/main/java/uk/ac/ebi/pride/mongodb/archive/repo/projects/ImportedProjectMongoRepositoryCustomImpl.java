@@ -1,5 +1,6 @@
 package uk.ac.ebi.pride.mongodb.archive.repo.projects;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
@@ -10,8 +11,11 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoImportedProject;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -19,6 +23,9 @@ import java.util.Set;
 
 public class ImportedProjectMongoRepositoryCustomImpl implements ImportedProjectMongoRepositoryCustom {
 
+    /** Number of projects by bulk write **/
+    private static final int BULK_BATCH_SIZE = 1000;
+
     private final MongoTemplate mongoTemplate;
 
     @Autowired
@@ -63,4 +70,19 @@ public class ImportedProjectMongoRepositoryCustomImpl implements ImportedProject
 
         return projectAccessions;
     }
+
+    @Override
+    public ObjectId insertByAccession(MongoImportedProject project) {
+        return PrideMongoUtils.insertByAccession(mongoTemplate, project, project.getAccession());
+    }
+
+    @Override
+    public ObjectId replaceByAccession(MongoImportedProject project, boolean upsert) {
+        return PrideMongoUtils.replaceByAccession(mongoTemplate, project, project.getAccession(), upsert);
+    }
+
+    @Override
+    public BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoImportedProject> projects, boolean replaceExisting) {
+        return PrideMongoUtils.bulkUpsertByAccession(mongoTemplate, MongoImportedProject.class, projects, MongoImportedProject::getAccession, replaceExisting, BULK_BATCH_SIZE);
+    }
 }
@@ -2,8 +2,11 @@ package uk.ac.ebi.pride.mongodb.archive.repo.projects;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideAnalysis;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
 import java.util.List;
 
@@ -23,4 +26,25 @@ import java.util.List;
 public interface PrideAnalysisMongoRepositoryCustom {
 
     Page<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page);
+
+    /**
+     * Filter page by page computing the total of the search with a {@link CountStrategy}.
+     *
+     * @param filters       filters of the query
+     * @param page          page requested
+     * @param countStrategy how the total number of results is computed
+     * @return CountedPage
+     */
+    Page<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, CountStrategy countStrategy);
+
+    /**
+     * Filter the analyses with keyset pagination (see {@link uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination}).
+     *
+     * @param filters  filters of the query
+     * @param sort     sort of the results, only the first order is used
+     * @param cursor   cursor of the previous page, null for the first page
+     * @param pageSize number of results by page
+     * @return CursorPage with the results and the cursor of the next page
+     */
+    CursorPage<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Sort sort, String cursor, int pageSize);
 }
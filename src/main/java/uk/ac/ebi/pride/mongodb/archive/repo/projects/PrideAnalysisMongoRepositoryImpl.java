@@ -4,13 +4,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.repository.support.PageableExecutionUtils;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideAnalysis;
-import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCounter;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
+import uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination;
 
 import java.util.List;
 
@@ -40,18 +45,36 @@ public class PrideAnalysisMongoRepositoryImpl implements PrideAnalysisMongoRepos
 
     MongoOperations mongoOperations;
 
+    IndexAwareQueryPlanner queryPlanner;
+
     @Autowired
     @Qualifier("archiveMongoTemplate")
     public void setMongoOperations(MongoTemplate mongoTemplate){
         this.mongoOperations = mongoTemplate;
     }
 
+    @Autowired
+    public void setQueryPlanner(IndexAwareQueryPlanner queryPlanner) {
+        this.queryPlanner = queryPlanner;
+    }
+
     @Override
     public Page<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page) {
-//        Criteria queryCriteria = PrideMongoUtils.buildCriteria(filters);
-        Query queryMongo = PrideMongoUtils.buildQuery(filters);
-        queryMongo.with(page);
-        List<MongoPrideAnalysis> files =  mongoTemplate.find(queryMongo, MongoPrideAnalysis.class);
-        return PageableExecutionUtils.getPage(files, page, () -> mongoOperations.count(queryMongo, MongoPrideAnalysis.class));
+        return filterByAttributes(filters, page, CountStrategy.EXACT);
+    }
+
+    @Override
+    public Page<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Pageable page, CountStrategy countStrategy) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideAnalysis.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> {
+            List<MongoPrideAnalysis> results = mongoTemplate.find(plan.toQuery(page), MongoPrideAnalysis.class);
+            return FilterCounter.getPage(results, page, mongoOperations, MongoPrideAnalysis.class, plan, countStrategy);
+        });
+    }
+
+    @Override
+    public CursorPage<MongoPrideAnalysis> filterByAttributes(List<Triple<String, String, String>> filters, Sort sort, String cursor, int pageSize) {
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideAnalysis.class, FilterQueryCompiler.getDefault().compile(filters));
+        return queryPlanner.execute(plan, () -> KeysetPagination.find(mongoOperations, plan.toQuery(), MongoPrideAnalysis.class, sort, cursor, pageSize));
     }
 }
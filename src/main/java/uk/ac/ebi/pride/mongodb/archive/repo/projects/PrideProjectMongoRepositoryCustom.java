@@ -1,9 +1,19 @@
 package uk.ac.ebi.pride.mongodb.archive.repo.projects;
 
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacet;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacetResult;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectSummary;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 
@@ -14,10 +24,93 @@ public interface PrideProjectMongoRepositoryCustom {
     ptmList = modifications
     */
     //TODO : this function is not used for now. But it might be useful for future
+    /**
+     * @deprecated unanchored regex over the whole collection, use {@link #findByText(String, Pageable)} for keyword searches.
+     */
+    @Deprecated
     Page<MongoPrideProject> findByMultipleAttributes(Pageable page, String[] accessions, String[] sample_attributes,
                                                      String[] instruments, String contact, String ptmList,
                                                      String[] publications, String[] keywords);
 
     Set<String> getAllProjectAccessions();
 
+    /**
+     * Projects updated (updatedDate) since a date or inserted after an id, used to refresh the set of accessions without reading all the
+     * projects again. Only the id, accession and updatedDate are retrieved. Without date and id all the projects are returned.
+     *
+     * @param updatedSince  projects with an updatedDate equal or after this date, null to ignore the date
+     * @param insertedAfter projects with an id greater than this one, null to ignore the id
+     * @return read-only projections of the projects
+     */
+    List<PrideProjectSummary> findAccessionsChangedSince(Date updatedSince, ObjectId insertedAfter);
+
+    /**
+     * Find the projects with the given accessions retrieving only some fields.
+     *
+     * @param accessions project accessions
+     * @param fields     properties of {@link PrideProjectSummary} to retrieve
+     * @return read-only projections of the projects
+     */
+    List<PrideProjectSummary> findByMultipleAccessions(List<String> accessions, Collection<String> fields);
+
+    /**
+     * Faceted search: one page of the projects that match the filters and the topN values of every facet, computed with one $facet
+     * aggregation. The filter is planned with the IndexAwareQueryPlanner, so its scan policy applies, and the projects are sorted by the
+     * page sort and then by _id, so the pages do not overlap.
+     *
+     * @param filters filters of the search (field, operator, value)
+     * @param page    page of projects requested, it must be paged (the page is returned inside one aggregation result document)
+     * @param facets  facets to compute
+     * @param topN    maximum number of values by facet
+     * @return PrideProjectFacetResult
+     */
+    PrideProjectFacetResult findByFiltersWithFacets(List<Triple<String, String, String>> filters, Pageable page, Collection<PrideProjectFacet> facets, int topN);
+
+    /**
+     * Full-text search over the weighted text index of the projects (title, keywords, tags, description and protocols). The projects are
+     * sorted by text score and paginated on the server.
+     *
+     * @param text terms of the search, MongoDB $text syntax ("phrases" and -negations are supported)
+     * @param page page requested, its sort is applied after the score
+     * @return Page of projects ranked by score
+     */
+    Page<MongoPrideProject> findByText(String text, Pageable page);
+
+    /**
+     * Full-text search ranked by score with cursor pagination, every page starts after the (score, _id) of the last project of the
+     * previous page.
+     *
+     * @param text     terms of the search
+     * @param cursor   cursor of the previous page, null for the first page
+     * @param pageSize number of projects by page
+     * @return CursorPage of projects ranked by score
+     */
+    CursorPage<MongoPrideProject> findByText(String text, String cursor, int pageSize);
+
+    /**
+     * Insert the project if no project with the same accession exists, in one round trip.
+     *
+     * @param project {@link MongoPrideProject}
+     * @return _id of the new project, null if the accession was already in the database
+     */
+    ObjectId insertByAccession(MongoPrideProject project);
+
+    /**
+     * Replace the project with the same accession in one round trip, the _id of the stored project is kept.
+     *
+     * @param project {@link MongoPrideProject}
+     * @param upsert  insert the project if the accession is not in the database
+     * @return _id of the stored project, null if upsert is false and the accession is not in the database
+     */
+    ObjectId replaceByAccession(MongoPrideProject project, boolean upsert);
+
+    /**
+     * Write a batch of projects keyed on the accession with unordered bulk writes.
+     *
+     * @param projects        projects to write
+     * @param replaceExisting if true the existing projects are replaced, if false they are left untouched
+     * @return inserted, matched and modified counts
+     */
+    BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoPrideProject> projects, boolean replaceExisting);
+
 }
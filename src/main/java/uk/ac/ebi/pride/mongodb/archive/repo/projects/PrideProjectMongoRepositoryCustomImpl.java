@@ -1,37 +1,83 @@
 package uk.ac.ebi.pride.mongodb.archive.repo.projects;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.FacetCount;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacet;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacetResult;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectSummary;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
+import uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination;
+import uk.ac.ebi.pride.mongodb.utils.projection.FieldProjection;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
 public class PrideProjectMongoRepositoryCustomImpl implements PrideProjectMongoRepositoryCustom {
 
+    /** Number of projects by bulk write **/
+    private static final int BULK_BATCH_SIZE = 1000;
+
+    /** Names of the page of projects and the total in the $facet result **/
+    private static final String FACET_RESULTS = "results";
+    private static final String FACET_TOTAL = "total";
+
+    /** Field that holds the text score in the text search aggregation **/
+    private static final String TEXT_SCORE = "score";
+
     private final MongoTemplate mongoTemplate;
 
+    IndexAwareQueryPlanner queryPlanner;
+
     @Autowired
     public PrideProjectMongoRepositoryCustomImpl(@Qualifier("archiveMongoTemplate") MongoTemplate mongoTemplate) {
         this.mongoTemplate = mongoTemplate;
     }
 
+    @Autowired
+    public void setQueryPlanner(IndexAwareQueryPlanner queryPlanner) {
+        this.queryPlanner = queryPlanner;
+    }
+
     /*
      sample_attributes = species
      ptmList = modifications
     */
     //TODO : this function is not used for now. But it might be useful for future
     @Override
+    @Deprecated
     public Page<MongoPrideProject> findByMultipleAttributes(Pageable page, String[] accessions, String[] sampleAttributes,
                                                             String[] instruments, String contact,
                                                             String ptmList, String[] publications,
@@ -48,9 +94,15 @@ public class PrideProjectMongoRepositoryCustomImpl implements PrideProjectMongoR
             criteriaList.add(Criteria.where(PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES).regex(regExStr));
         }
 
-        query.addCriteria(new Criteria().orOperator(criteriaList.toArray(new Criteria[criteriaList.size()])));
+        Query pageQuery = new Query().with(page);
+        if (!criteriaList.isEmpty()) {
+            Criteria criteria = new Criteria().orOperator(criteriaList.toArray(new Criteria[criteriaList.size()]));
+            query.addCriteria(criteria);
+            pageQuery.addCriteria(criteria);
+        }
 
-        List<MongoPrideProject> mongoPrideProjects = mongoTemplate.find(query, MongoPrideProject.class);
+        // The page is applied in the server, the count only runs if the page does not tell the total
+        List<MongoPrideProject> mongoPrideProjects = mongoTemplate.find(pageQuery, MongoPrideProject.class);
 
         return PageableExecutionUtils.getPage(mongoPrideProjects, page, () -> mongoTemplate.count(query, MongoPrideProject.class));
     }
@@ -63,4 +115,158 @@ public class PrideProjectMongoRepositoryCustomImpl implements PrideProjectMongoR
 
         return projectAccessions;
     }
+
+    @Override
+    public List<PrideProjectSummary> findAccessionsChangedSince(Date updatedSince, ObjectId insertedAfter) {
+        List<Criteria> changes = new ArrayList<>();
+        if (updatedSince != null)
+            changes.add(Criteria.where(PrideArchiveField.UPDATED_DATE).gte(updatedSince));
+        if (insertedAfter != null)
+            changes.add(Criteria.where(PrideArchiveField.ID).gt(insertedAfter));
+        Query query = changes.isEmpty() ? new Query() : new Query(new Criteria().orOperator(changes.toArray(new Criteria[0])));
+        FieldProjection.include(query, PrideProjectSummary.class, Arrays.asList(PrideArchiveField.ID, PrideArchiveField.ACCESSION, PrideArchiveField.UPDATED_DATE));
+        return mongoTemplate.find(query, PrideProjectSummary.class, mongoTemplate.getCollectionName(MongoPrideProject.class));
+    }
+
+    @Override
+    public List<PrideProjectSummary> findByMultipleAccessions(List<String> accessions, Collection<String> fields) {
+        Query query = FieldProjection.include(new Query(Criteria.where(PrideArchiveField.ACCESSION).in(accessions)), PrideProjectSummary.class, fields);
+        return mongoTemplate.find(query, PrideProjectSummary.class, mongoTemplate.getCollectionName(MongoPrideProject.class));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PrideProjectFacetResult findByFiltersWithFacets(List<Triple<String, String, String>> filters, Pageable page,
+                                                           Collection<PrideProjectFacet> facets, int topN) {
+        if (topN < 1)
+            throw new IllegalArgumentException("The number of values by facet must be positive -- " + topN);
+        // An unpaged request would return every matching project inside the single $facet result document
+        if (page == null || page.isUnpaged())
+            throw new IllegalArgumentException("The search with facets must be paged");
+        QueryExecutionPlan plan = queryPlanner.plan(MongoPrideProject.class, FilterQueryCompiler.getDefault().compile(filters));
+        Document filter = plan.toQuery().getQueryObject();
+
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        if (!filter.isEmpty())
+            pipeline.add(context -> new Document("$match", context.getMappedObject(filter)));
+        // The _id breaks the ties of the sort (or is the sort of an unsorted request), so the $skip/$limit pages are stable
+        Document sort = new Document();
+        page.getSort().forEach(order -> sort.append(order.getProperty(), order.isAscending() ? 1 : -1));
+        pipeline.add(context -> {
+            Document mappedSort = new Document(context.getMappedObject(sort));
+            mappedSort.putIfAbsent("_id", 1);
+            return new Document("$sort", mappedSort);
+        });
+
+        List<Document> results = Arrays.asList(new Document("$skip", page.getOffset()), new Document("$limit", page.getPageSize()));
+        Document facetStage = new Document(FACET_RESULTS, results)
+                .append(FACET_TOTAL, Collections.singletonList(new Document("$count", FACET_TOTAL)));
+        Set<PrideProjectFacet> requested = new LinkedHashSet<>(facets);
+        requested.forEach(facet -> facetStage.append(facet.getName(), facetPipeline(facet, topN)));
+        pipeline.add(context -> new Document("$facet", facetStage));
+
+        TypedAggregation<MongoPrideProject> aggregation = Aggregation.newAggregation(MongoPrideProject.class, pipeline)
+                .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+        Document result = queryPlanner.execute(plan, () -> mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(MongoPrideProject.class),
+                Document.class).getUniqueMappedResult());
+
+        List<MongoPrideProject> projects = new ArrayList<>();
+        long total = 0;
+        Map<PrideProjectFacet, List<FacetCount>> facetCounts = new EnumMap<>(PrideProjectFacet.class);
+        if (result != null) {
+            for (Document project : (List<Document>) result.get(FACET_RESULTS))
+                projects.add(mongoTemplate.getConverter().read(MongoPrideProject.class, project));
+            List<Document> totals = (List<Document>) result.get(FACET_TOTAL);
+            if (!totals.isEmpty())
+                total = ((Number) totals.get(0).get(FACET_TOTAL)).longValue();
+            for (PrideProjectFacet facet : requested) {
+                List<FacetCount> counts = new ArrayList<>();
+                for (Document value : (List<Document>) result.get(facet.getName()))
+                    counts.add(new FacetCount(String.valueOf(value.get("_id")), ((Number) value.get("count")).longValue()));
+                facetCounts.put(facet, counts);
+            }
+        }
+        return new PrideProjectFacetResult(new PageImpl<>(projects, page, total), facetCounts);
+    }
+
+    @Override
+    public Page<MongoPrideProject> findByText(String text, Pageable page) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text)).sortByScore().with(page);
+        List<MongoPrideProject> projects = mongoTemplate.find(query, MongoPrideProject.class);
+        return PageableExecutionUtils.getPage(projects, page,
+                () -> mongoTemplate.count(TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text)), MongoPrideProject.class));
+    }
+
+    @Override
+    public CursorPage<MongoPrideProject> findByText(String text, String cursor, int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("The page size must be positive -- " + pageSize);
+        // The cursor is bound to the search terms, the scores of other terms are not comparable
+        String cursorProperty = TEXT_SCORE + ":" + text.trim();
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", new Document("$text", new Document("$search", text))));
+        pipeline.add(new Document("$addFields", new Document(TEXT_SCORE, new Document("$meta", "textScore"))));
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            Document position = KeysetPagination.decode(cursor);
+            if (!cursorProperty.equals(position.getString(KeysetPagination.CURSOR_FIELD)))
+                throw new IllegalArgumentException("The cursor was created for another search -- " + text);
+            Object score = position.get(KeysetPagination.CURSOR_VALUE);
+            Object id = position.get(KeysetPagination.CURSOR_ID);
+            pipeline.add(new Document("$match", new Document("$or", Arrays.asList(
+                    new Document(TEXT_SCORE, new Document("$lt", score)),
+                    new Document(TEXT_SCORE, score).append("_id", new Document("$gt", id))))));
+        }
+        pipeline.add(new Document("$sort", new Document(TEXT_SCORE, -1).append("_id", 1)));
+        pipeline.add(new Document("$limit", pageSize + 1));
+
+        List<Document> documents = mongoTemplate.execute(MongoPrideProject.class, collection -> collection.aggregate(pipeline).into(new ArrayList<>()));
+        String nextCursor = null;
+        if (documents.size() > pageSize) {
+            documents = documents.subList(0, pageSize);
+            Document last = documents.get(pageSize - 1);
+            nextCursor = KeysetPagination.encode(cursorProperty, false, last.get(TEXT_SCORE), last.get("_id"));
+        }
+        List<MongoPrideProject> projects = new ArrayList<>(documents.size());
+        for (Document document : documents)
+            projects.add(mongoTemplate.getConverter().read(MongoPrideProject.class, document));
+        return new CursorPage<>(projects, nextCursor, pageSize);
+    }
+
+    /**
+     * Stages of one facet: unwind the list (and the values of the sample attribute), group by value and keep the topN values.
+     */
+    private static List<Document> facetPipeline(PrideProjectFacet facet, int topN) {
+        List<Document> stages = new ArrayList<>();
+        Object value = "$" + facet.getValueField();
+        if (facet.getUnwindField() != null)
+            stages.add(new Document("$unwind", "$" + facet.getUnwindField()));
+        if (facet.getSampleKeyAccession() != null) {
+            stages.add(new Document("$match", new Document(facet.getUnwindField() + ".key.accession", facet.getSampleKeyAccession())));
+            stages.add(new Document("$unwind", "$" + facet.getUnwindField() + ".value"));
+        }
+        if (facet == PrideProjectFacet.PUBLICATION_YEAR) {
+            stages.add(new Document("$match", new Document(facet.getValueField(), new Document("$type", "date"))));
+            value = new Document("$year", "$" + facet.getValueField());
+        }
+        stages.add(new Document("$group", new Document("_id", value).append("count", new Document("$sum", 1))));
+        stages.add(new Document("$match", new Document("_id", new Document("$ne", null))));
+        stages.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+        stages.add(new Document("$limit", topN));
+        return stages;
+    }
+
+    @Override
+    public ObjectId insertByAccession(MongoPrideProject project) {
+        return PrideMongoUtils.insertByAccession(mongoTemplate, project, project.getAccession());
+    }
+
+    @Override
+    public ObjectId replaceByAccession(MongoPrideProject project, boolean upsert) {
+        return PrideMongoUtils.replaceByAccession(mongoTemplate, project, project.getAccession(), upsert);
+    }
+
+    @Override
+    public BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoPrideProject> projects, boolean replaceExisting) {
+        return PrideMongoUtils.bulkUpsertByAccession(mongoTemplate, MongoPrideProject.class, projects, MongoPrideProject::getAccession, replaceExisting, BULK_BATCH_SIZE);
+    }
 }
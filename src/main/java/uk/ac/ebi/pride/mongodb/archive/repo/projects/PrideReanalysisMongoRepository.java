@@ -23,7 +23,7 @@ import java.util.Optional;
  * Created by Suresh Hewapathirana (sureshhewabi@gmail.com) on 12/06/2020.
  */
 @Repository
-public interface PrideReanalysisMongoRepository extends MongoRepository<MongoPrideReanalysisProject, ObjectId> {
+public interface PrideReanalysisMongoRepository extends MongoRepository<MongoPrideReanalysisProject, ObjectId>, PrideReanalysisMongoRepositoryCustom {
 
     @Query("{'" + PrideArchiveField.ACCESSION + "' : ?0}")
     Optional<MongoPrideReanalysisProject> findByAccession(String accession);
@@ -0,0 +1,38 @@
+package uk.ac.ebi.pride.mongodb.archive.repo.projects;
+
+import org.bson.types.ObjectId;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideReanalysisProject;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+
+import java.util.Collection;
+
+
+public interface PrideReanalysisMongoRepositoryCustom {
+
+    /**
+     * Insert the reanalysis project if no reanalysis project with the same accession exists, in one round trip.
+     *
+     * @param project {@link MongoPrideReanalysisProject}
+     * @return _id of the new reanalysis project, null if the accession was already in the database
+     */
+    ObjectId insertByAccession(MongoPrideReanalysisProject project);
+
+    /**
+     * Replace the reanalysis project with the same accession in one round trip, the _id of the stored reanalysis project is kept.
+     *
+     * @param project {@link MongoPrideReanalysisProject}
+     * @param upsert  insert the reanalysis project if the accession is not in the database
+     * @return _id of the stored reanalysis project, null if upsert is false and the accession is not in the database
+     */
+    ObjectId replaceByAccession(MongoPrideReanalysisProject project, boolean upsert);
+
+    /**
+     * Write a batch of reanalysis projects keyed on the accession with unordered bulk writes.
+     *
+     * @param projects        reanalysis projects to write
+     * @param replaceExisting if true the existing reanalysis projects are replaced, if false they are left untouched
+     * @return inserted, matched and modified counts
+     */
+    BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoPrideReanalysisProject> projects, boolean replaceExisting);
+
+}
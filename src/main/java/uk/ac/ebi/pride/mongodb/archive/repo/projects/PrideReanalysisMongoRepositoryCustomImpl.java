@@ -0,0 +1,40 @@
+package uk.ac.ebi.pride.mongodb.archive.repo.projects;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideReanalysisProject;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.util.Collection;
+
+
+public class PrideReanalysisMongoRepositoryCustomImpl implements PrideReanalysisMongoRepositoryCustom {
+
+    /** Number of reanalysis projects by bulk write **/
+    private static final int BULK_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public PrideReanalysisMongoRepositoryCustomImpl(@Qualifier("archiveMongoTemplate") MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public ObjectId insertByAccession(MongoPrideReanalysisProject project) {
+        return PrideMongoUtils.insertByAccession(mongoTemplate, project, project.getAccession());
+    }
+
+    @Override
+    public ObjectId replaceByAccession(MongoPrideReanalysisProject project, boolean upsert) {
+        return PrideMongoUtils.replaceByAccession(mongoTemplate, project, project.getAccession(), upsert);
+    }
+
+    @Override
+    public BulkUpsertResult bulkUpsertByAccession(Collection<? extends MongoPrideReanalysisProject> projects, boolean replaceExisting) {
+        return PrideMongoUtils.bulkUpsertByAccession(mongoTemplate, MongoPrideReanalysisProject.class, projects, MongoPrideReanalysisProject::getAccession, replaceExisting, BULK_BATCH_SIZE);
+    }
+}
@@ -0,0 +1,44 @@
+package uk.ac.ebi.pride.mongodb.archive.service.cache;
+
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+
+import java.util.Collection;
+
+/**
+ * Approximate size in memory of the Files and MSRuns of the near cache: the characters of the names and accessions and a fixed size by
+ * element of the sets (accessions, locations, CvParams...).
+ */
+final class NearCacheWeigher {
+
+    private static final long BASE_BYTES = 512;
+    private static final long ELEMENT_BYTES = 192;
+
+    private NearCacheWeigher() {
+    }
+
+    static long weigh(MongoPrideFile file) {
+        long bytes = BASE_BYTES;
+        bytes += 2L * (length(file.getAccession()) + length(file.getFileName()) + length(file.getChecksum()));
+        bytes += ELEMENT_BYTES * (size(file.getProjectAccessions()) + size(file.getAnalysisAccessions())
+                + size(file.getPublicFileLocations()) + size(file.getAdditionalAttributes()));
+        return bytes;
+    }
+
+    static long weigh(MongoPrideMSRun msRun) {
+        long bytes = BASE_BYTES;
+        bytes += 2L * (length(msRun.getAccession()) + length(msRun.getFileName()));
+        bytes += ELEMENT_BYTES * (size(msRun.getProjectAccessions()) + size(msRun.getAnalysisAccessions())
+                + size(msRun.getFileProperties()) + size(msRun.getInstrumentProperties()) + size(msRun.getMsData())
+                + size(msRun.getScanSettings()) + size(msRun.getAdditionalAttributes()) + size(msRun.getIdSettings()));
+        return bytes;
+    }
+
+    private static long length(String value) {
+        return (value != null) ? value.length() : 0;
+    }
+
+    private static long size(Collection<?> values) {
+        return (values != null) ? values.size() : 0;
+    }
+}
@@ -0,0 +1,326 @@
+package uk.ac.ebi.pride.mongodb.archive.service.cache;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.ImportedProjectMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
+import uk.ac.ebi.pride.mongodb.utils.WeightedCache;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCountCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link PrideCacheInvalidationService} keeps the in-process caches (projects, Files, MSRuns and filter counts) consistent with the
+ * writes made by other processes, for example the ingestion pipelines. Every cached collection is followed by one background thread:
+ *
+ * - If the database supports change streams (replica sets and sharded clusters) the thread tails the change stream of the collection and
+ *   evicts the accession of every updated or replaced document, the events are projected to the accession of the document. A deleted
+ *   document is only known by its _id, so a delete clears the caches of the collection. When the stream fails it is resumed after the last
+ *   event, and the caches are cleared because events may be lost.
+ * - Otherwise (standalone servers, Fongo) the thread polls the documents with a recent updatedDate. Polling can not see deletes or the
+ *   writes that do not change updatedDate, the expiration of the caches bounds the age of those documents. A collection without an index
+ *   on updatedDate (MSRuns) is never polled.
+ *
+ * Only the collections with an enabled cache (a maximum weight greater than 0 when the service starts) are followed.
+ *
+ * The service is disabled by default (pride.mongodb.cache-invalidation.enabled), pride.mongodb.cache-invalidation.mode forces change
+ * streams or polling instead of choosing automatically.
+ */
+@Service
+@Slf4j
+public class PrideCacheInvalidationService {
+
+    public static final String MODE_AUTO = "auto";
+    public static final String MODE_CHANGE_STREAM = "change-stream";
+    public static final String MODE_POLLING = "polling";
+
+    MongoOperations mongoOperations;
+
+    @Value("${pride.mongodb.cache-invalidation.enabled:false}")
+    boolean enabled = false;
+
+    @Value("${pride.mongodb.cache-invalidation.mode:auto}")
+    String mode = MODE_AUTO;
+
+    @Value("${pride.mongodb.cache-invalidation.poll-interval-millis:5000}")
+    long pollIntervalMillis = 5000;
+
+    @Value("${pride.mongodb.cache-invalidation.retry-interval-millis:10000}")
+    long retryIntervalMillis = 10000;
+
+    /** Only the accession of the looked up document is sent back, the _id of the event is the resume token **/
+    private static final List<Bson> CHANGE_PROJECTION = Collections.singletonList(Aggregates.project(
+            Projections.include("operationType", "ns", "documentKey", "fullDocument." + PrideArchiveField.ACCESSION)));
+
+    private final Map<String, List<WeightedCache<String, ?>>> caches = new ConcurrentHashMap<>();
+    private final Map<String, String> collectionModes = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private ExecutorService watchExecutor;
+
+    @Autowired
+    @Qualifier("archiveMongoTemplate")
+    public void setMongoOperations(MongoTemplate mongoTemplate) {
+        this.mongoOperations = mongoTemplate;
+    }
+
+    @Autowired
+    public void setProjectMongoService(PrideProjectMongoService projectMongoService) {
+        register(PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME, projectMongoService.getProjectCache());
+    }
+
+    @Autowired
+    public void setImportedProjectMongoService(ImportedProjectMongoService importedProjectMongoService) {
+        register(PrideArchiveField.IMPORTED_PROJECTS_COLLECTION_NAME, importedProjectMongoService.getProjectCache());
+    }
+
+    @Autowired
+    public void setNearCache(PrideNearCacheService nearCache) {
+        register(PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, nearCache.getFileCache());
+        register(PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME, nearCache.getMSRunCache());
+    }
+
+    /**
+     * Register a cache of documents by accession, it is invalidated when the documents of the collection are written. The collections
+     * registered after {@link #start()} are not followed.
+     *
+     * @param collectionName collection of the cached documents
+     * @param cache          cache by accession
+     */
+    public void register(String collectionName, WeightedCache<String, ?> cache) {
+        caches.computeIfAbsent(collectionName, x -> new CopyOnWriteArrayList<>()).add(cache);
+    }
+
+    /**
+     * Start following the registered collections, one thread by collection.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || running)
+            return;
+        if (!MODE_AUTO.equals(mode) && !MODE_CHANGE_STREAM.equals(mode) && !MODE_POLLING.equals(mode))
+            throw new IllegalArgumentException("The cache invalidation mode is not supported -- " + mode);
+        Set<String> followed = getEnabledCollections();
+        if (followed.isEmpty()) {
+            log.info("The cache invalidation is enabled but all the caches are disabled, no collection is followed");
+            return;
+        }
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        watchExecutor = Executors.newFixedThreadPool(followed.size(), runnable -> {
+            Thread thread = new Thread(runnable, "pride-cache-invalidation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String collectionName : followed)
+            watchExecutor.submit(() -> follow(collectionName));
+        log.info("The caches of the collections " + followed + " are invalidated by the writes of other processes");
+    }
+
+    /**
+     * Collections with at least one enabled cache, the other collections are not followed.
+     *
+     * @return collection names
+     */
+    Set<String> getEnabledCollections() {
+        Set<String> enabledCollections = new TreeSet<>();
+        caches.forEach((collectionName, collectionCaches) -> {
+            if (collectionCaches.stream().anyMatch(x -> x.getMaxWeight() > 0))
+                enabledCollections.add(collectionName);
+        });
+        return enabledCollections;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (watchExecutor != null)
+            watchExecutor.shutdownNow();
+    }
+
+    /**
+     * How every collection is followed, change-stream or polling.
+     *
+     * @return mode by collection name
+     */
+    public Map<String, String> getCollectionModes() {
+        return Collections.unmodifiableMap(collectionModes);
+    }
+
+    /**
+     * Apply one change of a collection to the caches. The counts of the collection are always discarded, the inserted documents were not
+     * cached, an update or replace evicts the accession and any other change (or a change without accession) clears the caches.
+     *
+     * @param collectionName collection name
+     * @param operationType  type of change
+     * @param accession      accession of the document, null if it is not known
+     */
+    void onChange(String collectionName, OperationType operationType, String accession) {
+        FilterCountCache.getDefault().invalidate(collectionName);
+        if (operationType == OperationType.INSERT)
+            return;
+        List<WeightedCache<String, ?>> collectionCaches = caches.getOrDefault(collectionName, Collections.emptyList());
+        if (accession != null && (operationType == OperationType.UPDATE || operationType == OperationType.REPLACE))
+            collectionCaches.forEach(x -> x.invalidate(accession));
+        else
+            collectionCaches.forEach(WeightedCache::clear);
+    }
+
+    private void follow(String collectionName) {
+        MongoCollection<Document> collection = mongoOperations.getCollection(collectionName);
+        if (!MODE_POLLING.equals(mode) && watchChanges(collectionName, collection))
+            return;
+        pollUpdates(collectionName, collection);
+    }
+
+    /**
+     * Tail the change stream of a collection until the service is stopped.
+     *
+     * @return false if the change stream could not be opened and the collection must be polled
+     */
+    private boolean watchChanges(String collectionName, MongoCollection<Document> collection) {
+        BsonDocument resumeToken = null;
+        boolean opened = false;
+        while (running) {
+            ChangeStreamIterable<Document> changeStream = collection.watch(CHANGE_PROJECTION).fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null)
+                changeStream = changeStream.resumeAfter(resumeToken);
+            boolean streamOpened = false;
+            try (MongoCursor<ChangeStreamDocument<Document>> cursor = changeStream.iterator()) {
+                streamOpened = true;
+                if (!opened) {
+                    opened = true;
+                    collectionModes.put(collectionName, MODE_CHANGE_STREAM);
+                    log.info("Following the change stream of the collection -- " + collectionName);
+                }
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null)
+                        continue;
+                    resumeToken = change.getResumeToken();
+                    Document document = change.getFullDocument();
+                    onChange(collectionName, change.getOperationType(), (document != null) ? document.getString(PrideArchiveField.ACCESSION) : null);
+                }
+            } catch (MongoException | UnsupportedOperationException ex) {
+                if (!running)
+                    return true;
+                if (!opened && MODE_AUTO.equals(mode)) {
+                    log.info("Change streams are not available for the collection -- " + collectionName + ", polling " + PrideArchiveField.UPDATED_DATE
+                            + " instead -- " + ex.getMessage());
+                    return false;
+                }
+                // The changes made while the stream was broken are unknown
+                onChange(collectionName, OperationType.INVALIDATE, null);
+                log.warn("The change stream of the collection -- " + collectionName + " has failed, it is opened again in "
+                        + retryIntervalMillis + " ms -- " + ex.getMessage());
+                // If the stream can not be resumed the token is not in the oplog any more, the stream starts again from now
+                if (!streamOpened)
+                    resumeToken = null;
+                if (!sleep(retryIntervalMillis))
+                    return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Poll the documents whose updatedDate is equal or greater than the last one seen. The accessions already seen with the last date are
+     * skipped, so a document is only invalidated once for every update.
+     */
+    private void pollUpdates(String collectionName, MongoCollection<Document> collection) {
+        if (!isUpdatedDateIndexed(collectionName)) {
+            log.warn("The collection -- " + collectionName + " has no index on " + PrideArchiveField.UPDATED_DATE
+                    + ", it is not polled and its caches only rely on the expiration");
+            return;
+        }
+        collectionModes.put(collectionName, MODE_POLLING);
+        Date since = null;
+        Set<String> seenAtSince = new HashSet<>();
+        while (running) {
+            try {
+                if (since == null) {
+                    Document last = collection.find(Filters.exists(PrideArchiveField.UPDATED_DATE))
+                            .projection(Projections.include(PrideArchiveField.UPDATED_DATE))
+                            .sort(Sorts.descending(PrideArchiveField.UPDATED_DATE)).limit(1).first();
+                    since = (last != null) ? last.getDate(PrideArchiveField.UPDATED_DATE) : new Date(0);
+                }
+                Date lastSince = since;
+                for (Document updated : collection.find(Filters.gte(PrideArchiveField.UPDATED_DATE, lastSince))
+                        .projection(Projections.include(PrideArchiveField.ACCESSION, PrideArchiveField.UPDATED_DATE))
+                        .sort(Sorts.ascending(PrideArchiveField.UPDATED_DATE))) {
+                    String accession = updated.getString(PrideArchiveField.ACCESSION);
+                    Date updatedDate = updated.getDate(PrideArchiveField.UPDATED_DATE);
+                    if (updatedDate.after(since)) {
+                        since = updatedDate;
+                        seenAtSince.clear();
+                    }
+                    if (updatedDate.equals(lastSince) && seenAtSince.contains(accession))
+                        continue;
+                    if (updatedDate.equals(since))
+                        seenAtSince.add(accession);
+                    onChange(collectionName, OperationType.UPDATE, accession);
+                }
+            } catch (MongoException ex) {
+                if (!running)
+                    return;
+                log.error("The updates of the collection -- " + collectionName + " can not be polled -- " + ex.getMessage());
+                onChange(collectionName, OperationType.INVALIDATE, null);
+            }
+            if (!sleep(pollIntervalMillis))
+                return;
+        }
+    }
+
+    private boolean isUpdatedDateIndexed(String collectionName) {
+        for (IndexInfo index : mongoOperations.indexOps(collectionName).getIndexInfo())
+            if (!index.getIndexFields().isEmpty() && PrideArchiveField.UPDATED_DATE.equals(index.getIndexFields().get(0).getKey()))
+                return true;
+        return false;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
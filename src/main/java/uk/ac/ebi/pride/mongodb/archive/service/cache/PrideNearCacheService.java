@@ -0,0 +1,99 @@
+package uk.ac.ebi.pride.mongodb.archive.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.utils.WeightedCache;
+
+import java.util.Collection;
+
+/**
+ * The {@link PrideNearCacheService} keeps in memory the Files and MSRuns read by accession, for the clients that read the same accessions
+ * many times (downloads, QC). Both caches are bounded by the approximate size of the documents and their entries expire after a time
+ * (pride.mongodb.near-cache.ttl-millis). The caches are disabled by default, they are enabled with
+ * pride.mongodb.near-cache.files.max-weight-bytes and pride.mongodb.near-cache.msruns.max-weight-bytes.
+ *
+ * The writes made through the File and MSRun services evict the documents they change, the expiration bounds the age of the documents
+ * changed by other processes.
+ */
+@Service
+@Slf4j
+public class PrideNearCacheService {
+
+    /** Default time after which a cached File or MSRun is read again from the database **/
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+    private final WeightedCache<String, MongoPrideFile> fileCache = new WeightedCache<>(0, NearCacheWeigher::weigh);
+    private final WeightedCache<String, MongoPrideMSRun> msRunCache = new WeightedCache<>(0, NearCacheWeigher::weigh);
+
+    public PrideNearCacheService() {
+        setTtlMillis(DEFAULT_TTL_MILLIS);
+    }
+
+    @Value("${pride.mongodb.near-cache.files.max-weight-bytes:0}")
+    public void setFileCacheMaxWeight(long maxWeight) {
+        fileCache.setMaxWeight(maxWeight);
+    }
+
+    @Value("${pride.mongodb.near-cache.msruns.max-weight-bytes:0}")
+    public void setMSRunCacheMaxWeight(long maxWeight) {
+        msRunCache.setMaxWeight(maxWeight);
+    }
+
+    @Value("${pride.mongodb.near-cache.ttl-millis:300000}")
+    public void setTtlMillis(long ttlMillis) {
+        fileCache.setExpireAfterWriteMillis(ttlMillis);
+        msRunCache.setExpireAfterWriteMillis(ttlMillis);
+    }
+
+    public boolean isFileCacheEnabled() {
+        return fileCache.getMaxWeight() > 0;
+    }
+
+    public boolean isMSRunCacheEnabled() {
+        return msRunCache.getMaxWeight() > 0;
+    }
+
+    /**
+     * Cache of the Files by accession, with its hit, miss, eviction, invalidation and expiration counts.
+     *
+     * @return File cache
+     */
+    public WeightedCache<String, MongoPrideFile> getFileCache() {
+        return fileCache;
+    }
+
+    /**
+     * Cache of the MSRuns by accession, with its hit, miss, eviction, invalidation and expiration counts.
+     *
+     * @return MSRun cache
+     */
+    public WeightedCache<String, MongoPrideMSRun> getMSRunCache() {
+        return msRunCache;
+    }
+
+    public void invalidateFiles(Collection<String> fileAccessions) {
+        fileAccessions.forEach(fileCache::invalidate);
+    }
+
+    public void invalidateMSRuns(Collection<String> msRunAccessions) {
+        msRunAccessions.forEach(msRunCache::invalidate);
+    }
+
+    /**
+     * Remove all the Files and MSRuns, it is used when documents are removed without knowing their accessions (for example all the
+     * documents of a project).
+     */
+    public void clear() {
+        fileCache.clear();
+        msRunCache.clear();
+        log.debug("The near cache of Files and MSRuns has been cleared");
+    }
+
+    @Override
+    public String toString() {
+        return "PrideNearCacheService{files=" + fileCache + ", msRuns=" + msRunCache + "}";
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.ebi.pride.mongodb.archive.service.detail;
+
+import lombok.Data;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.sample.MongoISampleMSRunRow;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detail of a project fetched by {@link PrideProjectDetailService}. A part that failed or did not finish in time is empty (null for the
+ * project) and its error is in {@link #getFailures()}, the other parts are still returned. The parts that did not finish in time while their
+ * query was running are in {@link #getAbandoned()}, their queries keep running on the server.
+ */
+@Data
+public class PrideProjectDetail {
+
+    private final String projectAccession;
+
+    private MongoPrideProject project;
+    private List<MongoPrideFile> files = Collections.emptyList();
+    private List<MongoPrideMSRun> msRuns = Collections.emptyList();
+    private List<MongoPrideAssay> assays = Collections.emptyList();
+    private List<MongoISampleMSRunRow> samples = Collections.emptyList();
+    private List<MongoPrideSdrf> sdrf = Collections.emptyList();
+
+    private final Map<ProjectDetailPart, Throwable> failures = Collections.synchronizedMap(new EnumMap<>(ProjectDetailPart.class));
+
+    private final Set<ProjectDetailPart> abandoned = Collections.synchronizedSet(EnumSet.noneOf(ProjectDetailPart.class));
+
+    private final Map<ProjectDetailPart, Long> partTimesMillis = Collections.synchronizedMap(new EnumMap<>(ProjectDetailPart.class));
+
+    private long totalTimeMillis;
+
+    void recordFailure(ProjectDetailPart part, Throwable failure) {
+        failures.put(part, failure);
+    }
+
+    void recordAbandoned(ProjectDetailPart part) {
+        abandoned.add(part);
+    }
+
+    void recordPart(ProjectDetailPart part, long millis) {
+        partTimesMillis.put(part, millis);
+    }
+
+    /**
+     * @return true if all the requested parts have been fetched
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public boolean isFailed(ProjectDetailPart part) {
+        return failures.containsKey(part);
+    }
+
+    @Override
+    public String toString() {
+        return "Project " + projectAccession + " detail fetched in " + totalTimeMillis + " ms -- parts (ms): " + partTimesMillis
+                + (failures.isEmpty() ? "" : " -- failed: " + failures.keySet())
+                + (abandoned.isEmpty() ? "" : " -- abandoned while running: " + abandoned);
+    }
+}
@@ -0,0 +1,272 @@
+package uk.ac.ebi.pride.mongodb.archive.service.detail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.sample.MongoISampleMSRunRow;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+import uk.ac.ebi.pride.mongodb.archive.service.assays.PrideAssayMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.msruns.PrideMsRunMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.samples.PrideSampleMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.sdrf.PrideSdrfMongoService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The {@link PrideProjectDetailService} fetches everything that is shown in the page of a project (project, Files, MSRuns, assays, samples
+ * and SDRF). The parts are read from different collections, so all the queries are sent at the same time on a bounded executor and the
+ * time of the page is the time of the slowest query. Every part has a timeout; a part that fails or is too slow is reported in the
+ * {@link PrideProjectDetail} and the other parts are returned.
+ *
+ * Cancelling a {@link CompletableFuture} does not interrupt its thread and the driver has no way to stop a query that has been sent, so a
+ * part that times out while its query is running is only abandoned: the query keeps running on the server and holds its executor thread
+ * until it finishes. The abandoned parts are listed in the {@link PrideProjectDetail} and the abandoned queries that are still running are
+ * counted by {@link #getAbandonedQueries()}.
+ */
+@Service
+@Slf4j
+public class PrideProjectDetailService {
+
+    final PrideProjectMongoService projectMongoService;
+    final PrideFileMongoService fileMongoService;
+    final PrideMsRunMongoService msRunMongoService;
+    final PrideAssayMongoService assayMongoService;
+    final PrideSampleMongoService sampleMongoService;
+    final PrideSdrfMongoService sdrfMongoService;
+
+    @Value("${pride.mongodb.project-detail.threads:12}")
+    int detailThreads = 12;
+
+    @Value("${pride.mongodb.project-detail.queue-size:120}")
+    int detailQueueSize = 120;
+
+    @Value("${pride.mongodb.project-detail.timeout-millis:5000}")
+    long defaultTimeoutMillis = 5000;
+
+    private final Map<ProjectDetailPart, Long> partTimeoutsMillis = Collections.synchronizedMap(new EnumMap<>(ProjectDetailPart.class));
+
+    private volatile ThreadPoolExecutor detailExecutor;
+
+    /** Queries of abandoned parts that are still running **/
+    private final AtomicInteger abandonedQueries = new AtomicInteger();
+
+    /** States of the query of a part **/
+    private static final int PART_QUEUED = 0;
+    private static final int PART_RUNNING = 1;
+    private static final int PART_DONE = 2;
+    private static final int PART_ABANDONED = 3;
+
+    /**
+     * Query of one part sent to the executor, with the state used to know if the query was running when its part has been abandoned.
+     */
+    private static final class PartQuery<T> {
+        final CompletableFuture<T> future;
+        final AtomicInteger state;
+
+        PartQuery(CompletableFuture<T> future, AtomicInteger state) {
+            this.future = future;
+            this.state = state;
+        }
+    }
+
+    @Autowired
+    public PrideProjectDetailService(PrideProjectMongoService projectMongoService, PrideFileMongoService fileMongoService,
+                                     PrideMsRunMongoService msRunMongoService, PrideAssayMongoService assayMongoService,
+                                     PrideSampleMongoService sampleMongoService, PrideSdrfMongoService sdrfMongoService) {
+        this.projectMongoService = projectMongoService;
+        this.fileMongoService = fileMongoService;
+        this.msRunMongoService = msRunMongoService;
+        this.assayMongoService = assayMongoService;
+        this.sampleMongoService = sampleMongoService;
+        this.sdrfMongoService = sdrfMongoService;
+    }
+
+    @PostConstruct
+    public synchronized void initExecutor() {
+        if (detailExecutor != null)
+            return;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // When the queue is full the part fails at once, a page never waits for the parts of other pages.
+        detailExecutor = new ThreadPoolExecutor(detailThreads, detailThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(detailQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "pride-project-detail-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        detailExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (detailExecutor != null)
+            detailExecutor.shutdown();
+    }
+
+    /**
+     * Timeout of one part, counted from the start of the fetch. The parts without timeout use the default one.
+     *
+     * @param part          part of the detail
+     * @param timeoutMillis timeout in milliseconds
+     */
+    public void setPartTimeout(ProjectDetailPart part, long timeoutMillis) {
+        if (timeoutMillis < 1)
+            throw new IllegalArgumentException("The timeout must be positive -- " + part + " " + timeoutMillis);
+        partTimeoutsMillis.put(part, timeoutMillis);
+    }
+
+    /**
+     * Number of queries of abandoned parts (the part timed out) that are still running. They keep a thread of the executor and a query
+     * on the server until they finish.
+     *
+     * @return abandoned queries still running
+     */
+    public int getAbandonedQueries() {
+        return abandonedQueries.get();
+    }
+
+    /**
+     * Fetch all the parts of the detail of a project.
+     *
+     * @param accession project accession
+     * @return PrideProjectDetail
+     */
+    public PrideProjectDetail findByAccession(String accession) {
+        return findByAccession(accession, EnumSet.allOf(ProjectDetailPart.class));
+    }
+
+    /**
+     * Fetch some parts of the detail of a project at the same time. The method returns when all the parts have finished or their timeouts
+     * have expired; the parts that are not requested are empty and they are not reported as failures.
+     *
+     * @param accession project accession
+     * @param parts     parts to fetch
+     * @return PrideProjectDetail
+     */
+    public PrideProjectDetail findByAccession(String accession, Set<ProjectDetailPart> parts) {
+        if (detailExecutor == null)
+            initExecutor();
+        PrideProjectDetail detail = new PrideProjectDetail(accession);
+        long start = System.currentTimeMillis();
+
+        PartQuery<MongoPrideProject> project = submit(detail, parts, ProjectDetailPart.PROJECT, start,
+                () -> projectMongoService.findByAccession(accession).orElse(null));
+        PartQuery<List<MongoPrideFile>> files = submit(detail, parts, ProjectDetailPart.FILES, start,
+                () -> fileMongoService.findFilesByProjectAccession(accession));
+        PartQuery<List<MongoPrideMSRun>> msRuns = submit(detail, parts, ProjectDetailPart.MSRUNS, start,
+                () -> msRunMongoService.getMSRunsByProject(accession));
+        PartQuery<List<MongoPrideAssay>> assays = submit(detail, parts, ProjectDetailPart.ASSAYS, start,
+                () -> assayMongoService.findAssayByProjectAccession(accession));
+        PartQuery<List<MongoISampleMSRunRow>> samples = submit(detail, parts, ProjectDetailPart.SAMPLES, start,
+                () -> sampleMongoService.getSamplesMRunProjectAccession(accession));
+        PartQuery<List<MongoPrideSdrf>> sdrf = submit(detail, parts, ProjectDetailPart.SDRF, start,
+                () -> sdrfMongoService.findByProjectAccession(accession));
+
+        detail.setProject(await(detail, ProjectDetailPart.PROJECT, project, start, null));
+        detail.setFiles(await(detail, ProjectDetailPart.FILES, files, start, Collections.emptyList()));
+        detail.setMsRuns(await(detail, ProjectDetailPart.MSRUNS, msRuns, start, Collections.emptyList()));
+        detail.setAssays(await(detail, ProjectDetailPart.ASSAYS, assays, start, Collections.emptyList()));
+        detail.setSamples(await(detail, ProjectDetailPart.SAMPLES, samples, start, Collections.emptyList()));
+        detail.setSdrf(await(detail, ProjectDetailPart.SDRF, sdrf, start, Collections.emptyList()));
+
+        detail.setTotalTimeMillis(System.currentTimeMillis() - start);
+        if (!detail.isComplete())
+            log.warn("The detail of the project -- " + accession + " is incomplete -- " + detail);
+        return detail;
+    }
+
+    /**
+     * Send the query of a part to the executor, null if the part has not been requested. If the executor is full the part fails at once.
+     */
+    private <T> PartQuery<T> submit(PrideProjectDetail detail, Set<ProjectDetailPart> parts, ProjectDetailPart part, long start,
+                                    Supplier<T> query) {
+        if (!parts.contains(part))
+            return null;
+        AtomicInteger state = new AtomicInteger(PART_QUEUED);
+        try {
+            return new PartQuery<>(CompletableFuture.supplyAsync(() -> {
+                if (!state.compareAndSet(PART_QUEUED, PART_RUNNING))
+                    return null;
+                try {
+                    return query.get();
+                } finally {
+                    long millis = System.currentTimeMillis() - start;
+                    if (state.compareAndSet(PART_RUNNING, PART_DONE)) {
+                        detail.recordPart(part, millis);
+                    } else {
+                        abandonedQueries.decrementAndGet();
+                        log.info("The abandoned " + part + " of the project -- " + detail.getProjectAccession() + " has finished in " + millis + " ms");
+                    }
+                }
+            }, detailExecutor), state);
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(ex);
+            return new PartQuery<>(rejected, state);
+        }
+    }
+
+    /**
+     * Wait for a part until its timeout (counted from the start of the fetch). The error of a failed part is recorded and the fallback value
+     * is returned.
+     */
+    private <T> T await(PrideProjectDetail detail, ProjectDetailPart part, PartQuery<T> query, long start, T fallback) {
+        if (query == null)
+            return fallback;
+        CompletableFuture<T> future = query.future;
+        long timeout = partTimeoutsMillis.getOrDefault(part, defaultTimeoutMillis);
+        long remaining = Math.max(0, start + timeout - System.currentTimeMillis());
+        try {
+            T value = future.get(remaining, TimeUnit.MILLISECONDS);
+            return (value != null) ? value : fallback;
+        } catch (TimeoutException ex) {
+            abandon(detail, part, query);
+            detail.recordFailure(part, ex);
+            log.warn("The " + part + " of the project -- " + detail.getProjectAccession() + " did not finish in " + timeout + " ms");
+        } catch (ExecutionException ex) {
+            detail.recordFailure(part, ex.getCause());
+            log.error("The " + part + " of the project -- " + detail.getProjectAccession() + " has failed -- " + ex.getCause().getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            abandon(detail, part, query);
+            detail.recordFailure(part, ex);
+        }
+        return fallback;
+    }
+
+    /**
+     * Stop waiting for a part. A query still queued is not run, a query already running can not be stopped and it is counted as abandoned
+     * until it finishes.
+     */
+    private void abandon(PrideProjectDetail detail, ProjectDetailPart part, PartQuery<?> query) {
+        query.future.cancel(false);
+        if (query.state.compareAndSet(PART_RUNNING, PART_ABANDONED)) {
+            abandonedQueries.incrementAndGet();
+            detail.recordAbandoned(part);
+        } else {
+            query.state.compareAndSet(PART_QUEUED, PART_ABANDONED);
+        }
+    }
+}
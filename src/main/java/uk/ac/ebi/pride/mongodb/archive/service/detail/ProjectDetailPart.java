@@ -0,0 +1,15 @@
+package uk.ac.ebi.pride.mongodb.archive.service.detail;
+
+/**
+ * Parts of the detail of a project fetched by {@link PrideProjectDetailService}. Every part is read from its own collection and they do not
+ * depend on each other.
+ */
+public enum ProjectDetailPart {
+
+    PROJECT,
+    FILES,
+    MSRUNS,
+    ASSAYS,
+    SAMPLES,
+    SDRF
+}
@@ -0,0 +1,103 @@
+package uk.ac.ebi.pride.mongodb.archive.service.files;
+
+import java.util.*;
+
+/**
+ * Compact, read-only index from file checksums to the Files (and the projects of those Files) that hold the same content. The index is
+ * built from one query by {@link PrideFileMongoService#findFilesByChecksums(Collection)}; the file and project accessions are stored once
+ * in arrays and shared between all the checksums that reference them.
+ */
+public class FileChecksumIndex {
+
+    private static final String[] NO_ACCESSIONS = new String[0];
+
+    /** checksum -> accessions of the Files with that checksum **/
+    private final Map<String, String[]> filesByChecksum;
+
+    /** file accession -> project accessions of the File **/
+    private final Map<String, String[]> projectsByFile;
+
+    private FileChecksumIndex(Map<String, String[]> filesByChecksum, Map<String, String[]> projectsByFile) {
+        this.filesByChecksum = filesByChecksum;
+        this.projectsByFile = projectsByFile;
+    }
+
+    /**
+     * Check if any File in the database has the given checksum.
+     *
+     * @param checksum checksum (or submitter checksum) of a File
+     * @return true if the content is already stored
+     */
+    public boolean contains(String checksum) {
+        return filesByChecksum.containsKey(checksum);
+    }
+
+    /**
+     * Accessions of the Files with the given checksum.
+     *
+     * @param checksum checksum (or submitter checksum) of a File
+     * @return File accessions, empty if the checksum is not found
+     */
+    public List<String> getFileAccessions(String checksum) {
+        return Collections.unmodifiableList(Arrays.asList(filesByChecksum.getOrDefault(checksum, NO_ACCESSIONS)));
+    }
+
+    /**
+     * Accessions of the projects that hold a File with the given checksum.
+     *
+     * @param checksum checksum (or submitter checksum) of a File
+     * @return Project accessions, empty if the checksum is not found
+     */
+    public Set<String> getProjectAccessions(String checksum) {
+        Set<String> projects = new TreeSet<>();
+        for (String fileAccession : filesByChecksum.getOrDefault(checksum, NO_ACCESSIONS))
+            projects.addAll(Arrays.asList(projectsByFile.getOrDefault(fileAccession, NO_ACCESSIONS)));
+        return projects;
+    }
+
+    /**
+     * Checksums found in the database.
+     *
+     * @return checksums
+     */
+    public Set<String> getChecksums() {
+        return Collections.unmodifiableSet(filesByChecksum.keySet());
+    }
+
+    public int size() {
+        return filesByChecksum.size();
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder that de-duplicates the project accessions, the same project accession String is shared by all the Files of a project.
+     */
+    static class Builder {
+
+        private final Map<String, List<String>> filesByChecksum = new HashMap<>();
+        private final Map<String, String[]> projectsByFile = new HashMap<>();
+        private final Map<String, String> projectAccessions = new HashMap<>();
+
+        Builder add(String checksum, String fileAccession, Collection<String> fileProjectAccessions) {
+            List<String> files = filesByChecksum.computeIfAbsent(checksum, key -> new ArrayList<>(1));
+            if (!files.contains(fileAccession))
+                files.add(fileAccession);
+            if (!projectsByFile.containsKey(fileAccession)) {
+                String[] projects = (fileProjectAccessions == null) ? NO_ACCESSIONS : fileProjectAccessions.stream()
+                        .map(x -> projectAccessions.computeIfAbsent(x, key -> key))
+                        .toArray(String[]::new);
+                projectsByFile.put(fileAccession, projects);
+            }
+            return this;
+        }
+
+        FileChecksumIndex build() {
+            Map<String, String[]> checksums = new HashMap<>(filesByChecksum.size() * 4 / 3 + 1);
+            filesByChecksum.forEach((checksum, files) -> checksums.put(checksum, files.toArray(new String[0])));
+            return new FileChecksumIndex(checksums, new HashMap<>(projectsByFile));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package uk.ac.ebi.pride.mongodb.archive.service.files;
+
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+
+/**
+ * The {@link FileIngestionSink} receives the results of the streaming ingestion of {@link PrideFileMongoService}. The results are
+ * reported window by window, the ingestion never keeps more than one write window in memory, the sink decides what should be kept.
+ */
+@FunctionalInterface
+public interface FileIngestionSink {
+
+    /**
+     * A new File has been inserted in the database.
+     *
+     * @param submittedFile The File submitted to the ingestion
+     * @param insertedFile  The File stored in the database
+     */
+    void onFileInserted(MongoPrideFile submittedFile, MongoPrideFile insertedFile);
+
+    /**
+     * The File was already in the database with the same checksum and it has been skipped.
+     *
+     * @param submittedFile The File submitted to the ingestion
+     */
+    default void onFileSkipped(MongoPrideFile submittedFile) {
+    }
+
+    /**
+     * A window of MSRuns has been written.
+     *
+     * @param insertedMsRuns Number of new MSRuns inserted
+     * @param skippedMsRuns  Number of MSRuns that were already in the database
+     */
+    default void onMsRunWindowCompleted(int insertedMsRuns, int skippedMsRuns) {
+    }
+
+    /**
+     * A window of Files has been written.
+     *
+     * @param windowIndex Position of the window in the ingestion (starting with 0)
+     * @param windowSize  Number of Files in the window
+     */
+    default void onFileWindowCompleted(int windowIndex, int windowSize) {
+    }
+
+    /**
+     * A window of Files has been skipped because the ingestion journal records it as committed by a previous run of the load.
+     *
+     * @param windowIndex Position of the window in the ingestion (starting with 0)
+     * @param windowSize  Number of Files in the window
+     */
+    default void onFileWindowSkipped(int windowIndex, int windowSize) {
+    }
+}
@@ -1,25 +1,48 @@
 package uk.ac.ebi.pride.mongodb.archive.service.files;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
 import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
 import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileSummary;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileView;
 import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
 import uk.ac.ebi.pride.mongodb.archive.repo.files.PrideFileMongoRepository;
 import uk.ac.ebi.pride.mongodb.archive.repo.msruns.PrideMSRunMongoRepository;
+import uk.ac.ebi.pride.mongodb.archive.service.cache.PrideNearCacheService;
+import uk.ac.ebi.pride.mongodb.archive.service.ingestion.PrideIngestionJournalService;
+import uk.ac.ebi.pride.mongodb.utils.AccessionBlockAllocator;
 import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.count.CountStrategy;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCountCache;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This Service allows to handle the Project File Repositories.
@@ -37,18 +60,58 @@ public class PrideFileMongoService {
 
     MongoOperations mongoOperations;
 
+    /** Number of file accessions leased from the counter collection in every round trip **/
+    @Value("${pride.mongodb.file.accession.block-size:1000}")
+    int accessionBlockSize = 1000;
+
+    AccessionBlockAllocator fileAccessionAllocator;
+
+    /** Number of documents sent to MongoDB in every bulk write **/
+    @Value("${pride.mongodb.bulk.batch-size:1000}")
+    int bulkBatchSize = 1000;
+
+    /** Journal used to resume the loads of a submission **/
+    PrideIngestionJournalService ingestionJournal;
+
+    /** Near cache of the Files and MSRuns read by accession, disabled until the Spring bean is injected **/
+    PrideNearCacheService nearCache = new PrideNearCacheService();
+
     @Autowired
     @Qualifier("archiveMongoTemplate")
     public void setMongoOperations(MongoTemplate mongoTemplate) {
         this.mongoOperations = mongoTemplate;
     }
 
+    @Autowired
+    public void setIngestionJournal(PrideIngestionJournalService ingestionJournal) {
+        this.ingestionJournal = ingestionJournal;
+    }
+
+    @Autowired
+    public void setNearCache(PrideNearCacheService nearCache) {
+        this.nearCache = nearCache;
+    }
+
     @Autowired
     public PrideFileMongoService(PrideFileMongoRepository fileRepository, PrideMSRunMongoRepository msRunMongoRepository) {
         this.fileRepository = fileRepository;
         this.msRunMongoRepository = msRunMongoRepository;
     }
 
+    @PostConstruct
+    public void initAccessionAllocator() {
+        fileAccessionAllocator = new AccessionBlockAllocator(mongoOperations, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, accessionBlockSize);
+    }
+
+    /**
+     * Release the file accession allocator, the number of leased accessions that have not been used is reported in the log.
+     */
+    @PreDestroy
+    public void closeAccessionAllocator() {
+        if (fileAccessionAllocator != null)
+            fileAccessionAllocator.close();
+    }
+
     /*
      * Return an accession for inserting
      * */
@@ -57,8 +120,21 @@ public class PrideFileMongoService {
         return finalNumber;
     }
 
+    /**
+     * Return a new File accession (PXF) from the block of accessions leased by this service. The accessions
+     * are unique across all the services that use the same database.
+     *
+     * @return File accession
+     */
+    public String nextFileAccession() {
+        NumberFormat formatter = new DecimalFormat("00000000000");
+        return "PXF" + formatter.format(fileAccessionAllocator.next());
+    }
+
     public MongoPrideFile save(MongoPrideFile prideFile) {
-        return fileRepository.save(prideFile);
+        prideFile = fileRepository.save(prideFile);
+        nearCache.getFileCache().invalidate(prideFile.getAccession());
+        return prideFile;
     }
 
     /**
@@ -68,10 +144,8 @@ public class PrideFileMongoService {
      * @return MongoPrideFile
      */
     public MongoPrideFile insert(MongoPrideFile prideFile) {
-        NumberFormat formatter = new DecimalFormat("00000000000");
         if (prideFile.getAccession() == null) {
-            String accession = "PXF" + formatter.format(PrideMongoUtils.getNextSizedSequence(mongoOperations, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, 1));
-            prideFile.setAccession(accession);
+            prideFile.setAccession(nextFileAccession());
             prideFile = fileRepository.save(prideFile);
             log.debug("A new project has been saved into MongoDB database with Accession -- " + prideFile.getAccession());
         } else
@@ -95,6 +169,7 @@ public class PrideFileMongoService {
                 for (MongoPrideMSRun msRunFile : msRunRawFiles) {
                     try {
                         msRunMongoRepository.save(msRunFile);
+                        nearCache.getMSRunCache().invalidate(msRunFile.getAccession());
                         log.info("A new MSRun has been saved into MongoDB database with Accession -- " + msRunFile.getAccession());
                     } catch (org.springframework.dao.DuplicateKeyException ex) {
                         Optional<MongoPrideMSRun> dbMsRun = msRunMongoRepository.findMsRunByAccession(msRunFile.getAccession());
@@ -112,10 +187,11 @@ public class PrideFileMongoService {
             for (MongoPrideFile file : prideFiles) {
                 try {
                     insertedFiles.add(new Tuple<>(file, fileRepository.save(file)));
+                    nearCache.getFileCache().invalidate(file.getAccession());
                     log.debug("A new file has been saved into MongoDB database with Accession -- " + file.getAccession());
                 } catch (org.springframework.dao.DuplicateKeyException ex) {
                     Optional<MongoPrideFile> dbFile = fileRepository.findPrideFileByAccession(file.getAccession());
-                    if (dbFile.isPresent() && dbFile.get().getChecksum().equals(file.getChecksum())) {
+                    if (dbFile.isPresent() && Objects.equals(dbFile.get().getChecksum(), file.getChecksum())) {
                         log.info("This File already exists. Accession : " + file.getAccession());
                     } else {
                         throw ex;
@@ -126,6 +202,209 @@ public class PrideFileMongoService {
         return insertedFiles;
     }
 
+    /**
+     * Bulk version of {@link #insertAllFilesAndMsRuns(List, List)}. The MSRuns and Files are sent to MongoDB in unordered bulk writes
+     * of the configured batch size (pride.mongodb.bulk.batch-size). The documents that fail because they are already in the database
+     * are checked together with one query by accession, if the checksum (Files) or the size (MSRuns) of the stored document is different
+     * a {@link DuplicateKeyException} is thrown.
+     *
+     * @param prideFiles    MongoPride File List
+     * @param msRunRawFiles MongoPrideMSRun File List
+     * @return List of Tuple where the key is the submitted File and the value the inserted File.
+     */
+    public List<Tuple<MongoPrideFile, MongoPrideFile>> insertAllFilesAndMsRunsInBulk(List<MongoPrideFile> prideFiles, List<MongoPrideMSRun> msRunRawFiles) {
+        return insertAllFilesAndMsRunsInBulk(prideFiles, msRunRawFiles, bulkBatchSize);
+    }
+
+    /**
+     * Bulk version of {@link #insertAllFilesAndMsRuns(List, List)} using a specific batch size.
+     *
+     * @param prideFiles    MongoPride File List
+     * @param msRunRawFiles MongoPrideMSRun File List
+     * @param batchSize     Number of documents by bulk write
+     * @return List of Tuple where the key is the submitted File and the value the inserted File.
+     */
+    public List<Tuple<MongoPrideFile, MongoPrideFile>> insertAllFilesAndMsRunsInBulk(List<MongoPrideFile> prideFiles, List<MongoPrideMSRun> msRunRawFiles, int batchSize) {
+        List<Tuple<MongoPrideFile, MongoPrideFile>> insertedFiles = new ArrayList<>();
+        if (!prideFiles.isEmpty()) {
+            insertFilesAndMsRuns(prideFiles.iterator(), (msRunRawFiles != null) ? msRunRawFiles.iterator() : null, batchSize,
+                    (submittedFile, insertedFile) -> insertedFiles.add(new Tuple<>(submittedFile, insertedFile)));
+        }
+        return insertedFiles;
+    }
+
+    /**
+     * Streaming version of {@link #insertAllFilesAndMsRunsInBulk(List, List, int)}. The MSRuns and Files are read from the {@link Stream}s
+     * in windows of the given size, every window is written with one unordered bulk write and reported to the {@link FileIngestionSink}
+     * before the next window is read. Only one window is kept in memory, so the heap used does not depend on the number of Files.
+     *
+     * @param prideFiles    Stream of Files
+     * @param msRunRawFiles Stream of MSRuns, it can be null
+     * @param windowSize    Number of documents by write window
+     * @param sink          Sink that receives the results
+     * @return Number of Files inserted
+     */
+    public long insertFilesAndMsRuns(Stream<MongoPrideFile> prideFiles, Stream<MongoPrideMSRun> msRunRawFiles, int windowSize, FileIngestionSink sink) {
+        return insertFilesAndMsRuns(prideFiles.iterator(), (msRunRawFiles != null) ? msRunRawFiles.iterator() : null, windowSize, sink);
+    }
+
+    /**
+     * Streaming version of {@link #insertAllFilesAndMsRunsInBulk(List, List, int)} using {@link Iterator}s, the next window is only
+     * requested from the iterators when the previous one has been written.
+     *
+     * @param prideFiles    Iterator of Files
+     * @param msRunRawFiles Iterator of MSRuns, it can be null
+     * @param windowSize    Number of documents by write window
+     * @param sink          Sink that receives the results
+     * @return Number of Files inserted
+     */
+    public long insertFilesAndMsRuns(Iterator<MongoPrideFile> prideFiles, Iterator<MongoPrideMSRun> msRunRawFiles, int windowSize, FileIngestionSink sink) {
+        return insertFilesAndMsRuns(null, prideFiles, msRunRawFiles, windowSize, sink);
+    }
+
+    /**
+     * Resumable version of {@link #insertFilesAndMsRuns(Iterator, Iterator, int, FileIngestionSink)}. Every window written is recorded as a
+     * checkpoint of the submission in the ingestion journal, when the load is restarted the windows already committed are read from the
+     * iterators and skipped without querying the database. A resumed load must provide the documents in the same order and with the same
+     * window size; the journal of a submission is cleared with {@link PrideIngestionJournalService#clear(String)}.
+     *
+     * @param submission    Submission key of the journal (usually the project accession), if null no journal is kept
+     * @param prideFiles    Iterator of Files
+     * @param msRunRawFiles Iterator of MSRuns, it can be null
+     * @param windowSize    Number of documents by write window
+     * @param sink          Sink that receives the results
+     * @return Number of Files inserted
+     */
+    public long insertFilesAndMsRuns(String submission, Iterator<MongoPrideFile> prideFiles, Iterator<MongoPrideMSRun> msRunRawFiles,
+                                     int windowSize, FileIngestionSink sink) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("The window size must be positive -- " + windowSize);
+        boolean journaled = submission != null && ingestionJournal != null;
+        if (msRunRawFiles != null) {
+            Set<Integer> committed = journaled
+                    ? ingestionJournal.findCommittedBatches(submission, PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME, windowSize)
+                    : Collections.emptySet();
+            int windowIndex = 0;
+            while (msRunRawFiles.hasNext()) {
+                List<MongoPrideMSRun> window = nextWindow(msRunRawFiles, windowSize);
+                if (committed.contains(windowIndex)) {
+                    windowIndex++;
+                    continue;
+                }
+                int inserted = bulkInsertMsRuns(window);
+                if (journaled)
+                    ingestionJournal.commitBatch(submission, PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME, windowIndex, windowSize, inserted, window.size() - inserted);
+                sink.onMsRunWindowCompleted(inserted, window.size() - inserted);
+                windowIndex++;
+            }
+        } else {
+            log.info("No MSRun files available to saveProteinEvidences");
+        }
+
+        Set<Integer> committed = journaled
+                ? ingestionJournal.findCommittedBatches(submission, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, windowSize)
+                : Collections.emptySet();
+        long insertedFiles = 0;
+        int windowIndex = 0;
+        while (prideFiles.hasNext()) {
+            List<MongoPrideFile> window = nextWindow(prideFiles, windowSize);
+            if (committed.contains(windowIndex)) {
+                sink.onFileWindowSkipped(windowIndex++, window.size());
+                continue;
+            }
+            int inserted = bulkInsertFiles(window, sink);
+            insertedFiles += inserted;
+            if (journaled)
+                ingestionJournal.commitBatch(submission, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, windowIndex, windowSize, inserted, window.size() - inserted);
+            sink.onFileWindowCompleted(windowIndex++, window.size());
+        }
+        return insertedFiles;
+    }
+
+    private static <T> List<T> nextWindow(Iterator<T> iterator, int windowSize) {
+        List<T> window = new ArrayList<>(windowSize);
+        while (window.size() < windowSize && iterator.hasNext())
+            window.add(iterator.next());
+        return window;
+    }
+
+    /**
+     * Insert a batch of MSRuns in one unordered bulk write. The MSRuns that are already in the database with the same size are skipped.
+     *
+     * @param msRuns batch of MSRuns
+     * @return Number of MSRuns inserted
+     */
+    private int bulkInsertMsRuns(List<MongoPrideMSRun> msRuns) {
+        Set<Integer> duplicates = Collections.emptySet();
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoPrideMSRun.class).insert(msRuns).execute();
+        } catch (RuntimeException ex) {
+            duplicates = PrideMongoUtils.getDuplicateKeyIndexes(ex);
+        }
+        // Bulk writes do not publish mapping events, the cached counts and entities are discarded here
+        FilterCountCache.getDefault().invalidate(mongoOperations.getCollectionName(MongoPrideMSRun.class));
+        nearCache.invalidateMSRuns(msRuns.stream().map(MongoPrideMSRun::getAccession).collect(Collectors.toList()));
+        if (!duplicates.isEmpty()) {
+            List<MongoPrideMSRun> duplicatedMsRuns = duplicates.stream().map(msRuns::get).collect(Collectors.toList());
+            Query query = new Query(PrideMongoUtils.builQueryByAccessions(duplicatedMsRuns.stream().map(MongoPrideMSRun::getAccession).collect(Collectors.toSet())));
+            query.fields().include(PrideArchiveField.ACCESSION).include("fileSizeBytes");
+            Map<String, MongoPrideMSRun> dbMsRuns = mongoOperations.find(query, MongoPrideMSRun.class).stream()
+                    .collect(Collectors.toMap(MongoPrideMSRun::getAccession, Function.identity(), (a, b) -> a));
+            for (MongoPrideMSRun msRun : duplicatedMsRuns) {
+                MongoPrideMSRun dbMsRun = dbMsRuns.get(msRun.getAccession());
+                if (dbMsRun != null && dbMsRun.getFileSizeBytes() == msRun.getFileSizeBytes())
+                    log.info("This msRunFile already exists. Accession : " + msRun.getAccession());
+                else
+                    throw new DuplicateKeyException("A different MSRun with the same key is already in the database -- " + msRun.getAccession());
+            }
+        }
+        log.info((msRuns.size() - duplicates.size()) + " new MSRuns have been saved into MongoDB database");
+        return msRuns.size() - duplicates.size();
+    }
+
+    /**
+     * Insert a batch of Files in one unordered bulk write. The Files that are already in the database with the same checksum are skipped.
+     *
+     * @param files batch of Files
+     * @param sink  Sink that receives the inserted and skipped Files
+     * @return Number of Files inserted
+     */
+    private int bulkInsertFiles(List<MongoPrideFile> files, FileIngestionSink sink) {
+        // The ids are assigned before the insert, the bulk write do not populate them back in the documents.
+        files.stream().filter(x -> x.getId() == null).forEach(x -> x.setId(new ObjectId()));
+        Set<Integer> duplicates = Collections.emptySet();
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoPrideFile.class).insert(files).execute();
+        } catch (RuntimeException ex) {
+            duplicates = PrideMongoUtils.getDuplicateKeyIndexes(ex);
+        }
+        // Bulk writes do not publish mapping events, the cached counts and entities are discarded here
+        FilterCountCache.getDefault().invalidate(mongoOperations.getCollectionName(MongoPrideFile.class));
+        nearCache.invalidateFiles(files.stream().map(MongoPrideFile::getAccession).collect(Collectors.toList()));
+        if (!duplicates.isEmpty()) {
+            List<MongoPrideFile> duplicatedFiles = duplicates.stream().map(files::get).collect(Collectors.toList());
+            Query query = new Query(PrideMongoUtils.builQueryByAccessions(duplicatedFiles.stream().map(MongoPrideFile::getAccession).collect(Collectors.toSet())));
+            query.fields().include(PrideArchiveField.ACCESSION).include(PrideArchiveField.CHECKSUM);
+            Map<String, MongoPrideFile> dbFiles = mongoOperations.find(query, MongoPrideFile.class).stream()
+                    .collect(Collectors.toMap(MongoPrideFile::getAccession, Function.identity(), (a, b) -> a));
+            for (MongoPrideFile file : duplicatedFiles) {
+                MongoPrideFile dbFile = dbFiles.get(file.getAccession());
+                if (dbFile != null && Objects.equals(dbFile.getChecksum(), file.getChecksum()))
+                    log.info("This File already exists. Accession : " + file.getAccession());
+                else
+                    throw new DuplicateKeyException("A different File with the same key is already in the database -- " + file.getAccession());
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (duplicates.contains(i))
+                sink.onFileSkipped(files.get(i));
+            else
+                sink.onFileInserted(files.get(i), files.get(i));
+        }
+        log.debug((files.size() - duplicates.size()) + " new files have been saved into MongoDB database");
+        return files.size() - duplicates.size();
+    }
+
     /**
      * Number of Files in the Mongo Repository.
      *
@@ -137,22 +416,16 @@ public class PrideFileMongoService {
 
     /**
      * The current function add the following Project accession To the file Accession in the database. If the file is updated in the database
-     * the function return true, if the file can't be updated in the database.
+     * the function return true, if the file can't be updated in the database. The accessions are added in the server with $addToSet, so concurrent
+     * updates of the same File are not lost.
      *
      * @param fileAccession     File Accession
      * @param projectAccessions Project Archive Accession
      * @return True if the File can be updated.
      */
     public boolean addProjectAccessions(String fileAccession, List<String> projectAccessions) {
-        Optional<MongoPrideFile> prideFile = fileRepository.findPrideFileByAccession(fileAccession);
-        if (prideFile.isPresent()) {
-            Set<String> currentProjectAccesions = prideFile.get().getProjectAccessions();
-            if (currentProjectAccesions == null)
-                currentProjectAccesions = new HashSet<>();
-            currentProjectAccesions.addAll(projectAccessions);
-            prideFile.get().setProjectAccessions(currentProjectAccesions);
-            fileRepository.save(prideFile.get());
-            log.info("The following MongoPrideFile -- " + prideFile.get().getAccession() + " has been updated with a new Project Accession -- " + projectAccessions);
+        if (addToSetByAccessions(Collections.singletonList(fileAccession), PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS, projectAccessions) > 0) {
+            log.info("The following MongoPrideFile -- " + fileAccession + " has been updated with a new Project Accession -- " + projectAccessions);
             return true;
         }
         log.error("The following  MongoPrideFile is not in the database -- " + fileAccession);
@@ -161,29 +434,73 @@ public class PrideFileMongoService {
 
 
     /**
-     * The current function add the following Project accession To the file Accession in the database. If the file is updated in the database
-     * the function return true, if the file can't be updated in the database.
+     * The current function add the following Analysis accession To the file Accession in the database. If the file is updated in the database
+     * the function return true, if the file can't be updated in the database. The accessions are added in the server with $addToSet, so concurrent
+     * updates of the same File are not lost.
      *
      * @param fileAccession      File Accession
-     * @param analysisAccessions Project Archive Accession
+     * @param analysisAccessions Analysis Accessions
      * @return True if the File can be updated.
      */
     public boolean addAnalysisAccessions(String fileAccession, List<String> analysisAccessions) {
-        Optional<MongoPrideFile> prideFile = fileRepository.findPrideFileByAccession(fileAccession);
-        if (prideFile.isPresent()) {
-            Set<String> currentAnalysisAccesions = prideFile.get().getAnalysisAccessions();
-            if (currentAnalysisAccesions == null)
-                currentAnalysisAccesions = new HashSet<>();
-            currentAnalysisAccesions.addAll(analysisAccessions);
-            prideFile.get().setProjectAccessions(currentAnalysisAccesions);
-            fileRepository.save(prideFile.get());
-            log.info("The following MongoPrideFile -- " + prideFile.get().getAccession() + " has been updated with a new Analysis Accession -- " + analysisAccessions);
+        if (addToSetByAccessions(Collections.singletonList(fileAccession), PrideArchiveField.EXTERNAL_ANALYSIS_ACCESSIONS, analysisAccessions) > 0) {
+            log.info("The following MongoPrideFile -- " + fileAccession + " has been updated with a new Analysis Accession -- " + analysisAccessions);
             return true;
         }
         log.error("The following  MongoPrideFile is not in the database -- " + fileAccession);
         return false;
     }
 
+    /**
+     * Link a list of Files to the following Project accessions. The Files are updated in the server with one updateMulti by batch of
+     * accessions (pride.mongodb.bulk.batch-size).
+     *
+     * @param fileAccessions    File Accessions
+     * @param projectAccessions Project Archive Accessions
+     * @return Number of Files found in the database
+     */
+    public long addProjectAccessionsToFiles(Collection<String> fileAccessions, Collection<String> projectAccessions) {
+        long updatedFiles = addToSetByAccessions(fileAccessions, PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS, projectAccessions);
+        log.info(updatedFiles + " MongoPrideFiles of " + fileAccessions.size() + " have been updated with the Project Accessions -- " + projectAccessions);
+        return updatedFiles;
+    }
+
+    /**
+     * Link a list of Files to the following Analysis accessions. The Files are updated in the server with one updateMulti by batch of
+     * accessions (pride.mongodb.bulk.batch-size).
+     *
+     * @param fileAccessions     File Accessions
+     * @param analysisAccessions Analysis Accessions
+     * @return Number of Files found in the database
+     */
+    public long addAnalysisAccessionsToFiles(Collection<String> fileAccessions, Collection<String> analysisAccessions) {
+        long updatedFiles = addToSetByAccessions(fileAccessions, PrideArchiveField.EXTERNAL_ANALYSIS_ACCESSIONS, analysisAccessions);
+        log.info(updatedFiles + " MongoPrideFiles of " + fileAccessions.size() + " have been updated with the Analysis Accessions -- " + analysisAccessions);
+        return updatedFiles;
+    }
+
+    /**
+     * Add the values to a Set field of all the Files with the given accessions using $addToSet/$each.
+     *
+     * @param fileAccessions File accessions
+     * @param field          Set field to update
+     * @param values         Values to add
+     * @return Number of Files matched
+     */
+    private long addToSetByAccessions(Collection<String> fileAccessions, String field, Collection<String> values) {
+        if (fileAccessions.isEmpty() || values.isEmpty())
+            return 0;
+        Update update = new Update().addToSet(field).each(values.toArray());
+        long matchedFiles = 0;
+        for (List<String> batch : PrideMongoUtils.partition(new ArrayList<>(fileAccessions), bulkBatchSize)) {
+            UpdateResult result = mongoOperations.updateMulti(new Query(PrideMongoUtils.builQueryByAccessions(batch)), update, MongoPrideFile.class);
+            matchedFiles += result.getMatchedCount();
+        }
+        FilterCountCache.getDefault().invalidate(mongoOperations.getCollectionName(MongoPrideFile.class));
+        nearCache.invalidateFiles(fileAccessions);
+        return matchedFiles;
+    }
+
 
     /**
      * This method provides a way to search Files by different properties. The search Allows only to Filter the File using different properties. in the Ffile
@@ -200,6 +517,60 @@ public class PrideFileMongoService {
 
     }
 
+    /**
+     * Search Files by filter choosing how the total of the search is computed. {@link CountStrategy#CACHED} and {@link CountStrategy#CAPPED}
+     * avoid counting the whole result of broad filters in every request.
+     *
+     * @param filterQuery   Filter query.
+     * @param page          Page to retrieve the Files.
+     * @param countStrategy How the total number of Files is computed.
+     * @return Page containing the files.
+     */
+    public Page<MongoPrideFile> searchFiles(String filterQuery, Pageable page, CountStrategy countStrategy) {
+        List<Triple<String, String, String>> filters = PrideMongoUtils.parseFilterParameters(filterQuery);
+        return fileRepository.filterByAttributes(filters, page, countStrategy);
+    }
+
+    /**
+     * Search Files by filter retrieving only the fields of a view, for example {@link PrideFileView#FILE_LISTING}.
+     *
+     * @param filterQuery Filter query.
+     * @param page        Page to retrieve the Files.
+     * @param view        Fields to retrieve.
+     * @return Page containing read-only projections of the Files.
+     */
+    public Page<PrideFileSummary> searchFiles(String filterQuery, Pageable page, PrideFileView view) {
+        return searchFiles(filterQuery, page, view.getFields());
+    }
+
+    /**
+     * Search Files by filter retrieving only some fields.
+     *
+     * @param filterQuery Filter query.
+     * @param page        Page to retrieve the Files.
+     * @param fields      Properties of {@link PrideFileSummary} to retrieve.
+     * @return Page containing read-only projections of the Files.
+     */
+    public Page<PrideFileSummary> searchFiles(String filterQuery, Pageable page, Collection<String> fields) {
+        List<Triple<String, String, String>> filters = PrideMongoUtils.parseFilterParameters(filterQuery);
+        return fileRepository.filterByAttributes(filters, page, fields);
+    }
+
+    /**
+     * Search Files with keyset pagination. Instead of a page number the client sends the cursor returned with the previous page, the cost
+     * of a page does not depend on how deep it is and the pages do not move when new Files are inserted.
+     *
+     * @param filterQuery Filter query.
+     * @param sort        Sort of the Files, only the first order is used.
+     * @param cursor      Cursor of the previous page, null for the first page.
+     * @param pageSize    Number of Files by page.
+     * @return CursorPage containing the Files and the cursor of the next page.
+     */
+    public CursorPage<MongoPrideFile> searchFiles(String filterQuery, Sort sort, String cursor, int pageSize) {
+        List<Triple<String, String, String>> filters = PrideMongoUtils.parseFilterParameters(filterQuery);
+        return fileRepository.filterByAttributes(filters, sort, cursor, pageSize);
+    }
+
     /**
      * Find by Project Accession the following Files.
      *
@@ -211,6 +582,43 @@ public class PrideFileMongoService {
         return fileRepository.filterByAttributes(filters);
     }
 
+    /**
+     * Find the Files of a project retrieving only the fields of a view.
+     *
+     * @param accession Project Accession
+     * @param view      Fields to retrieve
+     * @return read-only projections of the Files
+     */
+    public List<PrideFileSummary> findFilesByProjectAccession(String accession, PrideFileView view) {
+        List<Triple<String, String, String>> filters = PrideMongoUtils.parseFilterParameters("projectAccessions=all=" + accession);
+        return fileRepository.filterByAttributes(filters, view.getFields());
+    }
+
+    /**
+     * Find which Files (and projects) already hold the content of a batch of checksums. The checksums are matched against the checksum and the
+     * submitter checksum of the Files with one indexed query, and the result is returned as a compact {@link FileChecksumIndex}.
+     *
+     * @param checksums checksums of the Files to look up, null or empty returns an empty index
+     * @return FileChecksumIndex with the checksums found in the database
+     */
+    public FileChecksumIndex findFilesByChecksums(Collection<String> checksums) {
+        FileChecksumIndex.Builder builder = FileChecksumIndex.builder();
+        if (checksums == null)
+            return builder.build();
+        Set<String> requested = checksums.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (requested.isEmpty())
+            return builder.build();
+        for (MongoPrideFile file : fileRepository.findByChecksums(requested)) {
+            if (requested.contains(file.getChecksum()))
+                builder.add(file.getChecksum(), file.getAccession(), file.getProjectAccessions());
+            if (requested.contains(file.getSubmitterFileChecksum()))
+                builder.add(file.getSubmitterFileChecksum(), file.getAccession(), file.getProjectAccessions());
+        }
+        FileChecksumIndex index = builder.build();
+        log.info(index.size() + " of " + requested.size() + " checksums are already stored in MongoDB");
+        return index;
+    }
+
     public List<String> findProjectAccessionsWhereChecksumIsNull() {
         return fileRepository.findProjectAccessionsWhereChecksumIsNull();
     }
@@ -228,13 +636,29 @@ public class PrideFileMongoService {
     }
 
     /**
-     * Find a PRIDE File by the accession of the File
+     * Find a PRIDE File by the accession of the File. The File is read through the near cache when it is enabled, the returned File is a
+     * shallow copy of the cached one ({@link PrideMongoUtils#copyEntity}): its fields and collections can be changed and saved, the elements
+     * of the collections are shared and must not be modified in place.
      *
      * @param fileAccession File accession
      * @return Optional
      */
     public Optional<MongoPrideFile> findByFileAccession(String fileAccession) {
-        return fileRepository.findPrideFileByAccession(fileAccession);
+        MongoPrideFile file = nearCache.getFileCache().get(fileAccession, x -> fileRepository.findPrideFileByAccession(x).orElse(null));
+        return Optional.ofNullable(PrideMongoUtils.copyEntity(file, () -> MongoPrideFile.builder().build()));
+    }
+
+    /**
+     * Load all the Files of a project into the near cache with one query, so the following reads of the Files by accession do not go to
+     * the database. Nothing is loaded if the near cache of Files is disabled.
+     *
+     * @param projectAccession Project accession
+     * @return Number of Files stored in the near cache
+     */
+    public int warmUpProjectFiles(String projectAccession) {
+        int cachedFiles = nearCache.getFileCache().load(() -> findFilesByProjectAccession(projectAccession), MongoPrideFile::getAccession);
+        log.debug(cachedFiles + " files of the project -- " + projectAccession + " have been loaded in the near cache");
+        return cachedFiles;
     }
 
     /**
@@ -252,18 +676,25 @@ public class PrideFileMongoService {
      */
     public void deleteAll() {
         fileRepository.deleteAll();
+        nearCache.getFileCache().clear();
     }
 
+    /**
+     * Delete all the Files of a project with one deleteMany, the Files are not loaded from the database.
+     *
+     * @param accession Project accession
+     * @return True
+     */
     public boolean deleteByProjectAccession(String accession) {
-        List<MongoPrideFile> prideFilesList = fileRepository.findByProjectAccessions(Collections.singletonList(accession));
-        for (MongoPrideFile prideFile : prideFilesList) {
-            fileRepository.delete(prideFile);
-        }
+        DeleteResult result = mongoOperations.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).is(accession)), MongoPrideFile.class);
+        log.info(result.getDeletedCount() + " files of the project -- " + accession + " have been deleted");
+        nearCache.getFileCache().clear();
         return true;
     }
 
     public boolean deleteMongoPrideFile(MongoPrideFile prideFile) {
         fileRepository.delete(prideFile);
+        nearCache.getFileCache().invalidate(prideFile.getAccession());
         return true;
     }
 
@@ -0,0 +1,97 @@
+package uk.ac.ebi.pride.mongodb.archive.service.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.ingestion.MongoIngestionCheckpoint;
+import uk.ac.ebi.pride.mongodb.archive.repo.ingestion.PrideIngestionJournalMongoRepository;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@link PrideIngestionJournalService} keeps the ingestion journal of the loads: one checkpoint by committed batch, submission and
+ * collection. The checkpoints of a submission are read once when a load starts and the batches already committed are skipped.
+ */
+@Service
+@Slf4j
+public class PrideIngestionJournalService {
+
+    final PrideIngestionJournalMongoRepository repository;
+
+    MongoOperations mongoOperations;
+
+    @Autowired
+    public PrideIngestionJournalService(PrideIngestionJournalMongoRepository repository) {
+        this.repository = repository;
+    }
+
+    @Autowired
+    @Qualifier("archiveMongoTemplate")
+    public void setMongoOperations(MongoTemplate mongoTemplate) {
+        this.mongoOperations = mongoTemplate;
+    }
+
+    /**
+     * Return the positions of the batches of a submission that are already committed into a collection. If the batches were committed with a
+     * different batch size the load can not be resumed (the batches would not contain the same documents) and an {@link IllegalStateException}
+     * is thrown.
+     *
+     * @param submission Submission (usually the project accession)
+     * @param collection Collection name
+     * @param batchSize  Batch size of the load
+     * @return Positions of the committed batches
+     */
+    public Set<Integer> findCommittedBatches(String submission, String collection, int batchSize) {
+        Set<Integer> committed = new TreeSet<>();
+        for (MongoIngestionCheckpoint checkpoint : repository.findCheckpoints(submission, collection)) {
+            if (checkpoint.getBatchSize() != batchSize)
+                throw new IllegalStateException("The load of -- " + submission + " into " + collection + " was started with batches of "
+                        + checkpoint.getBatchSize() + " documents, it can not be resumed with batches of " + batchSize);
+            committed.add(checkpoint.getBatchIndex());
+        }
+        if (!committed.isEmpty())
+            log.info("Resuming the load of -- " + submission + " into " + collection + ", " + committed.size() + " batches already committed");
+        return committed;
+    }
+
+    /**
+     * Record that a batch has been committed. The checkpoint is upserted, so recording the same batch twice is harmless.
+     *
+     * @param submission Submission (usually the project accession)
+     * @param collection Collection name
+     * @param batchIndex Position of the batch in the load
+     * @param batchSize  Batch size of the load
+     * @param inserted   Documents inserted
+     * @param skipped    Documents already in the database
+     */
+    public void commitBatch(String submission, String collection, int batchIndex, int batchSize, int inserted, int skipped) {
+        Query query = new Query(Criteria.where(PrideArchiveField.JOURNAL_SUBMISSION).is(submission)
+                .and(PrideArchiveField.JOURNAL_COLLECTION).is(collection)
+                .and(PrideArchiveField.JOURNAL_BATCH_INDEX).is(batchIndex));
+        Update update = new Update().set(PrideArchiveField.JOURNAL_BATCH_SIZE, batchSize)
+                .set("inserted", inserted)
+                .set("skipped", skipped)
+                .set("committedDate", new Date());
+        mongoOperations.upsert(query, update, MongoIngestionCheckpoint.class);
+    }
+
+    /**
+     * Remove all the checkpoints of a submission, the next load of the submission starts from the beginning.
+     *
+     * @param submission Submission (usually the project accession)
+     * @return Number of checkpoints removed
+     */
+    public long clear(String submission) {
+        Long deleted = repository.deleteBySubmission(submission);
+        return (deleted != null) ? deleted : 0;
+    }
+}
@@ -1,7 +1,17 @@
 package uk.ac.ebi.pride.mongodb.archive.service.msruns;
 
+import com.mongodb.client.result.DeleteResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.pride.archive.dataprovider.msrun.MsRunProvider;
 import uk.ac.ebi.pride.archive.dataprovider.msrun.idsettings.IdSetting;
@@ -9,11 +19,22 @@ import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
 import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
 import uk.ac.ebi.pride.mongodb.archive.repo.msruns.PrideMSRunMongoRepository;
+import uk.ac.ebi.pride.mongodb.archive.service.cache.PrideNearCacheService;
 import uk.ac.ebi.pride.mongodb.archive.transformers.MSRunTransfromer;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.ontology.CvTermValidator;
+import uk.ac.ebi.pride.mongodb.utils.ontology.OntologyTermIndex;
+import uk.ac.ebi.pride.mongodb.utils.ontology.TermValidationStats;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 import uk.ac.ebi.pride.utilities.obo.OBOMapper;
 import uk.ac.ebi.pride.utilities.ols.web.service.cache.OntologyCacheService;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -40,6 +61,33 @@ public class PrideMsRunMongoService implements IMSRunService {
     @Autowired
     OntologyCacheService ontologyCacheService;
 
+    MongoOperations mongoOperations;
+
+    /** Near cache of the MSRuns read by accession, disabled until the Spring bean is injected **/
+    PrideNearCacheService nearCache = new PrideNearCacheService();
+
+    /** Location (classpath:, file: or URL) of the PSI-MS OBO loaded in memory to validate the CvParams, empty to check them with OLS **/
+    @Value("${pride.mongodb.ontology.psi-ms-obo:}")
+    String psiMsOboLocation = "";
+
+    /** Check a Bloom filter before the hash set of the terms, only worth it when most of the accessions checked are unknown **/
+    @Value("${pride.mongodb.ontology.bloom-filter:false}")
+    boolean termBloomFilter = false;
+
+    private volatile CvTermValidator termValidator;
+    private volatile CvTermValidator oboTermValidator;
+
+    @Autowired
+    @Qualifier("archiveMongoTemplate")
+    public void setMongoOperations(MongoTemplate mongoTemplate) {
+        this.mongoOperations = mongoTemplate;
+    }
+
+    @Autowired
+    public void setNearCache(PrideNearCacheService nearCache) {
+        this.nearCache = nearCache;
+    }
+
 
     @Autowired
     public PrideMsRunMongoService(PrideMSRunMongoRepository msRunRepository) {
@@ -51,6 +99,37 @@ public class PrideMsRunMongoService implements IMSRunService {
         }
     }
 
+    /**
+     * Load the PSI-MS terms in memory. The PSI-MS terms are validated with the index and the terms of other ontologies with OLS (or the
+     * OBO mapper); if the OBO can not be read all the terms are validated as before.
+     */
+    @PostConstruct
+    public synchronized void initTermValidator() {
+        OntologyTermIndex index = null;
+        if (psiMsOboLocation != null && !psiMsOboLocation.isEmpty()) {
+            Resource obo = new DefaultResourceLoader().getResource(psiMsOboLocation);
+            try (Reader reader = new InputStreamReader(obo.getInputStream(), StandardCharsets.UTF_8)) {
+                index = OntologyTermIndex.fromObo(reader, termBloomFilter);
+                log.info("The PSI-MS terms have been loaded from -- " + psiMsOboLocation + " -- " + index);
+            } catch (IOException e) {
+                log.error("The PSI-MS OBO can not be read, the terms will be checked one by one -- " + psiMsOboLocation + " -- " + e.getMessage());
+            }
+        }
+        termValidator = new CvTermValidator(index, (accession, cvLabel) -> ontologyCacheService.isTermExisting(accession, cvLabel));
+        oboTermValidator = new CvTermValidator(index, (accession, cvLabel) -> psiOBOMapper != null && psiOBOMapper.getTermByAccession(accession) != null);
+    }
+
+    /**
+     * Validator of the CvParams of the MSRun metadata, its total stats count all the updates of metadata.
+     *
+     * @return CvTermValidator
+     */
+    public CvTermValidator getTermValidator() {
+        if (termValidator == null)
+            initTermValidator();
+        return termValidator;
+    }
+
 
     /**
      * We can update an existing {@link MongoPrideMSRun}
@@ -66,6 +145,7 @@ public class PrideMsRunMongoService implements IMSRunService {
         } else if (mongoPrideMSRun.getId() != null) {
             mongoPrideMSRun = msRunRepository.save(mongoPrideMSRun);
         }
+        nearCache.getMSRunCache().invalidate(mongoPrideMSRun.getAccession());
         return Optional.of(mongoPrideMSRun);
     }
 
@@ -80,6 +160,19 @@ public class PrideMsRunMongoService implements IMSRunService {
         return msRunRepository.filterMSRunByProjectAccession(projectAccession);
     }
 
+    /**
+     * Search MSRuns by filter, page by page. The cursor of every page is used to retrieve the next one.
+     *
+     * @param filterQuery filter query
+     * @param sort        sort of the MSRuns
+     * @param cursor      cursor of the previous page, null for the first page
+     * @param pageSize    number of MSRuns by page
+     * @return CursorPage
+     */
+    public CursorPage<MongoPrideMSRun> searchMSRuns(String filterQuery, Sort sort, String cursor, int pageSize) {
+        return msRunRepository.filterByAttributes(PrideMongoUtils.parseFilterParameters(filterQuery), sort, cursor, pageSize);
+    }
+
     /**
      * Set the metadata of the MSRun
      *
@@ -92,8 +185,13 @@ public class PrideMsRunMongoService implements IMSRunService {
         Optional<MongoPrideMSRun> msRunOptional = msRunRepository.findMsRunByAccession(accession);
 
         if (msRunOptional.isPresent()) {
-            MongoPrideMSRun msRun = MSRunTransfromer.transformMetadata(msRunOptional.get(), msRunMetadata, ontologyCacheService);
+            CvTermValidator validator = getTermValidator();
+            TermValidationStats stats = new TermValidationStats();
+            MongoPrideMSRun msRun = MSRunTransfromer.transformMetadata(msRunOptional.get(), msRunMetadata, validator, stats);
+            validator.record(stats);
+            log.debug("The terms of the MSRun -- " + accession + " have been validated -- " + stats);
             msRun = msRunRepository.save(msRun);
+            nearCache.getMSRunCache().invalidate(accession);
             return Optional.of(msRun);
         }
         return Optional.empty();
@@ -135,6 +233,7 @@ public class PrideMsRunMongoService implements IMSRunService {
                     break;
             }
             msRun = msRunRepository.save(msRun);
+            nearCache.getMSRunCache().invalidate(accession);
             return Optional.of(msRun);
         }
         return Optional.empty();
@@ -142,23 +241,30 @@ public class PrideMsRunMongoService implements IMSRunService {
 
 
     /**
-     * Find a corresponding msRun by the accession.
+     * Find a corresponding msRun by the accession. The MSRun is read through the near cache when it is enabled, the returned MSRun is a
+     * shallow copy of the cached one ({@link PrideMongoUtils#copyEntity}): its fields and collections can be changed and saved, the
+     * elements of the collections are shared and must not be modified in place.
      *
      * @param accession Accession of the msRuns
      * @return Optional MSRun
      */
     public Optional<MongoPrideMSRun> findMSRunByAccession(String accession) {
-        return msRunRepository.findMsRunByAccession(accession);
+        MongoPrideMSRun msRun = nearCache.getMSRunCache().get(accession, x -> msRunRepository.findMsRunByAccession(x).orElse(null));
+        return Optional.ofNullable(PrideMongoUtils.copyEntity(msRun, MongoPrideMSRun::new));
     }
 
 
     private Set<CvParam> processCVParams(Set<CvParam> mongoCvParams) {
-
-        return mongoCvParams
+        if (oboTermValidator == null)
+            initTermValidator();
+        TermValidationStats stats = new TermValidationStats();
+        Set<CvParam> validCvParams = mongoCvParams
                 .stream()
-                .filter(x -> psiOBOMapper.getTermByAccession(x.getAccession()) != null)
+                .filter(x -> oboTermValidator.isValid(x, stats))
                 .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
                 .collect(Collectors.toSet());
+        oboTermValidator.record(stats);
+        return validCvParams;
     }
 
     /**
@@ -166,13 +272,19 @@ public class PrideMsRunMongoService implements IMSRunService {
      */
     public void deleteAll() {
         msRunRepository.deleteAll();
+        nearCache.getMSRunCache().clear();
     }
 
+    /**
+     * Delete all the MSRuns of a project with one deleteMany, the MSRuns are not loaded from the database.
+     *
+     * @param accession Project accession
+     * @return True
+     */
     public boolean deleteByAccession(String accession) {
-        List<MongoPrideMSRun> prideMSRunFilesList = msRunRepository.findByProjectAccessions(Collections.singletonList(accession));
-        for (MongoPrideMSRun prideFile : prideMSRunFilesList) {
-            msRunRepository.delete(prideFile);
-        }
+        DeleteResult result = mongoOperations.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).is(accession)), MongoPrideMSRun.class);
+        log.info(result.getDeletedCount() + " MSRuns of the project -- " + accession + " have been deleted");
+        nearCache.getMSRunCache().clear();
         return true;
     }
 
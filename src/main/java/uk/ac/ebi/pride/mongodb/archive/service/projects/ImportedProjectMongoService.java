@@ -3,6 +3,7 @@ package uk.ac.ebi.pride.mongodb.archive.service.projects;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,6 +14,9 @@ import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoImportedProject;
 import uk.ac.ebi.pride.mongodb.archive.repo.assay.PrideAssayMongoRepository;
 import uk.ac.ebi.pride.mongodb.archive.repo.projects.ImportedProjectMongoRepository;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.WeightedCache;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,62 +29,113 @@ import java.util.stream.Stream;
 @Slf4j
 public class ImportedProjectMongoService {
 
+    /** Default maximum weight of the project cache, the approximate size of the cached projects in bytes **/
+    public static final long DEFAULT_PROJECT_CACHE_WEIGHT = 64L * 1024 * 1024;
+
     final ImportedProjectMongoRepository repository;
     final PrideAssayMongoRepository assayMongoRepository;
 
+    /** Read-through cache of findByAccession, every write of a project through this service evicts it **/
+    final WeightedCache<String, MongoImportedProject> projectCache = new WeightedCache<>(DEFAULT_PROJECT_CACHE_WEIGHT, ProjectWeigher::weigh);
+
     @Autowired
     public ImportedProjectMongoService(ImportedProjectMongoRepository repository, PrideAssayMongoRepository assayMongoRepository) {
         this.repository = repository;
         this.assayMongoRepository = assayMongoRepository;
     }
 
+    @Value("${pride.mongodb.project-cache.max-weight-bytes:67108864}")
+    public void setProjectCacheMaxWeight(long maxWeight) {
+        projectCache.setMaxWeight(maxWeight);
+    }
+
+    /**
+     * Cache of the projects read by accession, with its hit, miss, eviction and invalidation counts.
+     *
+     * @return project cache
+     */
+    public WeightedCache<String, MongoImportedProject> getProjectCache() {
+        return projectCache;
+    }
+
     /**
      * This function insert a project in the Mongo Database, if the project already exist in the database, the function will skip the function.
      *
      * @param project {@link MongoImportedProject}
-     * @return MongoImportedProject
+     * @return the inserted project, empty if a project with the same accession is already in the database (it is not modified)
      */
     public Optional<MongoImportedProject> insert(MongoImportedProject project) {
-        if (!repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("A new project has been saved into MongoDB database with Accession -- " + project.getAccession());
-        } else
+        ObjectId id = repository.insertByAccession(project);
+        projectCache.invalidate(project.getAccession());
+        if (id == null) {
             log.info("A project with similar accession has been found in the MongoDB database, please use update function -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("A new project has been saved into MongoDB database with Accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
     /**
-     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will skip the function.
+     * This function update a project in the Mongo Database, if the project is not already in the database, the function will skip the function.
+     * The project is replaced by accession in one round trip.
      *
      * @param project {@link MongoImportedProject}
-     * @return MongoImportedProject
+     * @return the updated project, empty if no project with the same accession is in the database
      */
     public Optional<MongoImportedProject> update(MongoImportedProject project) {
-        if (repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("project has been updated in MongoDB with accession -- " + project.getAccession());
-        } else
+        ObjectId id = repository.replaceByAccession(project, false);
+        projectCache.invalidate(project.getAccession());
+        if (id == null) {
             log.info("The project do not exists in the database the insert function should be used -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("project has been updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
 
     /**
-     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will update the record
+     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will update the record.
+     * The project is upserted by accession in one round trip.
      *
      * @param project {@link MongoImportedProject}
      * @return MongoImportedProject
      */
     public Optional<MongoImportedProject> upsert(MongoImportedProject project) {
-        Optional<MongoImportedProject> optionalProject = repository.findByAccession(project.getAccession());
-        if(optionalProject.isPresent()){
-            project.setId((ObjectId) optionalProject.get().getId());
-        }
-            project = repository.save(project);
-            log.info("project has been Inserted or updated in MongoDB with accession -- " + project.getAccession());
+        project.setId(repository.replaceByAccession(project, true));
+        projectCache.invalidate(project.getAccession());
+        log.info("project has been Inserted or updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
+    /**
+     * Batch version of {@link #insert(MongoImportedProject)}, the projects that are already in the database are left untouched.
+     *
+     * @param projects List of {@link MongoImportedProject}
+     * @return inserted and matched counts
+     */
+    public BulkUpsertResult insertAll(List<? extends MongoImportedProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, false);
+        projects.forEach(x -> projectCache.invalidate(x.getAccession()));
+        log.info("Batch insert of " + projects.size() + " projects -- inserted: " + result.getInserted() + ", already in the database: " + result.getMatched());
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #upsert(MongoImportedProject)}, used to re-import large numbers of projects.
+     *
+     * @param projects List of {@link MongoImportedProject}
+     * @return inserted, matched and modified counts
+     */
+    public BulkUpsertResult upsertAll(List<? extends MongoImportedProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, true);
+        projects.forEach(x -> projectCache.invalidate(x.getAccession()));
+        log.info("Batch upsert of " + projects.size() + " projects -- inserted: " + result.getInserted() + ", updated: " + result.getModified());
+        return result;
+    }
+
 
     /**
      * This method add projectFiles with the corresponding type of relations defined as {@link CvParamProvider}.
@@ -98,6 +153,7 @@ public class ImportedProjectMongoService {
         if (project.isPresent()) {
             project.get().setSubmittedFileRelations(projectFiles);
             repository.save(project.get());
+            projectCache.invalidate(projectAccession);
             log.info("Update the current project -- " + project.get().getAccession() + " with the File relations -- " + projectFileRelations);
         } else
             log.info("The requested project is not in the Database -- " + project.get().getAccession());
@@ -106,13 +162,16 @@ public class ImportedProjectMongoService {
 
 
     /**
-     * This method return the Pride Mongo Project by accession of the Project PX or PRD
+     * This method return the Pride Mongo Project by accession of the Project PX or PRD. The projects are cached, the returned project is a shallow
+     * copy of the cached one ({@link PrideMongoUtils#copyEntity}): the caller can set its fields and change its lists, the elements of the
+     * lists are shared and must not be modified in place. The changes are only visible after {@link #update(MongoImportedProject)}.
      *
      * @param accession PX accession
      * @return Optional
      */
     public Optional<MongoImportedProject> findByAccession(String accession) {
-        return repository.findByAccession(accession);
+        MongoImportedProject project = projectCache.get(accession, x -> repository.findByAccession(x).orElse(null));
+        return Optional.ofNullable(PrideMongoUtils.copyEntity(project, () -> MongoImportedProject.builder().build()));
     }
 
     public List<MongoImportedProject> findByMultipleAccessions(List<String> accessions) {
@@ -181,29 +240,30 @@ public class ImportedProjectMongoService {
 
     public void deleteAll() {
         repository.deleteAll();
+        projectCache.clear();
     }
 
     public boolean deleteByAccession(String accession) {
         Optional<MongoImportedProject> project = repository.findByAccession(accession);
         if (project.isPresent()) {
             repository.delete(project.get());
+            projectCache.invalidate(accession);
             return true;
         }
 
         return false;
     }
 
-    public void saveAssays(List<MongoPrideAssay> mongoAssays) {
-        mongoAssays.forEach(x -> {
-            Optional<MongoPrideAssay> currentAssay = assayMongoRepository.findPrideAssayByAccession(x.getAccession());
-            if (!currentAssay.isPresent())
-                assayMongoRepository.save(x);
-            else {
-                updateAssay(currentAssay.get(), x);
-                log.info("The request assay is already in MongoDB, it will be updated -- " + x.getAccession());
-            }
-        });
-
+    /**
+     * Insert or update the assays of a project with unordered bulk upserts by accession.
+     *
+     * @param mongoAssays List of {@link MongoPrideAssay}
+     * @return inserted and updated counts
+     */
+    public BulkUpsertResult saveAssays(List<MongoPrideAssay> mongoAssays) {
+        BulkUpsertResult result = assayMongoRepository.saveAllByAccession(mongoAssays);
+        log.info("Assays saved into MongoDB -- inserted: " + result.getInserted() + ", updated: " + result.getMatched());
+        return result;
     }
 
     public MongoPrideAssay updateAssay(MongoPrideAssay currentAssay, MongoPrideAssay newAssay) {
@@ -2,8 +2,12 @@ package uk.ac.ebi.pride.mongodb.archive.service.projects;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideAnalysis;
 import uk.ac.ebi.pride.mongodb.archive.repo.projects.PrideAnalysisMongoRepository;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
 /**
  * @author ypriverol
@@ -23,6 +27,19 @@ public class PrideAnalysisMongoService {
         this.repository = repository;
     }
 
+    /**
+     * Search analyses by filter with keyset pagination.
+     *
+     * @param filterQuery filter query
+     * @param sort        sort of the analyses
+     * @param cursor      cursor of the previous page, null for the first page
+     * @param pageSize    number of analyses by page
+     * @return CursorPage
+     */
+    public CursorPage<MongoPrideAnalysis> searchAnalyses(String filterQuery, Sort sort, String cursor, int pageSize) {
+        return repository.filterByAttributes(PrideMongoUtils.parseFilterParameters(filterQuery), sort, cursor, pageSize);
+    }
+
 //    /**
 //     * Insert is allowing using to create a Accession for the File and insert the actual File into MongoDB.
 //     * @param prideAnalysis {@link MongoPrideAnalysis}
@@ -0,0 +1,109 @@
+package uk.ac.ebi.pride.mongodb.archive.service.projects;
+
+import com.mongodb.client.result.DeleteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+import uk.ac.ebi.pride.mongodb.archive.service.cache.PrideNearCacheService;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@link PrideProjectCascadeDeleteService} removes all the documents that belong to a project (Files, MSRuns, Assays and SDRF) with
+ * one deleteMany by collection. The documents are never loaded in the JVM.
+ */
+@Service
+@Slf4j
+public class PrideProjectCascadeDeleteService {
+
+    /** Collections cleaned by the cascade delete and the field that contains the project accession in each one **/
+    private static final Map<Class<?>, String> PROJECT_ACCESSION_FIELDS = new LinkedHashMap<>();
+
+    static {
+        PROJECT_ACCESSION_FIELDS.put(MongoPrideFile.class, PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS);
+        PROJECT_ACCESSION_FIELDS.put(MongoPrideMSRun.class, PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS);
+        PROJECT_ACCESSION_FIELDS.put(MongoPrideAssay.class, PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS);
+        PROJECT_ACCESSION_FIELDS.put(MongoPrideSdrf.class, PrideArchiveField.EXTERNAL_PROJECT_ACCESSION);
+    }
+
+    MongoOperations mongoOperations;
+
+    PrideNearCacheService nearCache = new PrideNearCacheService();
+
+    private final ExecutorService deleteExecutor = Executors.newFixedThreadPool(PROJECT_ACCESSION_FIELDS.size(), runnable -> {
+        Thread thread = new Thread(runnable, "pride-cascade-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    @Qualifier("archiveMongoTemplate")
+    public void setMongoOperations(MongoTemplate mongoTemplate) {
+        this.mongoOperations = mongoTemplate;
+    }
+
+    @Autowired
+    public void setNearCache(PrideNearCacheService nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * Delete all the Files, MSRuns, Assays and SDRF documents of a project, one collection after the other.
+     *
+     * @param projectAccession Project accession
+     * @return Number of deleted documents by collection name
+     */
+    public Map<String, Long> deleteByProjectAccession(String projectAccession) {
+        return deleteByProjectAccession(projectAccession, false);
+    }
+
+    /**
+     * Delete all the Files, MSRuns, Assays and SDRF documents of a project. Every collection is cleaned with one deleteMany, if parallel is
+     * true the collections are cleaned at the same time.
+     *
+     * @param projectAccession Project accession
+     * @param parallel         Delete from all the collections at the same time
+     * @return Number of deleted documents by collection name
+     */
+    public Map<String, Long> deleteByProjectAccession(String projectAccession, boolean parallel) {
+        Map<String, Long> deletedCounts = new LinkedHashMap<>();
+        if (parallel) {
+            Map<String, CompletableFuture<Long>> deletes = new LinkedHashMap<>();
+            PROJECT_ACCESSION_FIELDS.forEach((entityClass, field) -> deletes.put(mongoOperations.getCollectionName(entityClass),
+                    CompletableFuture.supplyAsync(() -> delete(entityClass, field, projectAccession), deleteExecutor)));
+            deletes.forEach((name, delete) -> deletedCounts.put(name, delete.join()));
+        } else {
+            PROJECT_ACCESSION_FIELDS.forEach((entityClass, field) ->
+                    deletedCounts.put(mongoOperations.getCollectionName(entityClass), delete(entityClass, field, projectAccession)));
+        }
+        // The accessions of the removed Files and MSRuns are not known
+        nearCache.clear();
+        log.info("The data of the project -- " + projectAccession + " has been deleted -- " + deletedCounts);
+        return deletedCounts;
+    }
+
+    private long delete(Class<?> entityClass, String field, String projectAccession) {
+        DeleteResult result = mongoOperations.remove(new Query(Criteria.where(field).is(projectAccession)), entityClass);
+        return result.getDeletedCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deleteExecutor.shutdown();
+    }
+}
@@ -3,6 +3,7 @@ package uk.ac.ebi.pride.mongodb.archive.service.projects;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -11,10 +12,19 @@ import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
 import uk.ac.ebi.pride.archive.dataprovider.param.CvParamProvider;
 import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacet;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacetResult;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectSummary;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectView;
 import uk.ac.ebi.pride.mongodb.archive.repo.assay.PrideAssayMongoRepository;
 import uk.ac.ebi.pride.mongodb.archive.repo.projects.PrideProjectMongoRepository;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.WeightedCache;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -30,62 +40,137 @@ import java.util.stream.Stream;
 @Slf4j
 public class PrideProjectMongoService {
 
+    /** Default maximum weight of the project cache, the approximate size of the cached projects in bytes **/
+    public static final long DEFAULT_PROJECT_CACHE_WEIGHT = 64L * 1024 * 1024;
+
+    /** Default age of the set of project accessions before it is refreshed with the projects updated or inserted since **/
+    public static final long DEFAULT_ACCESSIONS_REFRESH_MILLIS = 60 * 1000;
+
+    /** Default age of the set of project accessions before it is loaded again, to remove the projects deleted by other processes **/
+    public static final long DEFAULT_ACCESSIONS_FULL_REFRESH_MILLIS = 60 * 60 * 1000;
+
     final PrideProjectMongoRepository repository;
     final PrideAssayMongoRepository assayMongoRepository;
 
+    /** Read-through cache of findByAccession, every write of a project through this service evicts it **/
+    final WeightedCache<String, MongoPrideProject> projectCache = new WeightedCache<>(DEFAULT_PROJECT_CACHE_WEIGHT, ProjectWeigher::weigh);
+
+    final ProjectAccessionIndex accessionIndex;
+
     @Autowired
     public PrideProjectMongoService(PrideProjectMongoRepository repository, PrideAssayMongoRepository assayMongoRepository) {
         this.repository = repository;
         this.assayMongoRepository = assayMongoRepository;
+        this.accessionIndex = new ProjectAccessionIndex(repository, DEFAULT_ACCESSIONS_REFRESH_MILLIS, DEFAULT_ACCESSIONS_FULL_REFRESH_MILLIS,
+                System::currentTimeMillis);
+    }
+
+    @Value("${pride.mongodb.project-accessions.refresh-millis:60000}")
+    public void setAccessionsRefreshMillis(long refreshMillis) {
+        accessionIndex.setRefreshIntervalMillis(refreshMillis);
+    }
+
+    @Value("${pride.mongodb.project-accessions.full-refresh-millis:3600000}")
+    public void setAccessionsFullRefreshMillis(long fullRefreshMillis) {
+        accessionIndex.setFullRefreshIntervalMillis(fullRefreshMillis);
+    }
+
+    @Value("${pride.mongodb.project-cache.max-weight-bytes:67108864}")
+    public void setProjectCacheMaxWeight(long maxWeight) {
+        projectCache.setMaxWeight(maxWeight);
+    }
+
+    /**
+     * Cache of the projects read by accession, with its hit, miss, eviction and invalidation counts.
+     *
+     * @return project cache
+     */
+    public WeightedCache<String, MongoPrideProject> getProjectCache() {
+        return projectCache;
     }
 
     /**
      * This function insert a project in the Mongo Database, if the project already exist in the database, the function will skip the function.
      *
      * @param project {@link MongoPrideProject}
-     * @return MongoPrideProject
+     * @return the inserted project, empty if a project with the same accession is already in the database (it is not modified)
      */
     public Optional<MongoPrideProject> insert(MongoPrideProject project) {
-        if (!repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("A new project has been saved into MongoDB database with Accession -- " + project.getAccession());
-        } else
+        ObjectId id = repository.insertByAccession(project);
+        projectCache.invalidate(project.getAccession());
+        accessionIndex.markChanged();
+        if (id == null) {
             log.info("A project with similar accession has been found in the MongoDB database, please use update function -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("A new project has been saved into MongoDB database with Accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
     /**
-     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will skip the function.
+     * This function update a project in the Mongo Database, if the project is not already in the database, the function will skip the function.
+     * The project is replaced by accession in one round trip.
      *
      * @param project {@link MongoPrideProject}
-     * @return MongoPrideProject
+     * @return the updated project, empty if no project with the same accession is in the database
      */
     public Optional<MongoPrideProject> update(MongoPrideProject project) {
-        if (repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("project has been updated in MongoDB with accession -- " + project.getAccession());
-        } else
+        ObjectId id = repository.replaceByAccession(project, false);
+        projectCache.invalidate(project.getAccession());
+        if (id == null) {
             log.info("The project do not exists in the database the insert function should be used -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("project has been updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
 
     /**
-     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will update the record
+     * This function insert a project in the Mongo Database, if the project already exist in the database, the function will update the record.
+     * The project is upserted by accession in one round trip.
      *
      * @param project {@link MongoPrideProject}
      * @return MongoPrideProject
      */
     public Optional<MongoPrideProject> upsert(MongoPrideProject project) {
-        Optional<MongoPrideProject> optionalProject = repository.findByAccession(project.getAccession());
-        if(optionalProject.isPresent()){
-            project.setId((ObjectId) optionalProject.get().getId());
-        }
-            project = repository.save(project);
-            log.info("project has been Inserted or updated in MongoDB with accession -- " + project.getAccession());
+        project.setId(repository.replaceByAccession(project, true));
+        projectCache.invalidate(project.getAccession());
+        accessionIndex.markChanged();
+        log.info("project has been Inserted or updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
+    /**
+     * Batch version of {@link #insert(MongoPrideProject)}, the projects that are already in the database are left untouched.
+     *
+     * @param projects List of {@link MongoPrideProject}
+     * @return inserted and matched counts
+     */
+    public BulkUpsertResult insertAll(List<? extends MongoPrideProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, false);
+        projects.forEach(x -> projectCache.invalidate(x.getAccession()));
+        accessionIndex.markChanged();
+        log.info("Batch insert of " + projects.size() + " projects -- inserted: " + result.getInserted() + ", already in the database: " + result.getMatched());
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #upsert(MongoPrideProject)}, used to re-import large numbers of projects.
+     *
+     * @param projects List of {@link MongoPrideProject}
+     * @return inserted, matched and modified counts
+     */
+    public BulkUpsertResult upsertAll(List<? extends MongoPrideProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, true);
+        projects.forEach(x -> projectCache.invalidate(x.getAccession()));
+        accessionIndex.markChanged();
+        log.info("Batch upsert of " + projects.size() + " projects -- inserted: " + result.getInserted() + ", updated: " + result.getModified());
+        return result;
+    }
+
 
     /**
      * This method add projectFiles with the corresponding type of relations defined as {@link CvParamProvider}.
@@ -103,6 +188,7 @@ public class PrideProjectMongoService {
         if (project.isPresent()) {
             project.get().setSubmittedFileRelations(projectFiles);
             repository.save(project.get());
+            projectCache.invalidate(projectAccession);
             log.info("Update the current project -- " + project.get().getAccession() + " with the File relations -- " + projectFileRelations);
         } else
             log.info("The requested project is not in the Database -- " + project.get().getAccession());
@@ -111,21 +197,62 @@ public class PrideProjectMongoService {
 
 
     /**
-     * This method return the Pride Mongo Project by accession of the Project PX or PRD
+     * This method return the Pride Mongo Project by accession of the Project PX or PRD. The projects are cached, the returned project is a shallow
+     * copy of the cached one ({@link PrideMongoUtils#copyEntity}): the caller can set its fields and change its lists, the elements of the
+     * lists are shared and must not be modified in place. The changes are only visible after {@link #update(MongoPrideProject)}.
      *
      * @param accession PX accession
      * @return Optional
      */
     public Optional<MongoPrideProject> findByAccession(String accession) {
-        return repository.findByAccession(accession);
+        MongoPrideProject project = projectCache.get(accession, x -> repository.findByAccession(x).orElse(null));
+        return Optional.ofNullable(PrideMongoUtils.copyEntity(project, () -> MongoPrideProject.builder().build()));
     }
 
     public List<MongoPrideProject> findByMultipleAccessions(List<String> accessions) {
         return repository.findByMultipleAccessions(accessions);
     }
 
+    /**
+     * Find the projects with the given accessions retrieving only the fields of a view.
+     *
+     * @param accessions PX accessions
+     * @param view       fields to retrieve
+     * @return read-only projections of the projects
+     */
+    public List<PrideProjectSummary> findByMultipleAccessions(List<String> accessions, PrideProjectView view) {
+        return repository.findByMultipleAccessions(accessions, view.getFields());
+    }
+
+    /**
+     * Find the projects with the given accessions retrieving only some fields.
+     *
+     * @param accessions PX accessions
+     * @param fields     properties of {@link PrideProjectSummary} to retrieve
+     * @return read-only projections of the projects
+     */
+    public List<PrideProjectSummary> findByMultipleAccessions(List<String> accessions, Collection<String> fields) {
+        return repository.findByMultipleAccessions(accessions, fields);
+    }
+
+    /**
+     * Accessions of all the projects, from the in-memory set that is refreshed incrementally (pride.mongodb.project-accessions.*). The
+     * returned set is read-only, it is iterated by prefix and number (PRD, then PXD).
+     *
+     * @return read-only set of project accessions
+     */
     public Set<String> getAllProjectAccessions() {
-        return repository.getAllProjectAccessions();
+        return accessionIndex.get();
+    }
+
+    /**
+     * Check if a project exists without reading it from the database.
+     *
+     * @param accession project accession
+     * @return true if the accession is in the set of project accessions
+     */
+    public boolean containsProjectAccession(String accession) {
+        return accessionIndex.get().contains(accession);
     }
 
     /**
@@ -138,6 +265,43 @@ public class PrideProjectMongoService {
         return repository.findAll(page);
     }
 
+    /**
+     * Search projects by filter and compute the facets of the search (instruments, organisms, PTMs...) in the same query.
+     *
+     * @param filterQuery filter query, for example submissionType==COMPLETE
+     * @param page        page of projects, unpaged requests are rejected
+     * @param facets      facets to compute
+     * @param topN        maximum number of values by facet
+     * @return page of projects and facet counts
+     */
+    public PrideProjectFacetResult searchWithFacets(String filterQuery, Pageable page, Collection<PrideProjectFacet> facets, int topN) {
+        List<Triple<String, String, String>> filters = PrideMongoUtils.parseFilterParameters(filterQuery);
+        return repository.findByFiltersWithFacets(filters, page, facets, topN);
+    }
+
+    /**
+     * Keyword search over the text index of the projects, the projects are ranked by relevance.
+     *
+     * @param text terms of the search
+     * @param page page of projects
+     * @return Page of projects ranked by score
+     */
+    public Page<MongoPrideProject> searchByText(String text, Pageable page) {
+        return repository.findByText(text, page);
+    }
+
+    /**
+     * Keyword search ranked by relevance using the cursor of the previous page.
+     *
+     * @param text     terms of the search
+     * @param cursor   cursor of the previous page, null for the first page
+     * @param pageSize number of projects by page
+     * @return CursorPage of projects ranked by score
+     */
+    public CursorPage<MongoPrideProject> searchByText(String text, String cursor, int pageSize) {
+        return repository.findByText(text, cursor, pageSize);
+    }
+
     /*
      sample_attributes = species
      ptmList = modifications
@@ -186,29 +350,32 @@ public class PrideProjectMongoService {
 
     public void deleteAll() {
         repository.deleteAll();
+        projectCache.clear();
+        accessionIndex.markDeleted();
     }
 
     public boolean deleteByAccession(String accession) {
         Optional<MongoPrideProject> project = repository.findByAccession(accession);
         if (project.isPresent()) {
             repository.delete(project.get());
+            projectCache.invalidate(accession);
+            accessionIndex.markDeleted();
             return true;
         }
 
         return false;
     }
 
-    public void saveAssays(List<MongoPrideAssay> mongoAssays) {
-        mongoAssays.forEach(x -> {
-            Optional<MongoPrideAssay> currentAssay = assayMongoRepository.findPrideAssayByAccession(x.getAccession());
-            if (!currentAssay.isPresent())
-                assayMongoRepository.save(x);
-            else {
-                updateAssay(currentAssay.get(), x);
-                log.info("The request assay is already in MongoDB, it will be updated -- " + x.getAccession());
-            }
-        });
-
+    /**
+     * Insert or update the assays of a project with unordered bulk upserts by accession.
+     *
+     * @param mongoAssays List of {@link MongoPrideAssay}
+     * @return inserted and updated counts
+     */
+    public BulkUpsertResult saveAssays(List<MongoPrideAssay> mongoAssays) {
+        BulkUpsertResult result = assayMongoRepository.saveAllByAccession(mongoAssays);
+        log.info("Assays saved into MongoDB -- inserted: " + result.getInserted() + ", updated: " + result.getMatched());
+        return result;
     }
 
     public MongoPrideAssay updateAssay(MongoPrideAssay currentAssay, MongoPrideAssay newAssay) {
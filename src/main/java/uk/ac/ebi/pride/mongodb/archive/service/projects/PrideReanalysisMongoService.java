@@ -6,7 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideReanalysisProject;
 import uk.ac.ebi.pride.mongodb.archive.repo.projects.PrideReanalysisMongoRepository;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -34,49 +36,75 @@ public class PrideReanalysisMongoService {
      * This function insert a reanalysis project in the Mongo Database. If the project already exist in the database, the function will skip the function.
      *
      * @param project {@link MongoPrideReanalysisProject}
-     * @return MongoPrideReanalysisProject
+     * @return the inserted project, empty if a project with the same accession is already in the database (it is not modified)
      */
     public Optional<MongoPrideReanalysisProject> insert(MongoPrideReanalysisProject project) {
-        if (!repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("A new reanalysis project has been saved into MongoDB database with Accession -- " + project.getAccession());
-        } else
-            log.info("A reanalysis  project with similar accession has been found in the MongoDB database, please use update function -- " + project.getAccession());
+        ObjectId id = repository.insertByAccession(project);
+        if (id == null) {
+            log.info("A reanalysis project with similar accession has been found in the MongoDB database, please use update function -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("A new reanalysis project has been saved into MongoDB database with Accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
     /**
-     * This function update a reanalysis project in the Mongo Database. if the project is not already exist in the database, the function will skip the function.
+     * This function update a reanalysis project in the Mongo Database, if the reanalysis project is not already in the database, the function will skip the function.
+     * The reanalysis project is replaced by accession in one round trip.
      *
      * @param project {@link MongoPrideReanalysisProject}
-     * @return MongoPrideReanalysisProject
+     * @return the updated project, empty if no project with the same accession is in the database
      */
     public Optional<MongoPrideReanalysisProject> update(MongoPrideReanalysisProject project) {
-        if (repository.findByAccession(project.getAccession()).isPresent()) {
-            project = repository.save(project);
-            log.info("project has been updated in MongoDB with accession -- " + project.getAccession());
-        } else
-            log.info("The project do not exists in the database the insert function should be used -- " + project.getAccession());
+        ObjectId id = repository.replaceByAccession(project, false);
+        if (id == null) {
+            log.info("The reanalysis project do not exists in the database the insert function should be used -- " + project.getAccession());
+            return Optional.empty();
+        }
+        project.setId(id);
+        log.info("Reanalysis project has been updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
 
     /**
-     * This function insert a renalysis project in the Mongo Database. If the project already exist in the database, the function will update the record
+     * This function insert a reanalysis project in the Mongo Database, if the reanalysis project already exist in the database, the function will update the record.
+     * The reanalysis project is upserted by accession in one round trip.
      *
      * @param project {@link MongoPrideReanalysisProject}
      * @return MongoPrideReanalysisProject
      */
     public Optional<MongoPrideReanalysisProject> upsert(MongoPrideReanalysisProject project) {
-        Optional<MongoPrideReanalysisProject> optionalProject = repository.findByAccession(project.getAccession());
-        if(optionalProject.isPresent()){
-            project.setId((ObjectId) optionalProject.get().getId());
-        }
-        project = repository.save(project);
+        project.setId(repository.replaceByAccession(project, true));
         log.info("Reanalysis project has been Inserted or updated in MongoDB with accession -- " + project.getAccession());
         return Optional.of(project);
     }
 
+    /**
+     * Batch version of {@link #insert(MongoPrideReanalysisProject)}, the reanalysis projects that are already in the database are left untouched.
+     *
+     * @param projects List of {@link MongoPrideReanalysisProject}
+     * @return inserted and matched counts
+     */
+    public BulkUpsertResult insertAll(List<? extends MongoPrideReanalysisProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, false);
+        log.info("Batch insert of " + projects.size() + " reanalysis projects -- inserted: " + result.getInserted() + ", already in the database: " + result.getMatched());
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #upsert(MongoPrideReanalysisProject)}, used to re-import large numbers of reanalysis projects.
+     *
+     * @param projects List of {@link MongoPrideReanalysisProject}
+     * @return inserted, matched and modified counts
+     */
+    public BulkUpsertResult upsertAll(List<? extends MongoPrideReanalysisProject> projects) {
+        BulkUpsertResult result = repository.bulkUpsertByAccession(projects, true);
+        log.info("Batch upsert of " + projects.size() + " reanalysis projects -- inserted: " + result.getInserted() + ", updated: " + result.getModified());
+        return result;
+    }
+
 
     /**
      * This method return the Reanalysis references by accession of the Project PX or PRD
@@ -0,0 +1,117 @@
+package uk.ac.ebi.pride.mongodb.archive.service.projects;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectSummary;
+import uk.ac.ebi.pride.mongodb.archive.repo.projects.PrideProjectMongoRepository;
+import uk.ac.ebi.pride.mongodb.utils.CompactAccessionSet;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory {@link CompactAccessionSet} of the project accessions. The set is loaded once and refreshed when it is older than the refresh
+ * interval: only the projects with an updatedDate equal or after the last one seen, or an id greater than the last one seen, are read.
+ * Deletes are not visible to the incremental refresh, so the set is loaded again after a delete through the service and after the full
+ * refresh interval.
+ */
+@Slf4j
+final class ProjectAccessionIndex {
+
+    private final PrideProjectMongoRepository repository;
+    private final LongSupplier clock;
+
+    private volatile long refreshIntervalMillis;
+    private volatile long fullRefreshIntervalMillis;
+
+    private volatile CompactAccessionSet accessions;
+    private volatile long refreshedAt;
+    private volatile boolean refreshNeeded;
+    private volatile boolean fullRefreshNeeded = true;
+    private long fullRefreshedAt;
+    private Date lastUpdatedDate;
+    private ObjectId lastId;
+
+    ProjectAccessionIndex(PrideProjectMongoRepository repository, long refreshIntervalMillis, long fullRefreshIntervalMillis, LongSupplier clock) {
+        this.repository = repository;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.fullRefreshIntervalMillis = fullRefreshIntervalMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the set of accessions, it is refreshed first if it is older than the refresh interval.
+     *
+     * @return CompactAccessionSet
+     */
+    CompactAccessionSet get() {
+        CompactAccessionSet current = accessions;
+        if (current != null && !isStale(clock.getAsLong()))
+            return current;
+        return refresh();
+    }
+
+    /**
+     * Projects have been inserted or updated, the next read refreshes the set.
+     */
+    void markChanged() {
+        refreshNeeded = true;
+    }
+
+    /**
+     * Projects have been deleted, the next read loads the set again.
+     */
+    void markDeleted() {
+        fullRefreshNeeded = true;
+    }
+
+    void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    void setFullRefreshIntervalMillis(long fullRefreshIntervalMillis) {
+        this.fullRefreshIntervalMillis = fullRefreshIntervalMillis;
+    }
+
+    private boolean isStale(long now) {
+        return refreshNeeded || fullRefreshNeeded || now - refreshedAt >= refreshIntervalMillis;
+    }
+
+    private synchronized CompactAccessionSet refresh() {
+        long now = clock.getAsLong();
+        // Another thread may have refreshed the set while this one was waiting
+        if (accessions != null && !isStale(now))
+            return accessions;
+        boolean full = accessions == null || fullRefreshNeeded || now - fullRefreshedAt >= fullRefreshIntervalMillis;
+        // The flags are cleared before reading, a write during the read refreshes the set again on the next call
+        refreshNeeded = false;
+        fullRefreshNeeded = false;
+        List<PrideProjectSummary> changes;
+        try {
+            changes = full ? repository.findAccessionsChangedSince(null, null) : repository.findAccessionsChangedSince(lastUpdatedDate, lastId);
+        } catch (RuntimeException ex) {
+            refreshNeeded = true;
+            fullRefreshNeeded = full;
+            throw ex;
+        }
+        List<String> changedAccessions = changes.stream().map(PrideProjectSummary::getAccession).collect(Collectors.toList());
+        accessions = full ? CompactAccessionSet.of(changedAccessions) : accessions.withAdded(changedAccessions);
+        if (full) {
+            lastUpdatedDate = null;
+            lastId = null;
+            fullRefreshedAt = now;
+        }
+        for (PrideProjectSummary project : changes) {
+            if (project.getUpdatedDate() != null && (lastUpdatedDate == null || project.getUpdatedDate().after(lastUpdatedDate)))
+                lastUpdatedDate = project.getUpdatedDate();
+            if (project.getId() != null && (lastId == null || project.getId().compareTo(lastId) > 0))
+                lastId = project.getId();
+        }
+        refreshedAt = now;
+        log.debug((full ? "The project accessions have been loaded -- " : "The project accessions have been refreshed -- ") + changes.size()
+                + " projects read, " + accessions.size() + " accessions");
+        return accessions;
+    }
+}
@@ -0,0 +1,41 @@
+package uk.ac.ebi.pride.mongodb.archive.service.projects;
+
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+
+import java.util.Collection;
+
+/**
+ * Approximate size in memory of a {@link MongoPrideProject}, used as the weight of the projects in the project caches. The estimate counts
+ * the characters of the free-text fields and a fixed size by element of the lists (submitters, references, samples, file relations...), it
+ * only has to keep the large projects from filling the cache.
+ */
+final class ProjectWeigher {
+
+    private static final long BASE_BYTES = 1024;
+    private static final long ELEMENT_BYTES = 256;
+
+    private ProjectWeigher() {
+    }
+
+    static long weigh(MongoPrideProject project) {
+        long bytes = BASE_BYTES;
+        bytes += 2L * (length(project.getTitle()) + length(project.getDescription()) + length(project.getSampleProcessingProtocol())
+                + length(project.getDataProcessingProtocol()));
+        bytes += ELEMENT_BYTES * (size(project.getSubmittedFileRelations()) + size(project.getSubmitters()) + size(project.getHeadLab())
+                + size(project.getKeywords()) + size(project.getProjectTags()) + size(project.getQuantificationMethods())
+                + size(project.getPtmList()) + size(project.getInstruments()) + size(project.getSoftwareList())
+                + size(project.getExperimentTypes()) + size(project.getReferences()) + size(project.getAttributes())
+                + size(project.getOmicsLinks()) + size(project.getCountries()) + size(project.getExperimentalFactors()));
+        if (project.getSamplesDescription() != null)
+            bytes += ELEMENT_BYTES * project.getSamplesDescription().stream().mapToLong(x -> 1 + size(x.getValue())).sum();
+        return bytes;
+    }
+
+    private static long length(String value) {
+        return (value != null) ? value.length() : 0;
+    }
+
+    private static long size(Collection<?> values) {
+        return (values != null) ? values.size() : 0;
+    }
+}
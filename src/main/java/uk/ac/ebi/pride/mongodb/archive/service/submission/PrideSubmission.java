@@ -0,0 +1,42 @@
+package uk.ac.ebi.pride.mongodb.archive.service.submission;
+
+import lombok.Builder;
+import lombok.Data;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParamProvider;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * All the documents of a submission that are loaded together by {@link PrideSubmissionLoader}. Only the project is mandatory.
+ */
+@Data
+@Builder
+public class PrideSubmission {
+
+    /** Project of the submission **/
+    private MongoPrideProject project;
+
+    /** Files and MSRuns of the submission **/
+    private List<MongoPrideFile> files;
+    private List<MongoPrideMSRun> msRuns;
+
+    /** Assays of the submission **/
+    private List<MongoPrideAssay> assays;
+
+    /** SDRF rows of the submission **/
+    private List<MongoPrideSdrf> sdrf;
+
+    /**
+     * Build the project-file relations from the inserted Files (submitted File, inserted File). The relations are written once the project
+     * and the Files are in the database.
+     */
+    private Function<List<Tuple<MongoPrideFile, MongoPrideFile>>, List<Triple<String, String, CvParamProvider>>> fileRelations;
+}
@@ -0,0 +1,162 @@
+package uk.ac.ebi.pride.mongodb.archive.service.submission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParamProvider;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.sdrf.PrideSdrfMongoService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The {@link PrideSubmissionLoader} loads a complete submission (project, Files, MSRuns, assays and SDRF). The stages write into different
+ * collections and do not depend on each other, so they run at the same time on a bounded executor; the only dependency that is enforced is
+ * the project-file relations, that are written when the project and the Files are in the database. The total time of a load is close
+ * to the time of the slowest stage instead of the sum of all of them.
+ */
+@Service
+@Slf4j
+public class PrideSubmissionLoader {
+
+    final PrideProjectMongoService projectMongoService;
+    final PrideFileMongoService fileMongoService;
+    final PrideSdrfMongoService sdrfMongoService;
+
+    @Value("${pride.mongodb.submission.loader.threads:4}")
+    int loaderThreads = 4;
+
+    @Value("${pride.mongodb.submission.loader.queue-size:64}")
+    int loaderQueueSize = 64;
+
+    private ThreadPoolExecutor loaderExecutor;
+
+    @Autowired
+    public PrideSubmissionLoader(PrideProjectMongoService projectMongoService, PrideFileMongoService fileMongoService,
+                                 PrideSdrfMongoService sdrfMongoService) {
+        this.projectMongoService = projectMongoService;
+        this.fileMongoService = fileMongoService;
+        this.sdrfMongoService = sdrfMongoService;
+    }
+
+    @PostConstruct
+    public void initExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // When the queue is full the caller runs the stage, the number of pending stages is bounded.
+        loaderExecutor = new ThreadPoolExecutor(loaderThreads, loaderThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(loaderQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "pride-submission-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        loaderExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loaderExecutor != null)
+            loaderExecutor.shutdown();
+    }
+
+    /**
+     * Load a submission. The method returns when all the stages have finished, if one of them fails the others are still completed and the
+     * first error is thrown.
+     *
+     * @param submission {@link PrideSubmission}
+     * @return SubmissionLoadReport with the timings of the stages
+     */
+    public SubmissionLoadReport load(PrideSubmission submission) {
+        if (submission.getProject() == null)
+            throw new IllegalArgumentException("A submission can not be loaded without project");
+        if (loaderExecutor == null)
+            initExecutor();
+
+        String projectAccession = submission.getProject().getAccession();
+        SubmissionLoadReport report = new SubmissionLoadReport(projectAccession);
+        long start = System.currentTimeMillis();
+
+        CompletableFuture<Void> project = stage(report, SubmissionStage.PROJECT, () -> {
+            projectMongoService.insert(submission.getProject());
+            return null;
+        });
+
+        CompletableFuture<List<Tuple<MongoPrideFile, MongoPrideFile>>> files = isEmpty(submission.getFiles())
+                ? CompletableFuture.completedFuture(Collections.emptyList())
+                : stage(report, SubmissionStage.FILES_AND_MSRUNS,
+                () -> fileMongoService.insertAllFilesAndMsRunsInBulk(submission.getFiles(), submission.getMsRuns()));
+
+        CompletableFuture<Void> assays = isEmpty(submission.getAssays())
+                ? CompletableFuture.completedFuture(null)
+                : stage(report, SubmissionStage.ASSAYS, () -> {
+            projectMongoService.saveAssays(submission.getAssays());
+            return null;
+        });
+
+        CompletableFuture<Void> sdrf = isEmpty(submission.getSdrf())
+                ? CompletableFuture.completedFuture(null)
+                : stage(report, SubmissionStage.SDRF, () -> {
+            sdrfMongoService.saveSdrfList(submission.getSdrf());
+            return null;
+        });
+
+        CompletableFuture<Void> relations = CompletableFuture.completedFuture(null);
+        if (submission.getFileRelations() != null) {
+            relations = project.thenCombine(files, (p, insertedFiles) -> insertedFiles)
+                    .thenCompose(insertedFiles -> stage(report, SubmissionStage.FILE_RELATIONS, () -> {
+                        List<Triple<String, String, CvParamProvider>> fileRelations = submission.getFileRelations().apply(insertedFiles);
+                        if (!isEmpty(fileRelations))
+                            projectMongoService.updateFileRelations(projectAccession, fileRelations);
+                        return null;
+                    }));
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<?> future : new CompletableFuture<?>[]{project, files, assays, sdrf, relations}) {
+            try {
+                future.join();
+            } catch (CompletionException ex) {
+                if (failure == null)
+                    failure = (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : ex;
+            }
+        }
+        report.setTotalTimeMillis(System.currentTimeMillis() - start);
+        if (failure != null) {
+            log.error("The load of the submission -- " + projectAccession + " has failed -- " + report);
+            throw failure;
+        }
+        report.setInsertedFiles(new ArrayList<>(files.join()));
+        log.info(report.toString());
+        return report;
+    }
+
+    private <T> CompletableFuture<T> stage(SubmissionLoadReport report, SubmissionStage stage, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                return work.get();
+            } finally {
+                report.recordStage(stage, System.currentTimeMillis() - start);
+            }
+        }, loaderExecutor);
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+}
@@ -0,0 +1,46 @@
+package uk.ac.ebi.pride.mongodb.archive.service.submission;
+
+import lombok.Data;
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the load of a submission by {@link PrideSubmissionLoader}, including the time spent in every stage and the total wall-clock time.
+ */
+@Data
+public class SubmissionLoadReport {
+
+    private final String projectAccession;
+
+    private final Map<SubmissionStage, Long> stageTimesMillis = Collections.synchronizedMap(new EnumMap<>(SubmissionStage.class));
+
+    private List<Tuple<MongoPrideFile, MongoPrideFile>> insertedFiles = new ArrayList<>();
+
+    private long totalTimeMillis;
+
+    void recordStage(SubmissionStage stage, long millis) {
+        stageTimesMillis.put(stage, millis);
+    }
+
+    /**
+     * Time of the slowest stage, the lower bound of the total time of the load.
+     *
+     * @return time in milliseconds
+     */
+    public long getSlowestStageMillis() {
+        synchronized (stageTimesMillis) {
+            return stageTimesMillis.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Submission " + projectAccession + " loaded in " + totalTimeMillis + " ms -- stages (ms): " + stageTimesMillis;
+    }
+}
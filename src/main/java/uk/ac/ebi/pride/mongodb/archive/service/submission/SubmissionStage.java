@@ -0,0 +1,14 @@
+package uk.ac.ebi.pride.mongodb.archive.service.submission;
+
+/**
+ * Stages of the load of a submission by {@link PrideSubmissionLoader}. Every stage writes into its own collection, only
+ * {@link #FILE_RELATIONS} depends on other stages ({@link #PROJECT} and {@link #FILES_AND_MSRUNS}).
+ */
+public enum SubmissionStage {
+
+    PROJECT,
+    FILES_AND_MSRUNS,
+    ASSAYS,
+    SDRF,
+    FILE_RELATIONS
+}
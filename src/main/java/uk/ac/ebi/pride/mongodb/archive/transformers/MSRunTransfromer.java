@@ -3,11 +3,15 @@ package uk.ac.ebi.pride.mongodb.archive.transformers;
 import lombok.extern.slf4j.Slf4j;
 import uk.ac.ebi.pride.archive.dataprovider.msrun.MsRunProvider;
 import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParamProvider;
 import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
 import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
 import uk.ac.ebi.pride.archive.dataprovider.msrun.idsettings.IdSetting;
+import uk.ac.ebi.pride.mongodb.utils.ontology.CvTermValidator;
+import uk.ac.ebi.pride.mongodb.utils.ontology.TermValidationStats;
 import uk.ac.ebi.pride.utilities.ols.web.service.cache.OntologyCacheService;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -26,47 +30,30 @@ import java.util.stream.Collectors;
 public class MSRunTransfromer {
 
     public static MongoPrideMSRun transformMetadata(MongoPrideMSRun msRunProvider, MsRunProvider metadata, OntologyCacheService ontologyCacheService){
+        return transformMetadata(msRunProvider, metadata, new CvTermValidator(null, ontologyCacheService::isTermExisting), new TermValidationStats());
+    }
+
+    /**
+     * Add the metadata to the MSRun, the CvParams whose terms do not exist are removed. The terms are checked by the validator and the
+     * counts of the checks are added to the stats of the batch.
+     *
+     * @param msRunProvider MSRun
+     * @param metadata      metadata of the MSRun
+     * @param validator     validator of the CvParams
+     * @param stats         stats of the batch
+     * @return MSRun
+     */
+    public static MongoPrideMSRun transformMetadata(MongoPrideMSRun msRunProvider, MsRunProvider metadata, CvTermValidator validator,
+                                                    TermValidationStats stats){
         if(metadata != null){
-            if(metadata.getInstrumentProperties() != null){
-                Set<CvParam> mongoCvParams = metadata.getInstrumentProperties()
-                        .stream()
-                        .filter(x -> ontologyCacheService.isTermExisting(x.getAccession(),x.getCvLabel()))
-                        .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
-                        .collect(Collectors.toSet());
-                if(mongoCvParams.isEmpty())
-                    log.info("Non of the CVTerms provided in Instrument Properties are supported by PRIDE Database");
-                msRunProvider.addInstrumentProperties(mongoCvParams);
-            }
-            if(metadata.getFileProperties() != null){
-                Set<CvParam> mongoCvParams = metadata.getFileProperties()
-                        .stream()
-                        .filter(x -> ontologyCacheService.isTermExisting(x.getAccession(),x.getCvLabel()))
-                        .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
-                        .collect(Collectors.toSet());
-                if(mongoCvParams.isEmpty())
-                    log.info("Non of the CVTerms provided in File Properties are supported by PRIDE Database");
-                msRunProvider.addFileProperties(mongoCvParams);
-            }
-            if(metadata.getMsData() != null){
-                Set<CvParam> mongoCvParams = metadata.getMsData()
-                        .stream()
-                        .filter(x -> ontologyCacheService.isTermExisting(x.getAccession(),x.getCvLabel()))
-                        .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
-                        .collect(Collectors.toSet());
-                if(mongoCvParams.isEmpty())
-                    log.info("Non of the CVTerms provided in Ms Data are supported by PRIDE Database");
-                msRunProvider.addMsData(mongoCvParams);
-            }
-            if(metadata.getScanSettings() != null){
-                Set<CvParam> mongoCvParams = metadata.getScanSettings()
-                        .stream()
-                        .filter(x -> ontologyCacheService.isTermExisting(x.getAccession(),x.getCvLabel()))
-                        .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
-                        .collect(Collectors.toSet());
-                msRunProvider.addScanSettings(mongoCvParams);
-                if(mongoCvParams.isEmpty())
-                    log.info("Non of the CVTerms provided in Scan Settings are supported by PRIDE Database");
-            }
+            if(metadata.getInstrumentProperties() != null)
+                msRunProvider.addInstrumentProperties(validTerms(metadata.getInstrumentProperties(), validator, stats, "Instrument Properties"));
+            if(metadata.getFileProperties() != null)
+                msRunProvider.addFileProperties(validTerms(metadata.getFileProperties(), validator, stats, "File Properties"));
+            if(metadata.getMsData() != null)
+                msRunProvider.addMsData(validTerms(metadata.getMsData(), validator, stats, "Ms Data"));
+            if(metadata.getScanSettings() != null)
+                msRunProvider.addScanSettings(validTerms(metadata.getScanSettings(), validator, stats, "Scan Settings"));
             if(metadata.getIdSettings() != null){
                 Set<IdSetting> idSettings = metadata.getIdSettings()
                         .stream()
@@ -82,6 +69,18 @@ public class MSRunTransfromer {
 
     }
 
+    private static Set<CvParam> validTerms(Collection<? extends CvParamProvider> terms, CvTermValidator validator, TermValidationStats stats,
+                                           String group){
+        Set<CvParam> mongoCvParams = terms
+                .stream()
+                .filter(x -> validator.isValid(x, stats))
+                .map(x -> new CvParam(x.getCvLabel(), x.getAccession(), x.getName(), x.getValue()))
+                .collect(Collectors.toSet());
+        if(mongoCvParams.isEmpty())
+            log.info("Non of the CVTerms provided in " + group + " are supported by PRIDE Database");
+        return mongoCvParams;
+    }
+
     public static MongoPrideMSRun transformMSRun(MongoPrideFile mongoPrideFile) {
         return new MongoPrideMSRun(mongoPrideFile);
     }
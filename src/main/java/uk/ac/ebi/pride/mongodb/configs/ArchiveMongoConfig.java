@@ -7,6 +7,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCountCache;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCountInvalidationListener;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryScanPolicy;
 
 /**
  * Configures the Mongo-based repositories. For details, see:
@@ -48,12 +52,33 @@ public class ArchiveMongoConfig extends AbstractPrideMongoConfiguration {
   @Value("${mongodb.projects.machine.uri}")
   private String mongoURI;
 
+  @Value("${pride.mongodb.query.scan-policy:WARN}")
+  private QueryScanPolicy scanPolicy;
+
+  @Value("${pride.mongodb.query.max-concurrent-scans:2}")
+  private int maxConcurrentScans;
+
   @Override
   @Bean(name = "archiveMongoTemplate")
   public MongoTemplate mongoTemplate() {
     return new MongoTemplate(super.mongoDbFactory());
   }
 
+  @Bean
+  public FilterCountInvalidationListener filterCountInvalidationListener() {
+    return new FilterCountInvalidationListener(FilterCountCache.getDefault());
+  }
+
+  /**
+   * Planner of the filter queries shared by all the repositories.
+   */
+  @Bean
+  public IndexAwareQueryPlanner queryPlanner() {
+    IndexAwareQueryPlanner queryPlanner = new IndexAwareQueryPlanner(mongoTemplate(), scanPolicy);
+    queryPlanner.setMaxConcurrentScans(maxConcurrentScans);
+    return queryPlanner;
+  }
+
   @Override
   protected String getDatabaseName() {
     return mongoProjectDatabase;
@@ -0,0 +1,198 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link AccessionBlockAllocator} leases blocks of sequence numbers from the counter collection ({@link uk.ac.ebi.pride.mongodb.archive.model.projects.CounterCollection})
+ * and hands them out locally. Every lease is a single atomic $inc on the counter, so several JVMs can allocate from the same
+ * sequence at the same time without ever receiving the same number. Numbers inside a block are handed out without locking, and
+ * the next block is leased in the background when the current one is running out.
+ *
+ * Numbers that are leased but never used (because the process stops) are lost, the allocator reports them when it is closed.
+ */
+public class AccessionBlockAllocator implements AutoCloseable {
+
+    /** Logger use to report the leases **/
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessionBlockAllocator.class);
+
+    private final MongoOperations mongoOperations;
+    private final String sequenceName;
+    private final int blockSize;
+    private final int prefetchThreshold;
+
+    private final AtomicReference<Block> currentBlock = new AtomicReference<>(Block.EMPTY);
+    private final AtomicReference<CompletableFuture<Block>> nextBlock = new AtomicReference<>();
+    private final ExecutorService leaseExecutor;
+
+    private final AtomicLong leasedNumbers = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Create an allocator for one sequence of the counter collection.
+     *
+     * @param mongoOperations   MongoOperations
+     * @param sequenceName      The sequence name (id of the counter document)
+     * @param blockSize         Number of accessions leased in every round trip
+     * @param prefetchThreshold When the current block has this number of accessions left, the next block is leased in background
+     */
+    public AccessionBlockAllocator(MongoOperations mongoOperations, String sequenceName, int blockSize, int prefetchThreshold) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("The block size must be positive -- " + blockSize);
+        this.mongoOperations = mongoOperations;
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+        this.prefetchThreshold = Math.max(0, Math.min(prefetchThreshold, blockSize - 1));
+        this.leaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "accession-lease-" + sequenceName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create an allocator that starts leasing the next block when a quarter of the current block is left.
+     *
+     * @param mongoOperations MongoOperations
+     * @param sequenceName    The sequence name (id of the counter document)
+     * @param blockSize       Number of accessions leased in every round trip
+     */
+    public AccessionBlockAllocator(MongoOperations mongoOperations, String sequenceName, int blockSize) {
+        this(mongoOperations, sequenceName, blockSize, blockSize / 4);
+    }
+
+    /**
+     * Return the next number of the sequence. The numbers are unique across all the allocators (and JVMs) that use the same
+     * sequence, but they are not consecutive between allocators.
+     *
+     * @return next number of the sequence
+     */
+    public long next() {
+        while (true) {
+            if (closed)
+                throw new IllegalStateException("The accession allocator has been closed -- " + sequenceName);
+            Block block = currentBlock.get();
+            long value = block.next.getAndIncrement();
+            if (value <= block.last) {
+                // Only one thread can get this value, so only one prefetch is triggered by block
+                if (block.last - value == prefetchThreshold)
+                    prefetch();
+                return value;
+            }
+            advance(block);
+        }
+    }
+
+    /**
+     * Number of accessions that have been leased from the database but not handed out yet.
+     *
+     * @return unused accessions.
+     */
+    public long getUnusedCount() {
+        long unused = currentBlock.get().remaining();
+        CompletableFuture<Block> future = nextBlock.get();
+        if (future != null && future.isDone() && !future.isCompletedExceptionally())
+            unused += future.join().remaining();
+        return unused;
+    }
+
+    /**
+     * Total number of accessions leased by this allocator from the counter collection.
+     *
+     * @return leased accessions
+     */
+    public long getLeasedCount() {
+        return leasedNumbers.get();
+    }
+
+    /**
+     * Stop the allocator and report the accessions that has been leased and will never be used.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        leaseExecutor.shutdown();
+        long unused = getUnusedCount();
+        if (unused > 0)
+            LOGGER.warn("The accession allocator for -- " + sequenceName + " has been closed with " + unused + " leased accessions unused (leased: " + leasedNumbers.get() + ")");
+        else
+            LOGGER.info("The accession allocator for -- " + sequenceName + " has been closed, all leased accessions have been used (leased: " + leasedNumbers.get() + ")");
+    }
+
+    /**
+     * Replace an exhausted block with the prefetched one (or a new lease). This is the only place where threads wait for each other, and it
+     * happens once by block.
+     *
+     * @param exhausted the block that has been exhausted
+     */
+    private synchronized void advance(Block exhausted) {
+        if (currentBlock.get() != exhausted)
+            return;
+        CompletableFuture<Block> future = nextBlock.getAndSet(null);
+        Block block = null;
+        if (future != null) {
+            try {
+                block = future.join();
+            } catch (RuntimeException ex) {
+                LOGGER.error("The background lease for -- " + sequenceName + " has failed, leasing a new block -- " + ex.getMessage());
+            }
+        }
+        if (block == null)
+            block = lease();
+        currentBlock.set(block);
+    }
+
+    private void prefetch() {
+        CompletableFuture<Block> future = new CompletableFuture<>();
+        if (nextBlock.compareAndSet(null, future)) {
+            try {
+                leaseExecutor.execute(() -> {
+                    try {
+                        future.complete(lease());
+                    } catch (RuntimeException ex) {
+                        future.completeExceptionally(ex);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // The executor has been shutdown, the next block will be leased synchronously.
+                nextBlock.compareAndSet(future, null);
+            }
+        }
+    }
+
+    private Block lease() {
+        long last = PrideMongoUtils.getNextSizedSequence(mongoOperations, sequenceName, blockSize);
+        leasedNumbers.addAndGet(blockSize);
+        LOGGER.debug("A new block of accessions has been leased for -- " + sequenceName + " [" + (last - blockSize + 1) + ", " + last + "]");
+        return new Block(last - blockSize + 1, last);
+    }
+
+    /**
+     * A leased block of the sequence, the numbers from first to last (both included) belong to this allocator.
+     */
+    private static class Block {
+
+        static final Block EMPTY = new Block(1, 0);
+
+        final AtomicLong next;
+        final long last;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        long remaining() {
+            return Math.max(0, last - next.get() + 1);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache with a maximum number of entries. When the cache is full the least recently used entry is evicted. The values are
+ * computed outside the lock, so a slow loader does not block the readers of other keys (two threads can compute the same value at the
+ * same time, only one of them is kept).
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache with a maximum number of entries.
+     *
+     * @param maxSize Maximum number of entries
+     */
+    public BoundedCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The cache size must be positive -- " + maxSize);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the value of a key, null if the key is not in the cache.
+     *
+     * @param key key
+     * @return value or null
+     */
+    public V get(K key) {
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Return the value of a key, if the key is not in the cache the value is computed and stored.
+     *
+     * @param key    key
+     * @param loader function that computes the value of a key, it must not return null
+     * @return value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            synchronized (entries) {
+                V current = entries.putIfAbsent(key, value);
+                if (current != null)
+                    value = current;
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache{size=" + size() + "/" + maxSize + ", hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "}";
+    }
+}
@@ -0,0 +1,32 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import lombok.Data;
+
+/**
+ * Number of documents inserted, matched and modified by a batch of upserts keyed on the accession.
+ */
+@Data
+public class BulkUpsertResult {
+
+    /** Documents that were not in the database and have been inserted **/
+    private long inserted;
+
+    /** Documents that were already in the database **/
+    private long matched;
+
+    /** Documents that were already in the database and have been changed **/
+    private long modified;
+
+    /**
+     * Add the counts of another batch to this result.
+     *
+     * @param other result of another batch
+     * @return this result
+     */
+    public BulkUpsertResult add(BulkUpsertResult other) {
+        inserted += other.inserted;
+        matched += other.matched;
+        modified += other.modified;
+        return this;
+    }
+}
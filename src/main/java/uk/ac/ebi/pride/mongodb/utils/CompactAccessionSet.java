@@ -0,0 +1,175 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Read-only set of accessions (PXD000001, PRD000001...) stored as sorted int arrays. Every accession made of a prefix of letters and a number
+ * padded to six digits is stored as the number in the array of its prefix, the other accessions are kept as sorted Strings. A lookup is a
+ * binary search and the set takes about 4 bytes by accession instead of a String and a hash entry.
+ *
+ * The accessions are iterated by prefix and then by number (PXD999999 before PXD1000000), the accessions that can not be encoded come last
+ * in String order.
+ */
+public final class CompactAccessionSet extends AbstractSet<String> {
+
+    private static final int NUMBER_DIGITS = 6;
+    private static final int MAX_NUMBER_DIGITS = 9;
+    private static final CompactAccessionSet EMPTY = new CompactAccessionSet(new String[0], new int[0][], new String[0]);
+
+    /** Sorted prefixes, and the sorted numbers of every prefix **/
+    private final String[] prefixes;
+    private final int[][] numbers;
+
+    /** Accessions that are not prefix + number, sorted **/
+    private final String[] others;
+
+    private final int size;
+
+    private CompactAccessionSet(String[] prefixes, int[][] numbers, String[] others) {
+        this.prefixes = prefixes;
+        this.numbers = numbers;
+        this.others = others;
+        int count = others.length;
+        for (int[] prefixNumbers : numbers)
+            count += prefixNumbers.length;
+        this.size = count;
+    }
+
+    public static CompactAccessionSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a set from a collection of accessions, the duplicates and null values are ignored.
+     *
+     * @param accessions accessions
+     * @return CompactAccessionSet
+     */
+    public static CompactAccessionSet of(Collection<String> accessions) {
+        return EMPTY.withAdded(accessions);
+    }
+
+    /**
+     * Return a set with the accessions of this set and the new accessions, this set is returned if all the accessions are already in it.
+     *
+     * @param accessions accessions to add
+     * @return CompactAccessionSet
+     */
+    public CompactAccessionSet withAdded(Collection<String> accessions) {
+        Map<String, List<Integer>> addedNumbers = new TreeMap<>();
+        TreeSet<String> addedOthers = new TreeSet<>();
+        for (String accession : accessions) {
+            if (accession == null || contains(accession))
+                continue;
+            int split = numberStart(accession);
+            if (split > 0)
+                addedNumbers.computeIfAbsent(accession.substring(0, split), x -> new ArrayList<>()).add(Integer.parseInt(accession.substring(split)));
+            else
+                addedOthers.add(accession);
+        }
+        if (addedNumbers.isEmpty() && addedOthers.isEmpty())
+            return this;
+
+        Map<String, int[]> merged = new TreeMap<>();
+        for (int i = 0; i < prefixes.length; i++)
+            merged.put(prefixes[i], numbers[i]);
+        addedNumbers.forEach((prefix, added) -> merged.put(prefix, merge(merged.get(prefix), added)));
+        addedOthers.addAll(Arrays.asList(others));
+        return new CompactAccessionSet(merged.keySet().toArray(new String[0]), merged.values().toArray(new int[0][]),
+                addedOthers.toArray(new String[0]));
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        if (!(value instanceof String))
+            return false;
+        String accession = (String) value;
+        int split = numberStart(accession);
+        if (split < 0)
+            return Arrays.binarySearch(others, accession) >= 0;
+        int prefix = Arrays.binarySearch(prefixes, accession.substring(0, split));
+        return prefix >= 0 && Arrays.binarySearch(numbers[prefix], Integer.parseInt(accession.substring(split))) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int prefix = 0;
+            private int number = 0;
+            private int other = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (prefix < prefixes.length && number >= numbers[prefix].length) {
+                    prefix++;
+                    number = 0;
+                }
+                return prefix < prefixes.length || other < others.length;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (prefix < prefixes.length)
+                    return format(prefixes[prefix], numbers[prefix][number++]);
+                return others[other++];
+            }
+        };
+    }
+
+    /**
+     * Position of the number of an accession that can be encoded (prefix of letters and a number that is written back the same way), -1 if
+     * the accession must be stored as a String.
+     */
+    private static int numberStart(String accession) {
+        int split = 0;
+        while (split < accession.length() && Character.isLetter(accession.charAt(split)))
+            split++;
+        int digits = accession.length() - split;
+        if (split == 0 || digits == 0 || digits > MAX_NUMBER_DIGITS)
+            return -1;
+        for (int i = split; i < accession.length(); i++)
+            if (accession.charAt(i) < '0' || accession.charAt(i) > '9')
+                return -1;
+        // PXD000001 is encoded, PXD1 and PXD0000001 are not because the padding would be lost
+        if (digits < NUMBER_DIGITS || (digits > NUMBER_DIGITS && accession.charAt(split) == '0'))
+            return -1;
+        return split;
+    }
+
+    private static String format(String prefix, int number) {
+        String digits = Integer.toString(number);
+        StringBuilder accession = new StringBuilder(prefix.length() + Math.max(NUMBER_DIGITS, digits.length())).append(prefix);
+        for (int i = digits.length(); i < NUMBER_DIGITS; i++)
+            accession.append('0');
+        return accession.append(digits).toString();
+    }
+
+    private static int[] merge(int[] current, List<Integer> added) {
+        int[] base = (current != null) ? current : new int[0];
+        int[] merged = Arrays.copyOf(base, base.length + added.size());
+        for (int i = 0; i < added.size(); i++)
+            merged[base.length + i] = added.get(i);
+        Arrays.sort(merged);
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++)
+            if (unique == 0 || merged[i] != merged[unique - 1])
+                merged[unique++] = merged[i];
+        return (unique == merged.length) ? merged : Arrays.copyOf(merged, unique);
+    }
+}
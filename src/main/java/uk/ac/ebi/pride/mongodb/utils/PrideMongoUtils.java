@@ -1,23 +1,38 @@
 package uk.ac.ebi.pride.mongodb.utils;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.ReflectionUtils;
 import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
-import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
 import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
-import uk.ac.ebi.pride.mongodb.archive.model.PrideFieldEnum;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.CounterCollection;
+import uk.ac.ebi.pride.mongodb.utils.count.FilterCountCache;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterClause;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryCompiler;
+import uk.ac.ebi.pride.mongodb.utils.filter.FilterQueryPlan;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @author ypriverol
@@ -27,6 +42,9 @@ public class PrideMongoUtils {
     /** Logger use to query and filter the data **/
     private static final Logger LOGGER = LoggerFactory.getLogger(PrideMongoUtils.class);
 
+    /** Error code returned by MongoDB when a unique index is violated **/
+    public static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+
     /**
      * This function generates an accession by incremented by the parameter size
      * @param seqName The collection in the MongoDB
@@ -43,50 +61,25 @@ public class PrideMongoUtils {
      * field1==value1, field2==value2, field=all=value2...
      *
      * @param filterQueryList Lists of Queries and filters
-     * @return LinkedMultiValueMap with the key and the values.
+     * @return List of (field, operator, value) filters, a modifiable copy of the parse cached by {@link FilterQueryCompiler}.
      */
     public static List<Triple<String, String, String>> parseFilterParameters(String ... filterQueryList){
-        List<Triple<String, String, String>> filters = new ArrayList<>();
-        Pattern composite = Pattern.compile("(.*)=(.*)=(.*)");
-        for(String filterQuery: filterQueryList){
-            if(filterQuery != null && !filterQuery.trim().isEmpty()){
-                String[] filtersString = (filterQuery).split(",");
-                if(filtersString.length > 0){
-                    Arrays.asList(filtersString).forEach(filter ->{
-                        String[] filterString = filter.split("==");
-                        Matcher matcher = composite.matcher(filter);
-                        if(filterString.length == 2)
-                            filters.add(new Triple<>(filterString[0], "is", filterString[1]));
-                        else if(matcher.find()){
-                            if(matcher.group(2).equalsIgnoreCase("in")) {
-//                                filters.add(new ImmutableTriple<>(matcher.group(1), matcher.group(2), matcher.group(3).replace("|", ",")));
-                                filters.add(new Triple<>(matcher.group(1), matcher.group(2), matcher.group(3)));
-                            }else{
-                                filters.add(new Triple<>(matcher.group(1), matcher.group(2), matcher.group(3)));
-                            }
-                        } else
-                            LOGGER.debug("The filter provided is not well-formatted, please format the filter in field:value -- " + filter);
-
-                    });
-                }
-            }
-        }
-        return filters;
+        // The parsed filters are cached by FilterQueryCompiler, a copy is returned because the callers can modify the List.
+        return new ArrayList<>(FilterQueryCompiler.getDefault().parse(filterQueryList));
     }
 
     /**
-     * Filter Criteria for Collection
+     * Filter Criteria for Collection, the filters are compiled by {@link FilterQueryCompiler} like the filters of {@link #buildQuery(List)}.
      * @param filters Filters to Create Criteria
-     * @return Final Criteria to Filter
+     * @return Final Criteria to Filter, null if there is no filter
      */
     public static Criteria buildCriteria(List<Triple<String,String, String>> filters) {
-        Criteria filterCriteria = null;
-        if(!filters.isEmpty()){
-            for(Triple filter: filters){
-                filterCriteria = convertStringToCriteria(filterCriteria, (String)filter.getFirst(), (String)filter.getSecond(), (String)filter.getThird());
-            }
-        }
-        return filterCriteria;
+        List<FilterClause> clauses = FilterQueryCompiler.getDefault().compile(filters).getClauses();
+        if (clauses.isEmpty())
+            return null;
+        if (clauses.size() == 1)
+            return clauses.get(0).toCriteria();
+        return new Criteria().andOperator(clauses.stream().map(FilterClause::toCriteria).toArray(Criteria[]::new));
     }
 
     /**
@@ -95,120 +88,242 @@ public class PrideMongoUtils {
      * @return Final Criteria to Filter
      */
     public static Query buildQuery(List<Triple<String,String, String>> filters) {
-        List<Criteria> filterCriteria = new ArrayList<>();
-        Query query = new Query();
-        if(!filters.isEmpty()){
-            for(Triple filter: filters){
-                filterCriteria.add(convertStringToCriteria((String)filter.getFirst(), (String)filter.getSecond(), (String)filter.getThird()));
-            }
-        }
-        if (filterCriteria.size() > 0){
-            query.addCriteria(new Criteria().andOperator(filterCriteria.toArray(new Criteria[filterCriteria.size()])));
-        }
-        return query;
-    }
-
-    private static Criteria convertStringToCriteria(Criteria filterCriteria, String filterField, String operator, String valueFilter) {
-        if(filterCriteria == null){
-            if (operator.equalsIgnoreCase("in"))
-                filterCriteria = new Criteria(filterField).in(valueFilter.split(","));
-            else if (operator.equalsIgnoreCase("is"))
-                filterCriteria = new Criteria(filterField).is(valueFilter);
-            else if (operator.equalsIgnoreCase("all"))
-                filterCriteria = new Criteria(filterField).all(valueFilter);
-            else if (operator.equalsIgnoreCase("range")) {
-                Tuple<Object, Object> betweenClass = parseBetweenObjects(parseFilterBetween(valueFilter), filterField);
-                filterCriteria = Criteria.where(filterField).gte(betweenClass.getKey()).lt(betweenClass.getValue());
-            } else if (operator.equalsIgnoreCase("regex")) {
-                filterCriteria = Criteria.where(filterField).regex(valueFilter);
-            }
-        }else{
-            if (operator.equalsIgnoreCase("in"))
-                filterCriteria = filterCriteria.andOperator(new Criteria(filterField).in(valueFilter.split(",")));
-            else if (operator.equalsIgnoreCase("is"))
-                filterCriteria = filterCriteria.andOperator(new Criteria(filterField).is(valueFilter));
-            else if (operator.equalsIgnoreCase("all"))
-                filterCriteria = filterCriteria.andOperator(new Criteria(filterField).all(valueFilter));
-            else if (operator.equalsIgnoreCase("range")) {
-                Tuple<Object, Object> betweenClass = parseBetweenObjects(parseFilterBetween(valueFilter), filterField);
-                filterCriteria = Criteria.where(filterField).gte(betweenClass.getKey()).lt(betweenClass.getValue());
-            } else if (operator.equalsIgnoreCase("regex")) {
-                filterCriteria = filterCriteria.andOperator(new Criteria(filterField).regex(valueFilter));
-            }
+        return FilterQueryCompiler.getDefault().compile(filters).toQuery();
+    }
 
-        }
-        return filterCriteria;
-    }
-
-    private static Criteria convertStringToCriteria(String filterField, String operator, String valueFilter) {
-        Criteria filterCriteria = null;
-        if (operator.equalsIgnoreCase("in"))
-            filterCriteria = new Criteria(filterField).in(valueFilter.split(","));
-        else if (operator.equalsIgnoreCase("is"))
-            filterCriteria = new Criteria(filterField).is(valueFilter);
-        else if (operator.equalsIgnoreCase("all"))
-            filterCriteria = new Criteria(filterField).all(valueFilter);
-        else if (operator.equalsIgnoreCase("range")) {
-            Tuple<Object, Object> betweenClass = parseBetweenObjects(parseFilterBetween(valueFilter), filterField);
-            filterCriteria = Criteria.where(filterField).gte(betweenClass.getKey()).lt(betweenClass.getValue());
-        } else if (operator.equalsIgnoreCase("regex")) {
-            filterCriteria = Criteria.where(filterField).regex(valueFilter);
-        }
-        return filterCriteria;
+    /**
+     * Compile filter strings into a cached {@link FilterQueryPlan}, the plan creates a new {@link Query} for every request.
+     * @param filterQueryList Lists of Queries and filters
+     * @return FilterQueryPlan
+     */
+    public static FilterQueryPlan compileFilterQuery(String ... filterQueryList) {
+        return FilterQueryCompiler.getDefault().compile(filterQueryList);
+    }
+
+    /**
+     * Convert one filter (field, operator, value) into a Criteria with the values converted to the type of the field ({@link FilterClause}).
+     * The operators supported are in, is, all, range and regex.
+     * @param filterField Field to filter
+     * @param operator Operator
+     * @param valueFilter Value of the filter
+     * @return Criteria, null if the operator is not supported
+     */
+    public static Criteria buildFilterCriteria(String filterField, String operator, String valueFilter) {
+        FilterClause clause = FilterClause.of(filterField, operator, valueFilter);
+        return (clause != null) ? clause.toCriteria() : null;
+    }
+
+    /**
+     * Split a List in consecutive sub-lists of the same size (the last one can be smaller). The sub-lists are views of the original List.
+     * @param values List to split
+     * @param batchSize size of each sub-list
+     * @return List of batches
+     */
+    public static <T> List<List<T>> partition(List<T> values, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batch size must be positive -- " + batchSize);
+        List<List<T>> batches = new ArrayList<>();
+        for (int start = 0; start < values.size(); start += batchSize)
+            batches.add(values.subList(start, Math.min(start + batchSize, values.size())));
+        return batches;
     }
 
     /**
-     * PArse the values between a Range.
-     * @param stringTuple The Tuple containing the first Value of the range and the Second value.
-     * @param filterField The filterField.
-     * @return The Obejcts to filter,
+     * Return the positions (in the batch) of the documents that has failed in an unordered bulk write because of a duplicate key. If the
+     * exception is not a bulk write exception, or it contains errors that are not duplicate keys, the original exception is thrown.
+     *
+     * @param ex Exception thrown by the bulk write
+     * @return Positions of the duplicated documents in the batch
      */
-    private static Tuple<Object, Object> parseBetweenObjects(Tuple<String, String> stringTuple, String filterField) {
-        Class classType = String.class;
-        Tuple<Object, Object> resultTuple = new Tuple<>(stringTuple.getKey(), stringTuple.getValue());
-        for(PrideFieldEnum field: PrideFieldEnum.values()){
-            if(field.getFieldName().equalsIgnoreCase(filterField)){
-                classType = field.getClassType();
+    public static Set<Integer> getDuplicateKeyIndexes(RuntimeException ex) {
+        Set<Integer> indexes = new TreeSet<>();
+        Throwable cause = ex;
+        while (cause != null) {
+            if (cause instanceof MongoBulkWriteException) {
+                MongoBulkWriteException bulkException = (MongoBulkWriteException) cause;
+                if (bulkException.getWriteConcernError() != null)
+                    throw ex;
+                for (com.mongodb.bulk.BulkWriteError error : bulkException.getWriteErrors()) {
+                    if (error.getCode() != DUPLICATE_KEY_ERROR_CODE)
+                        throw ex;
+                    indexes.add(error.getIndex());
+                }
+                return indexes;
             }
+            if (cause instanceof BulkOperationException) {
+                for (com.mongodb.BulkWriteError error : ((BulkOperationException) cause).getErrors()) {
+                    if (error.getCode() != DUPLICATE_KEY_ERROR_CODE)
+                        throw ex;
+                    indexes.add(error.getIndex());
+                }
+                return indexes;
+            }
+            cause = (cause.getCause() != cause) ? cause.getCause() : null;
         }
-        try{
-            if(classType == Date.class){
-                Date date = new SimpleDateFormat("yyyy-MM-dd").parse(stringTuple.getKey());
-                Date startDate = uk.ac.ebi.pride.utilities.util.DateUtils.atStartOfDay(date);
+        throw ex;
+    }
 
-                date = new SimpleDateFormat("yyyy-MM-dd").parse(stringTuple.getValue());
-                Date endDate = uk.ac.ebi.pride.utilities.util.DateUtils.atEndOfDay(date);
-                resultTuple = new Tuple<>(startDate, endDate);
+    /**
+     * Search by Accessions if any accession contains one of the values in the List.
+     * @param accessions List of Accessions
+     * @return accessions.
+     */
+    public static Criteria builQueryByAccessions(Collection<String> accessions) {
+        return new Criteria(PrideArchiveField.ACCESSION).in(accessions);
+    }
 
+    /**
+     * Convert an entity into the document stored in MongoDB without the _id, so it can be used as replacement or $setOnInsert of a
+     * document identified by its accession.
+     *
+     * @param mongo  MongoOperations
+     * @param entity entity to convert
+     * @return Document without _id
+     */
+    public static Document toDocumentWithoutId(MongoOperations mongo, Object entity) {
+        Document document = new Document();
+        mongo.getConverter().write(entity, document);
+        document.remove("_id");
+        return document;
+    }
 
-            }
-        }catch(ParseException ex){
-            LOGGER.error(ex.getMessage());
+    /**
+     * Copy of a cached entity for one caller, without mapping it again: the fields are copied and the collections, maps and dates are new
+     * instances, so the caller can set fields and add or remove elements without changing the cached entity. The elements of the
+     * collections (CvParams, contacts...) are shared with the cached entity and must not be modified in place.
+     *
+     * @param entity  entity to copy
+     * @param factory creates an empty instance of the class of the entity
+     * @return copy of the entity, null if the entity is null
+     */
+    public static <T> T copyEntity(T entity, Supplier<? extends T> factory) {
+        if (entity == null)
+            return null;
+        T copy = factory.get();
+        if (copy.getClass() != entity.getClass())
+            throw new IllegalArgumentException("The factory creates a " + copy.getClass().getName() + " for a " + entity.getClass().getName());
+        ReflectionUtils.doWithFields(entity.getClass(), field -> {
+            ReflectionUtils.makeAccessible(field);
+            field.set(copy, copyFieldValue(field.get(entity)));
+        }, ReflectionUtils.COPYABLE_FIELDS);
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyFieldValue(Object value) {
+        if (value instanceof SortedSet)
+            return new TreeSet<>((SortedSet<Object>) value);
+        if (value instanceof Set)
+            return new LinkedHashSet<>((Set<?>) value);
+        if (value instanceof Collection)
+            return new ArrayList<>((Collection<?>) value);
+        if (value instanceof Map)
+            return new LinkedHashMap<>((Map<?, ?>) value);
+        if (value instanceof Date)
+            return new Date(((Date) value).getTime());
+        return value;
+    }
+
+    /**
+     * Deep copy of a query document: the nested Documents, Maps, Lists and Dates are copied, so the copy can be changed without changing
+     * the original (cached) document.
+     *
+     * @param document Document to copy
+     * @return copy of the Document
+     */
+    public static Document deepCopy(Document document) {
+        Document copy = new Document();
+        document.forEach((key, value) -> copy.put(key, deepCopyValue(value)));
+        return copy;
+    }
+
+    private static Object deepCopyValue(Object value) {
+        if (value instanceof Document)
+            return deepCopy((Document) value);
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, item) -> copy.put(key, deepCopyValue(item)));
+            return copy;
         }
-        return resultTuple;
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object item : (Collection<?>) value)
+                copy.add(deepCopyValue(item));
+            return copy;
+        }
+        if (value instanceof Date)
+            return new Date(((Date) value).getTime());
+        return value;
+    }
 
+    /**
+     * Insert an entity if no document with the same accession exists, in one round trip ($setOnInsert with upsert on the unique accession).
+     * An existing document is never modified.
+     *
+     * @param mongo     MongoOperations
+     * @param entity    entity to insert
+     * @param accession accession of the entity
+     * @return _id of the new document, or null if a document with the same accession was already in the database
+     */
+    public static ObjectId insertByAccession(MongoOperations mongo, Object entity, String accession) {
+        Document document = toDocumentWithoutId(mongo, entity);
+        UpdateResult result = mongo.execute(entity.getClass(), collection -> collection.updateOne(Filters.eq(PrideArchiveField.ACCESSION, accession),
+                new Document("$setOnInsert", document), new UpdateOptions().upsert(true)));
+        FilterCountCache.getDefault().invalidate(mongo.getCollectionName(entity.getClass()));
+        return (result.getUpsertedId() != null) ? result.getUpsertedId().asObjectId().getValue() : null;
     }
 
     /**
-     * Parse a Range String
-     * @param valueFilter Value String
-     * @return a Tuple of Start and End Values.
+     * Replace the document with the same accession in one round trip (findOneAndReplace on the unique accession). The _id of the stored
+     * document is kept.
+     *
+     * @param mongo     MongoOperations
+     * @param entity    entity to store
+     * @param accession accession of the entity
+     * @param upsert    insert the entity if no document with the same accession exists
+     * @return _id of the stored document, or null if upsert is false and no document with the same accession exists
      */
-    private static Tuple<String, String> parseFilterBetween(String valueFilter) {
-        Pattern composite = Pattern.compile("\\[(.*)TO(.*)\\]");
-        Matcher matcher = composite.matcher(valueFilter);
-        Tuple<String, String> queries = null;
-        if(matcher.find())
-             queries = new Tuple<>(matcher.group(1).trim(), matcher.group(2).trim());
-        return queries;
+    public static ObjectId replaceByAccession(MongoOperations mongo, Object entity, String accession, boolean upsert) {
+        Document document = toDocumentWithoutId(mongo, entity);
+        Document stored = mongo.execute(entity.getClass(), collection -> collection.findOneAndReplace(Filters.eq(PrideArchiveField.ACCESSION, accession),
+                document, new FindOneAndReplaceOptions().upsert(upsert).returnDocument(ReturnDocument.AFTER).projection(new Document("_id", 1))));
+        FilterCountCache.getDefault().invalidate(mongo.getCollectionName(entity.getClass()));
+        return (stored != null) ? stored.getObjectId("_id") : null;
     }
 
     /**
-     * Search by Accessions if any accession contains one of the values in the List.
-     * @param accessions List of Accessions
-     * @return accessions.
+     * Batch version of {@link #insertByAccession(MongoOperations, Object, String)} and {@link #replaceByAccession(MongoOperations, Object, String, boolean)}
+     * with upsert. The entities are sent in unordered bulk writes of batchSize documents, if the same accession is more than once in the
+     * List only the last entity is written.
+     *
+     * @param mongo           MongoOperations
+     * @param entityClass     Class of the entities, it defines the collection
+     * @param entities        entities to write
+     * @param accession       function that returns the accession of an entity
+     * @param replaceExisting if true the existing documents are replaced, if false they are left untouched
+     * @param batchSize       number of documents by bulk write
+     * @return inserted, matched and modified counts
      */
-    public static Criteria builQueryByAccessions(Collection<String> accessions) {
-        return new Criteria(PrideArchiveField.ACCESSION).in(accessions);
+    public static <T> BulkUpsertResult bulkUpsertByAccession(MongoOperations mongo, Class<T> entityClass, Collection<? extends T> entities,
+                                                             Function<T, String> accession, boolean replaceExisting, int batchSize) {
+        Map<String, WriteModel<Document>> writes = new LinkedHashMap<>();
+        for (T entity : entities) {
+            String key = accession.apply(entity);
+            Document document = toDocumentWithoutId(mongo, entity);
+            writes.put(key, replaceExisting
+                    ? new ReplaceOneModel<>(Filters.eq(PrideArchiveField.ACCESSION, key), document, new UpdateOptions().upsert(true))
+                    : new UpdateOneModel<>(Filters.eq(PrideArchiveField.ACCESSION, key), new Document("$setOnInsert", document), new UpdateOptions().upsert(true)));
+        }
+        BulkUpsertResult total = new BulkUpsertResult();
+        for (List<WriteModel<Document>> batch : partition(new ArrayList<>(writes.values()), batchSize)) {
+            BulkWriteResult result = mongo.execute(entityClass, collection -> collection.bulkWrite(batch, new BulkWriteOptions().ordered(false)));
+            BulkUpsertResult batchResult = new BulkUpsertResult();
+            batchResult.setInserted(result.getUpserts().size());
+            batchResult.setMatched(result.getMatchedCount());
+            batchResult.setModified(result.getModifiedCount());
+            total.add(batchResult);
+        }
+        FilterCountCache.getDefault().invalidate(mongo.getCollectionName(entityClass));
+        return total;
     }
 }
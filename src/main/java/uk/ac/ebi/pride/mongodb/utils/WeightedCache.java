@@ -0,0 +1,283 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe read-through cache bounded by the total weight of its values instead of the number of entries, the weight of every value is
+ * estimated by a weigher (for example the approximate size of a document in memory). When the cache is heavier than the maximum weight the
+ * least recently used entries are evicted. A value heavier than the whole cache is never stored.
+ *
+ * The values are loaded outside the lock. Every invalidation increases the version of the cache, and a value loaded while the cache has been
+ * invalidated is returned but not stored, so a read that runs at the same time as a write never leaves the old value in the cache.
+ *
+ * Optionally the entries expire a time after they are stored, an expired entry is removed when it is read and the read is a miss. The
+ * expiration bounds how old a value can be when the database is written by other processes.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class WeightedCache<K, V> {
+
+    private final ToLongFunction<? super V> weigher;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, WeightedValue<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long maxWeight;
+    private volatile long expireAfterWriteMillis;
+    private long weight;
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Create a cache with a maximum weight.
+     *
+     * @param maxWeight Maximum total weight of the values, 0 disables the cache
+     * @param weigher   Function that estimates the weight of a value
+     */
+    public WeightedCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this(maxWeight, weigher, System::currentTimeMillis);
+    }
+
+    WeightedCache(long maxWeight, ToLongFunction<? super V> weigher, LongSupplier clock) {
+        if (maxWeight < 0)
+            throw new IllegalArgumentException("The weight of the cache can not be negative -- " + maxWeight);
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the value of a key, null if the key is not in the cache.
+     *
+     * @param key key
+     * @return value or null
+     */
+    public V get(K key) {
+        WeightedValue<V> value;
+        synchronized (entries) {
+            value = entries.get(key);
+            if (value != null && isExpired(value)) {
+                entries.remove(key);
+                weight -= value.weight;
+                expirations.incrementAndGet();
+                value = null;
+            }
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        return (value != null) ? value.value : null;
+    }
+
+    /**
+     * Return the value of a key, if the key is not in the cache the value is loaded and stored.
+     *
+     * @param key    key
+     * @param loader function that loads the value of a key, null if the key does not exist (null values are not cached)
+     * @return value or null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            long loadVersion = version.get();
+            value = loader.apply(key);
+            if (value != null)
+                store(key, value, loadVersion);
+        }
+        return value;
+    }
+
+    /**
+     * Load a group of values with one call and store them by their keys, for example to warm up the cache. The values are not stored if
+     * the cache is invalidated during the load, and nothing is loaded if the cache is disabled.
+     *
+     * @param loader      function that loads the values
+     * @param keyFunction function that returns the key of a value
+     * @return number of values stored
+     */
+    public int load(Supplier<? extends Collection<? extends V>> loader, Function<? super V, ? extends K> keyFunction) {
+        if (maxWeight == 0)
+            return 0;
+        long loadVersion = version.get();
+        int stored = 0;
+        for (V value : loader.get())
+            if (value != null && store(keyFunction.apply(value), value, loadVersion))
+                stored++;
+        return stored;
+    }
+
+    public void put(K key, V value) {
+        store(key, value, -1);
+    }
+
+    /**
+     * Remove a key from the cache, it must be called when the value of the key is written.
+     *
+     * @param key key
+     */
+    public void invalidate(K key) {
+        version.incrementAndGet();
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            WeightedValue<V> removed = entries.remove(key);
+            if (removed != null)
+                weight -= removed.weight;
+        }
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Change the maximum weight of the cache, the least recently used entries are evicted if the cache is heavier than the new maximum.
+     *
+     * @param maxWeight Maximum total weight of the values, 0 disables the cache
+     */
+    public void setMaxWeight(long maxWeight) {
+        if (maxWeight < 0)
+            throw new IllegalArgumentException("The weight of the cache can not be negative -- " + maxWeight);
+        synchronized (entries) {
+            this.maxWeight = maxWeight;
+            evictToMaxWeight();
+        }
+    }
+
+    /**
+     * Time after which a stored entry expires, the entries already in the cache use the new time.
+     *
+     * @param expireAfterWriteMillis time in milliseconds, 0 for entries that never expire
+     */
+    public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+        if (expireAfterWriteMillis < 0)
+            throw new IllegalArgumentException("The expiration of the cache can not be negative -- " + expireAfterWriteMillis);
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    public long getExpireAfterWriteMillis() {
+        return expireAfterWriteMillis;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return total weight of the values in the cache
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries removed to keep the cache under its maximum weight
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of calls to {@link #invalidate(Object)} and {@link #clear()}
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return number of expired entries removed when they were read
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    /**
+     * @return hits divided by the number of reads, 0 if the cache has not been read
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long reads = hitCount + misses.get();
+        return (reads == 0) ? 0 : (double) hitCount / reads;
+    }
+
+    private boolean store(K key, V value, long loadVersion) {
+        long valueWeight = Math.max(1, weigher.applyAsLong(value));
+        synchronized (entries) {
+            // A value loaded before an invalidation may be older than the database
+            if (loadVersion >= 0 && loadVersion != version.get())
+                return false;
+            if (valueWeight > maxWeight) {
+                WeightedValue<V> removed = entries.remove(key);
+                if (removed != null)
+                    weight -= removed.weight;
+                return false;
+            }
+            WeightedValue<V> previous = entries.put(key, new WeightedValue<>(value, valueWeight, clock.getAsLong()));
+            weight += valueWeight - ((previous != null) ? previous.weight : 0);
+            evictToMaxWeight();
+            return true;
+        }
+    }
+
+    private boolean isExpired(WeightedValue<V> value) {
+        long expiration = expireAfterWriteMillis;
+        return expiration > 0 && clock.getAsLong() - value.storedAt >= expiration;
+    }
+
+    private void evictToMaxWeight() {
+        Iterator<WeightedValue<V>> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WeightedCache{size=" + size() + ", weight=" + getWeight() + "/" + maxWeight + ", hits=" + hits.get() + ", misses=" + misses.get()
+                + ", evictions=" + evictions.get() + ", invalidations=" + invalidations.get() + ", expirations=" + expirations.get() + "}";
+    }
+
+    private static final class WeightedValue<V> {
+
+        final V value;
+        final long weight;
+        final long storedAt;
+
+        WeightedValue(V value, long weight, long storedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.storedAt = storedAt;
+        }
+    }
+}
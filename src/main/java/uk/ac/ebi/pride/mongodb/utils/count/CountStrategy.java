@@ -0,0 +1,19 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+/**
+ * How the total number of results of a paged search is computed.
+ */
+public enum CountStrategy {
+
+    /** Count all the documents that match the filter in every request **/
+    EXACT,
+
+    /** Count the documents that match the filter and keep the count for a short time, writes of this library invalidate it **/
+    CACHED,
+
+    /** Count the documents that match the filter up to a limit, the total is reported as "limit+" when there are more **/
+    CAPPED,
+
+    /** Use the number of documents in the collection metadata when there is no filter, the count is CACHED otherwise **/
+    ESTIMATED
+}
@@ -0,0 +1,47 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A {@link org.springframework.data.domain.Page} that knows how its total has been computed. When the total is capped, {@link #getTotalElements()}
+ * returns the cap and the search has more results ("10000+").
+ *
+ * @param <T> type of the results
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountStrategy countStrategy;
+    private final boolean totalCapped;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy, boolean totalCapped) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+        this.totalCapped = totalCapped;
+    }
+
+    /**
+     * @return strategy used to compute the total, null if the total is known from the page itself
+     */
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    /**
+     * @return true if the search has more results than {@link #getTotalElements()}
+     */
+    public boolean isTotalCapped() {
+        return totalCapped;
+    }
+
+    /**
+     * Total to show to the users, for example "10000+" when the total is capped.
+     *
+     * @return total as text
+     */
+    public String getTotalLabel() {
+        return totalCapped ? getTotalElements() + "+" : String.valueOf(getTotalElements());
+    }
+}
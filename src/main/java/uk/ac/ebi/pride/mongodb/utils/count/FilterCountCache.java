@@ -0,0 +1,105 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+import uk.ac.ebi.pride.mongodb.utils.BoundedCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the number of documents that match a compiled filter in a collection. A count expires after a fixed time, and all the counts of a
+ * collection are discarded when the collection is written by this library ({@link #invalidate(String)}). Every collection has a generation
+ * number that is increased by the invalidation, a count computed while the collection was written is never returned after the write.
+ */
+public class FilterCountCache {
+
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final FilterCountCache DEFAULT = new FilterCountCache(DEFAULT_CACHE_SIZE, DEFAULT_TTL_MILLIS);
+
+    private final BoundedCache<String, CachedCount> counts;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private volatile long ttlMillis;
+
+    public FilterCountCache(int cacheSize, long ttlMillis) {
+        this.counts = new BoundedCache<>(cacheSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Cache shared by all the repositories of the library.
+     *
+     * @return FilterCountCache
+     */
+    public static FilterCountCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the count of a filter in a collection, the count is computed if it is not in the cache or it has expired.
+     *
+     * @param collection collection name
+     * @param filterKey  key of the compiled filter
+     * @param counter    function that counts the documents in the database
+     * @return number of documents that match the filter
+     */
+    public long get(String collection, String filterKey, LongSupplier counter) {
+        String key = collection + '\u0002' + filterKey;
+        long generation = generation(collection).get();
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.generation == generation && now - cached.countedAt <= ttlMillis)
+            return cached.count;
+        long count = counter.getAsLong();
+        // The count is only kept if the collection has not been written while counting
+        if (generation(collection).get() == generation)
+            counts.put(key, new CachedCount(count, generation, now));
+        return count;
+    }
+
+    /**
+     * Discard all the counts of a collection, it must be called after every write to the collection.
+     *
+     * @param collection collection name
+     */
+    public void invalidate(String collection) {
+        generation(collection).incrementAndGet();
+    }
+
+    public void clear() {
+        counts.clear();
+        generations.values().forEach(AtomicLong::incrementAndGet);
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public BoundedCache<String, ?> getCounts() {
+        return counts;
+    }
+
+    private AtomicLong generation(String collection) {
+        return generations.computeIfAbsent(collection, x -> new AtomicLong());
+    }
+
+    private static final class CachedCount {
+
+        final long count;
+        final long generation;
+        final long countedAt;
+
+        CachedCount(long count, long generation, long countedAt) {
+            this.count = count;
+            this.generation = generation;
+            this.countedAt = countedAt;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+/**
+ * Discards the cached counts of a collection when a document is saved or deleted through the {@link org.springframework.data.mongodb.core.MongoTemplate}
+ * or the repositories. Bulk writes do not publish events, they invalidate the {@link FilterCountCache} themselves.
+ */
+public class FilterCountInvalidationListener extends AbstractMongoEventListener<Object> {
+
+    private final FilterCountCache countCache;
+
+    public FilterCountInvalidationListener(FilterCountCache countCache) {
+        this.countCache = countCache;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        if (event.getCollectionName() != null)
+            countCache.invalidate(event.getCollectionName());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (event.getCollectionName() != null)
+            countCache.invalidate(event.getCollectionName());
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+import com.mongodb.client.model.CountOptions;
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryExecutionPlan;
+
+import java.util.List;
+
+/**
+ * Computes the total of a paged filter search with a {@link CountStrategy}. The count is skipped, as in
+ * {@link org.springframework.data.repository.support.PageableExecutionUtils}, when the page itself tells the total (first page not full or
+ * last page).
+ */
+public final class FilterCounter {
+
+    /** Maximum number of documents counted by {@link CountStrategy#CAPPED} **/
+    public static final int DEFAULT_COUNT_CAP = 10000;
+
+    private FilterCounter() {
+    }
+
+    /**
+     * Build the page of a filter search.
+     *
+     * @param content       results of the page
+     * @param pageable      page requested
+     * @param mongo         MongoOperations
+     * @param entityClass   entity of the collection
+     * @param plan          plan of the filter
+     * @param countStrategy how the total is computed
+     * @param <T>           entity of the collection
+     * @return CountedPage
+     */
+    public static <T> CountedPage<T> getPage(List<T> content, Pageable pageable, MongoOperations mongo, Class<?> entityClass,
+                                             QueryExecutionPlan plan, CountStrategy countStrategy) {
+        if (pageable.isUnpaged() || (pageable.getOffset() == 0 && pageable.getPageSize() > content.size()))
+            return new CountedPage<>(content, pageable, content.size(), null, false);
+        if (!content.isEmpty() && pageable.getPageSize() > content.size())
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), null, false);
+
+        switch (countStrategy) {
+            case CAPPED:
+                long capped = countCapped(mongo, entityClass, plan.toQuery(), DEFAULT_COUNT_CAP);
+                return new CountedPage<>(content, pageable, Math.min(capped, DEFAULT_COUNT_CAP), countStrategy, capped > DEFAULT_COUNT_CAP);
+            case ESTIMATED:
+                if (plan.isEmpty())
+                    return new CountedPage<>(content, pageable, countEstimated(mongo, entityClass), countStrategy, false);
+                return new CountedPage<>(content, pageable, countCached(mongo, entityClass, plan), CountStrategy.CACHED, false);
+            case CACHED:
+                return new CountedPage<>(content, pageable, countCached(mongo, entityClass, plan), countStrategy, false);
+            default:
+                return new CountedPage<>(content, pageable, mongo.count(plan.toQuery(), entityClass), CountStrategy.EXACT, false);
+        }
+    }
+
+    /**
+     * Count the documents of a filter, the count is kept in {@link FilterCountCache#getDefault()}.
+     */
+    public static long countCached(MongoOperations mongo, Class<?> entityClass, QueryExecutionPlan plan) {
+        return FilterCountCache.getDefault().get(mongo.getCollectionName(entityClass), plan.getKey(), () -> mongo.count(plan.toQuery(), entityClass));
+    }
+
+    /**
+     * Count the documents of a query up to cap + 1, the server stops counting when the limit is reached.
+     */
+    public static long countCapped(MongoOperations mongo, Class<?> entityClass, Query query, int cap) {
+        Document filter = new QueryMapper(mongo.getConverter()).getMappedObject(query.getQueryObject(),
+                mongo.getConverter().getMappingContext().getPersistentEntity(entityClass));
+        return mongo.execute(entityClass, collection -> collection.count(filter, new CountOptions().limit(cap + 1)));
+    }
+
+    /**
+     * Number of documents of the collection from the collection metadata. The count command without filter does not read the documents
+     * (this is what estimatedDocumentCount does in newer drivers).
+     */
+    public static long countEstimated(MongoOperations mongo, Class<?> entityClass) {
+        return mongo.execute(entityClass, collection -> collection.count());
+    }
+}
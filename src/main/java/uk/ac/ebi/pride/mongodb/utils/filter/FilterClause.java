@@ -0,0 +1,275 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParam;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideFieldEnum;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One typed clause of a filter query (field, operator, values). The field is resolved with {@link PrideFieldEnum#fromFieldName(String)}
+ * and the values are converted to the type of the field (Long, Integer, Double, Boolean, Date), so the query compares values of the same
+ * type as the stored documents and can use their indexes. For {@link CvParam} fields the value is the CV accession and the clause filters
+ * the accession of the term. Fields that are not in {@link PrideFieldEnum} are compared as Strings.
+ *
+ * The sizes are stored in bytes: a filter on fileSizeMB takes megabytes (decimals are allowed) and they are converted to bytes, a filter on
+ * fileSizeBytes takes bytes.
+ *
+ * A clause can be negated (!field==value) and the OR groups ((a;b,c)) are clauses made of one clause by branch, a branch with several
+ * filters is an AND clause.
+ */
+public final class FilterClause {
+
+    private static final Pattern RANGE_VALUE = Pattern.compile("\\[(.*)TO(.*)\\]");
+    private static final Pattern VALUE_SEPARATOR = Pattern.compile("[|,]");
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+    private static final String CV_ACCESSION = "accession";
+    private static final long BYTES_BY_MB = 1024L * 1024L;
+    private static final Pattern GROUP_BRANCH_SEPARATOR = Pattern.compile(";");
+    private static final Pattern BRANCH_FILTER_SEPARATOR = Pattern.compile(",");
+
+    /** Prefix of the negated operators and filters **/
+    static final String NEGATION = "!";
+
+    private final String field;
+    private final FilterOperator operator;
+    private final List<Object> values;
+    private final PrideFieldEnum prideField;
+    private final List<FilterClause> children;
+    private final boolean negated;
+
+    private FilterClause(String field, FilterOperator operator, List<Object> values, PrideFieldEnum prideField,
+                         List<FilterClause> children, boolean negated) {
+        this.field = field;
+        this.operator = operator;
+        this.values = Collections.unmodifiableList(values);
+        this.prideField = prideField;
+        this.children = Collections.unmodifiableList(children);
+        this.negated = negated;
+    }
+
+    /**
+     * Parse a filter (field, operator, value) into a typed clause.
+     *
+     * A negated operator starts with ! (!is, !in...) and the value of the or operator is the content of the group (a;b,c).
+     *
+     * @param field    field of the filter
+     * @param operator operator of the filter
+     * @param value    value of the filter
+     * @return FilterClause, or null if the operator is not supported
+     * @throws IllegalArgumentException if the value can not be converted to the type of the field or the group is not valid
+     */
+    public static FilterClause of(String field, String operator, String value) {
+        if (operator == null)
+            return null;
+        String trimmedOperator = operator.trim();
+        boolean negated = trimmedOperator.startsWith(NEGATION);
+        FilterOperator filterOperator = FilterOperator.fromString(negated ? trimmedOperator.substring(NEGATION.length()) : trimmedOperator);
+        if (filterOperator == null || filterOperator == FilterOperator.AND)
+            return null;
+        if (filterOperator == FilterOperator.OR)
+            return group(value, negated);
+        String trimmedField = field.trim();
+        PrideFieldEnum prideField = PrideFieldEnum.fromFieldName(trimmedField);
+        Class<?> type = (prideField != null) ? prideField.getClassType() : String.class;
+        String documentField = trimmedField;
+        if (prideField != null) {
+            documentField = prideField.getDocumentField();
+            if (type == CvParam.class && filterOperator != FilterOperator.REGEX)
+                documentField = documentField + "." + CV_ACCESSION;
+        }
+
+        boolean megabytes = prideField == PrideFieldEnum.FILE_SIZE_MB && !trimmedField.replace("_", "").equalsIgnoreCase(prideField.getDocumentField());
+
+        List<Object> values = new ArrayList<>();
+        switch (filterOperator) {
+            case IS:
+                values.add(coerce(trimmedField, type, value, megabytes));
+                break;
+            case IN:
+            case ALL:
+                for (String item : VALUE_SEPARATOR.split(value))
+                    if (!item.trim().isEmpty())
+                        values.add(coerce(trimmedField, type, item, megabytes));
+                break;
+            case RANGE:
+                Matcher matcher = RANGE_VALUE.matcher(value);
+                if (!matcher.find())
+                    throw new IllegalArgumentException("The range filter must have the format [start TO end] -- " + field + "=range=" + value);
+                values.add(coerce(trimmedField, type, matcher.group(1), megabytes));
+                values.add(coerce(trimmedField, type, matcher.group(2), megabytes));
+                if (type == Date.class)
+                    values.set(1, uk.ac.ebi.pride.utilities.util.DateUtils.atEndOfDay((Date) values.get(1)));
+                break;
+            case REGEX:
+                values.add(value);
+                break;
+        }
+        return new FilterClause(documentField, filterOperator, values, prideField, Collections.emptyList(), negated);
+    }
+
+    /**
+     * Parse the content of an OR group: the branches are separated by ; and the filters of a branch by ,. Groups can not be nested and
+     * every filter of the group must be valid, a filter that is ignored would change the meaning of the whole group.
+     *
+     * @param group   content of the group without the parentheses
+     * @param negated true if no branch of the group must match
+     * @return OR FilterClause
+     */
+    private static FilterClause group(String group, boolean negated) {
+        List<FilterClause> branches = new ArrayList<>();
+        for (String branch : GROUP_BRANCH_SEPARATOR.split(group)) {
+            List<FilterClause> branchClauses = new ArrayList<>();
+            for (String filter : BRANCH_FILTER_SEPARATOR.split(branch)) {
+                if (filter.trim().isEmpty())
+                    continue;
+                Triple<String, String, String> parsed = FilterQueryCompiler.parseTerm(filter.trim());
+                FilterClause clause = (parsed != null) ? of(parsed.getFirst(), parsed.getSecond(), parsed.getThird()) : null;
+                if (clause == null)
+                    throw new IllegalArgumentException("The filter is not valid inside the group -- " + filter + " in (" + group + ")");
+                if (clause.operator == FilterOperator.OR)
+                    throw new IllegalArgumentException("The groups can not be nested -- (" + group + ")");
+                branchClauses.add(clause);
+            }
+            if (branchClauses.size() == 1)
+                branches.add(branchClauses.get(0));
+            else if (!branchClauses.isEmpty())
+                branches.add(new FilterClause(null, FilterOperator.AND, Collections.emptyList(), null, branchClauses, false));
+        }
+        if (branches.isEmpty())
+            throw new IllegalArgumentException("The group does not contain any filter -- (" + group + ")");
+        return new FilterClause(null, FilterOperator.OR, Collections.emptyList(), null, branches, negated);
+    }
+
+    /**
+     * Convert a String value into the type of a field, a size in megabytes is converted to bytes.
+     */
+    private static Object coerce(String field, Class<?> type, String value, boolean megabytes) {
+        if (!megabytes)
+            return coerce(field, type, value);
+        Double size = (Double) coerce(field, Double.class, value);
+        return Math.round(size * BYTES_BY_MB);
+    }
+
+    /**
+     * Convert a String value into the type of a field.
+     *
+     * @param field field name, used in the error messages
+     * @param type  type of the field
+     * @param value String value
+     * @return typed value
+     */
+    static Object coerce(String field, Class<?> type, String value) {
+        String trimmed = value.trim();
+        try {
+            if (type == Long.class || type == long.class)
+                return Long.valueOf(trimmed);
+            if (type == Integer.class || type == int.class)
+                return Integer.valueOf(trimmed);
+            if (type == Double.class || type == double.class || type == Float.class || type == float.class)
+                return Double.valueOf(trimmed);
+            if (type == Boolean.class || type == boolean.class) {
+                if (!trimmed.equalsIgnoreCase("true") && !trimmed.equalsIgnoreCase("false"))
+                    throw new IllegalArgumentException("The value must be true or false");
+                return Boolean.valueOf(trimmed.toLowerCase(Locale.ROOT));
+            }
+            if (type == Date.class) {
+                SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+                format.setLenient(false);
+                return uk.ac.ebi.pride.utilities.util.DateUtils.atStartOfDay(format.parse(trimmed));
+            }
+        } catch (IllegalArgumentException | ParseException ex) {
+            throw new IllegalArgumentException("The value -- " + trimmed + " is not valid for the field -- " + field + " (" + type.getSimpleName() + ")", ex);
+        }
+        return trimmed;
+    }
+
+    /**
+     * Convert the clause into a {@link Criteria}. A date compared with is matches the whole day, ranges include both limits. A negated
+     * equality or in uses $ne or $nin, the other negated clauses are wrapped in $nor.
+     *
+     * @return Criteria
+     */
+    public Criteria toCriteria() {
+        if (operator.isComposite()) {
+            Criteria[] criteria = children.stream().map(FilterClause::toCriteria).toArray(Criteria[]::new);
+            if (operator == FilterOperator.AND)
+                return new Criteria().andOperator(criteria);
+            return negated ? new Criteria().norOperator(criteria) : new Criteria().orOperator(criteria);
+        }
+        if (!negated)
+            return toPositiveCriteria();
+        if (operator == FilterOperator.IS && !(values.get(0) instanceof Date))
+            return Criteria.where(field).ne(values.get(0));
+        if (operator == FilterOperator.IN)
+            return Criteria.where(field).nin(values);
+        return new Criteria().norOperator(toPositiveCriteria());
+    }
+
+    private Criteria toPositiveCriteria() {
+        switch (operator) {
+            case IS:
+                if (values.get(0) instanceof Date)
+                    return Criteria.where(field).gte(values.get(0)).lte(uk.ac.ebi.pride.utilities.util.DateUtils.atEndOfDay((Date) values.get(0)));
+                return Criteria.where(field).is(values.get(0));
+            case IN:
+                return Criteria.where(field).in(values);
+            case ALL:
+                return Criteria.where(field).all(values);
+            case RANGE:
+                return Criteria.where(field).gte(values.get(0)).lte(values.get(1));
+            case REGEX:
+                return Criteria.where(field).regex((String) values.get(0));
+            default:
+                throw new IllegalStateException("Operator not supported -- " + operator);
+        }
+    }
+
+    /**
+     * @return field of the clause, null for the OR and AND clauses
+     */
+    public String getField() {
+        return field;
+    }
+
+    public FilterOperator getOperator() {
+        return operator;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the {@link PrideFieldEnum} of the clause, null if the field is not a known PRIDE field
+     */
+    public PrideFieldEnum getPrideField() {
+        return prideField;
+    }
+
+    /**
+     * @return the branches of an OR clause or the filters of an AND clause, empty for the other clauses
+     */
+    public List<FilterClause> getChildren() {
+        return children;
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    @Override
+    public String toString() {
+        String clause = operator.isComposite() ? operator + " " + children : field + " " + operator + " " + values;
+        return negated ? "NOT " + clause : clause;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import java.util.Locale;
+
+/**
+ * Operators supported by the filter queries: field==value (is), field=in=a|b, field=all=a|b, field=range=[a TO b] and field=regex=value.
+ * OR is the operator of the groups (a;b) and AND the operator of a branch of a group with several filters (a,b;c), both are composite
+ * clauses created by the parser.
+ */
+public enum FilterOperator {
+
+    IS,
+    IN,
+    ALL,
+    RANGE,
+    REGEX,
+    OR,
+    AND;
+
+    /**
+     * Find an operator by name ignoring the case.
+     *
+     * @param name operator name
+     * @return FilterOperator or null if the operator is not supported
+     */
+    public static FilterOperator fromString(String name) {
+        if (name == null)
+            return null;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the clauses of the operator are made of other clauses
+     */
+    public boolean isComposite() {
+        return this == OR || this == AND;
+    }
+}
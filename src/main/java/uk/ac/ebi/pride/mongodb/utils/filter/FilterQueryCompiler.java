@@ -0,0 +1,232 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.query.Criteria;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
+import uk.ac.ebi.pride.mongodb.utils.BoundedCache;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The {@link FilterQueryCompiler} parses filter strings (field1==value1,field2=all=value2...) into {@link FilterQueryPlan}s. The parsed filters
+ * are cached by the normalized filter string and the plans by the canonical form of the filters, both in bounded LRU caches, so the same
+ * filter is only parsed and compiled once. The values of the filters are converted to the type of the field by {@link FilterClause}.
+ *
+ * The filters separated by commas must all match. A filter can be negated with ! (!field==value) and a group in parentheses matches if any
+ * of its branches (separated by ;) matches, the filters of a branch are separated by commas: (field1==a,field2==b;field3=in=c|d). A group
+ * can be negated too (!(...)), groups can not be nested. The result is one MongoDB query with $or, $nor, $ne and $nin.
+ */
+public class FilterQueryCompiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterQueryCompiler.class);
+
+    /** Default number of filters and plans kept in the caches **/
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final FilterQueryCompiler DEFAULT = new FilterQueryCompiler(DEFAULT_CACHE_SIZE);
+
+    private static final Pattern COMPOSITE_FILTER = Pattern.compile("(.*)=(.*)=(.*)");
+    private static final Pattern FILTER_SEPARATOR = Pattern.compile(",");
+    private static final Pattern EQUALS_OPERATOR = Pattern.compile("==");
+    private static final Pattern GROUP_BRANCH_SEPARATOR = Pattern.compile(";");
+    private static final String GROUP_OPEN = "(";
+    private static final String GROUP_CLOSE = ")";
+    private static final String GROUP_OPERATOR = "or";
+
+    private final BoundedCache<String, List<Triple<String, String, String>>> parseCache;
+    private final BoundedCache<String, FilterQueryPlan> planCache;
+
+    public FilterQueryCompiler(int cacheSize) {
+        this.parseCache = new BoundedCache<>(cacheSize);
+        this.planCache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * Compiler shared by {@link PrideMongoUtils}.
+     *
+     * @return default compiler
+     */
+    public static FilterQueryCompiler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Normalize a list of filter strings: the filters are split, trimmed and the empty ones removed (also inside the groups). Two filter
+     * strings with the same normalized form produce the same filters.
+     *
+     * @param filterQueryList filter strings
+     * @return normalized filter
+     */
+    public static String normalize(String... filterQueryList) {
+        StringJoiner normalized = new StringJoiner(",");
+        for (String filterQuery : filterQueryList) {
+            if (filterQuery == null)
+                continue;
+            for (String filter : splitFilters(filterQuery)) {
+                String trimmed = normalizeFilter(filter.trim());
+                if (!trimmed.isEmpty())
+                    normalized.add(trimmed);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Parse filter strings into (field, operator, value) filters. The result is cached and must not be modified.
+     *
+     * @param filterQueryList filter strings
+     * @return unmodifiable List of filters
+     */
+    public List<Triple<String, String, String>> parse(String... filterQueryList) {
+        return parseCache.get(normalize(filterQueryList), FilterQueryCompiler::parseNormalized);
+    }
+
+    /**
+     * Compile filter strings into a {@link FilterQueryPlan}.
+     *
+     * @param filterQueryList filter strings
+     * @return FilterQueryPlan
+     */
+    public FilterQueryPlan compile(String... filterQueryList) {
+        return compile(parse(filterQueryList));
+    }
+
+    /**
+     * Compile parsed filters into a {@link FilterQueryPlan}.
+     *
+     * @param filters (field, operator, value) filters
+     * @return FilterQueryPlan
+     */
+    public FilterQueryPlan compile(List<Triple<String, String, String>> filters) {
+        String key = canonicalKey(filters);
+        return planCache.get(key, x -> buildPlan(x, filters));
+    }
+
+    public void clear() {
+        parseCache.clear();
+        planCache.clear();
+    }
+
+    public BoundedCache<String, FilterQueryPlan> getPlanCache() {
+        return planCache;
+    }
+
+    private static List<Triple<String, String, String>> parseNormalized(String normalizedFilter) {
+        List<Triple<String, String, String>> filters = new ArrayList<>();
+        if (normalizedFilter.isEmpty())
+            return Collections.emptyList();
+        for (String filter : splitFilters(normalizedFilter)) {
+            Triple<String, String, String> parsed = parseTerm(filter);
+            if (parsed != null)
+                filters.add(parsed);
+            else
+                LOGGER.debug("The filter provided is not well-formatted, please format the filter in field:value -- " + filter);
+        }
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Parse one filter into (field, operator, value). A negated filter has the operator prefixed with ! and a group is parsed into
+     * ("", "or", content of the group), the content is parsed by {@link FilterClause}.
+     *
+     * @param filter trimmed filter
+     * @return parsed filter, null if the filter is not well-formatted
+     */
+    static Triple<String, String, String> parseTerm(String filter) {
+        boolean negated = filter.startsWith(FilterClause.NEGATION);
+        String positive = negated ? filter.substring(FilterClause.NEGATION.length()).trim() : filter;
+        String prefix = negated ? FilterClause.NEGATION : "";
+        if (positive.startsWith(GROUP_OPEN) && positive.endsWith(GROUP_CLOSE))
+            return new Triple<>("", prefix + GROUP_OPERATOR, positive.substring(GROUP_OPEN.length(), positive.length() - GROUP_CLOSE.length()));
+        String[] filterString = EQUALS_OPERATOR.split(positive);
+        Matcher matcher = COMPOSITE_FILTER.matcher(positive);
+        if (filterString.length == 2)
+            return new Triple<>(filterString[0], prefix + "is", filterString[1]);
+        if (matcher.find())
+            return new Triple<>(matcher.group(1), prefix + matcher.group(2), matcher.group(3));
+        return null;
+    }
+
+    /**
+     * Split a filter string by the commas that are not inside a group. A filter is a group if it starts with ( or !(, the parentheses
+     * inside a group are balanced so regular expressions can be used in the group, the parentheses of other filters are not considered.
+     */
+    private static List<String> splitFilters(String filterQuery) {
+        List<String> filters = new ArrayList<>();
+        int start = 0;
+        while (start <= filterQuery.length()) {
+            int position = start;
+            while (position < filterQuery.length() && Character.isWhitespace(filterQuery.charAt(position)))
+                position++;
+            if (filterQuery.startsWith(GROUP_OPEN, position) || filterQuery.startsWith(FilterClause.NEGATION + GROUP_OPEN, position))
+                position = closeOfGroup(filterQuery, filterQuery.indexOf(GROUP_OPEN, position));
+            int end = filterQuery.indexOf(FILTER_SEPARATOR.pattern(), position);
+            if (end < 0)
+                end = filterQuery.length();
+            filters.add(filterQuery.substring(start, end));
+            start = end + 1;
+        }
+        return filters;
+    }
+
+    private static int closeOfGroup(String filterQuery, int open) {
+        int depth = 0;
+        for (int i = open; i < filterQuery.length(); i++) {
+            char character = filterQuery.charAt(i);
+            if (character == '(')
+                depth++;
+            else if (character == ')' && --depth == 0)
+                return i;
+        }
+        throw new IllegalArgumentException("The group of the filter is not closed -- " + filterQuery.substring(open));
+    }
+
+    /**
+     * Trim the branches and filters of a group and remove the empty ones, other filters are returned as they are.
+     */
+    private static String normalizeFilter(String filter) {
+        String prefix = filter.startsWith(FilterClause.NEGATION) ? FilterClause.NEGATION : "";
+        String positive = filter.substring(prefix.length()).trim();
+        if (!positive.startsWith(GROUP_OPEN) || !positive.endsWith(GROUP_CLOSE))
+            return filter;
+        StringJoiner group = new StringJoiner(";", prefix + GROUP_OPEN, GROUP_CLOSE);
+        for (String branch : GROUP_BRANCH_SEPARATOR.split(positive.substring(GROUP_OPEN.length(), positive.length() - GROUP_CLOSE.length()))) {
+            StringJoiner branchFilters = new StringJoiner(",");
+            for (String branchFilter : FILTER_SEPARATOR.split(branch))
+                if (!branchFilter.trim().isEmpty())
+                    branchFilters.add(branchFilter.trim());
+            if (branchFilters.length() > 0)
+                group.add(branchFilters.toString());
+        }
+        return group.toString();
+    }
+
+    private static String canonicalKey(List<Triple<String, String, String>> filters) {
+        StringBuilder key = new StringBuilder();
+        for (Triple<String, String, String> filter : filters)
+            key.append(filter.getFirst()).append('\u0000').append(filter.getSecond()).append('\u0000').append(filter.getThird()).append('\u0001');
+        return key.toString();
+    }
+
+    private static FilterQueryPlan buildPlan(String key, List<Triple<String, String, String>> filters) {
+        List<FilterClause> clauses = new ArrayList<>(filters.size());
+        for (Triple<String, String, String> filter : filters) {
+            FilterClause clause = FilterClause.of(filter.getFirst(), filter.getSecond(), filter.getThird());
+            if (clause != null)
+                clauses.add(clause);
+            else
+                LOGGER.debug("The operator of the filter is not supported -- " + filter.getSecond());
+        }
+        Document queryObject = clauses.isEmpty() ? new Document()
+                : new Criteria().andOperator(clauses.stream().map(FilterClause::toCriteria).toArray(Criteria[]::new)).getCriteriaObject();
+        return new FilterQueryPlan(key, new ArrayList<>(filters), clauses, queryObject);
+    }
+}
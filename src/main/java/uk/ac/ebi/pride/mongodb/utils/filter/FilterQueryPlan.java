@@ -0,0 +1,86 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.archive.dataprovider.common.Triple;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of compiling a filter string (field==value, field=in=a|b, field=range=[a TO b]...). The filters are parsed and converted
+ * into the MongoDB query document only once; every call to {@link #toQuery()} returns a new {@link Query} over a deep copy of that document,
+ * so the request can bind its pagination without changing the cached plan.
+ */
+public final class FilterQueryPlan {
+
+    private final String key;
+    private final List<Triple<String, String, String>> filters;
+    private final List<FilterClause> clauses;
+    private final Document queryObject;
+
+    FilterQueryPlan(String key, List<Triple<String, String, String>> filters, List<FilterClause> clauses, Document queryObject) {
+        this.key = key;
+        this.filters = Collections.unmodifiableList(filters);
+        this.clauses = Collections.unmodifiableList(clauses);
+        this.queryObject = queryObject;
+    }
+
+    /**
+     * Normalized filter that identifies the plan in the cache.
+     *
+     * @return key of the plan
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Parsed filters of the plan (field, operator, value).
+     *
+     * @return unmodifiable List of filters
+     */
+    public List<Triple<String, String, String>> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Typed clauses of the plan, the values are converted to the type of the fields.
+     *
+     * @return unmodifiable List of clauses
+     */
+    public List<FilterClause> getClauses() {
+        return clauses;
+    }
+
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Create a new {@link Query} for the plan.
+     *
+     * @return Query
+     */
+    public Query toQuery() {
+        return new BasicQuery(PrideMongoUtils.deepCopy(queryObject));
+    }
+
+    /**
+     * Create a new {@link Query} for the plan with the pagination of a request.
+     *
+     * @param page Page requested
+     * @return Query
+     */
+    public Query toQuery(Pageable page) {
+        return toQuery().with(page);
+    }
+
+    @Override
+    public String toString() {
+        return "FilterQueryPlan{" + queryObject.toJson() + "}";
+    }
+}
@@ -0,0 +1,336 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Criteria;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.utils.BoundedCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link IndexAwareQueryPlanner} checks a compiled filter ({@link FilterQueryPlan}) against the indexes of the collection before the
+ * query is sent to MongoDB. Regex clauses that are literals (^value$) are rewritten to equalities and anchored regex that end with .* are
+ * rewritten to plain prefixes, so they can use the index of the field. A filter that has no clause on the leading key of an index is a
+ * collection scan, the {@link QueryScanPolicy} decides if it runs, runs with a warning, runs only if the number of concurrent scans is below
+ * the limit or it is rejected.
+ *
+ * An OR group uses the indexes only if every branch uses one, negated clauses never bound an index. The clauses of the query are ordered
+ * from the most selective indexed clause (equalities) to the clauses that can not use an index.
+ *
+ * The indexes of every collection are read once and refreshed after {@link #DEFAULT_INDEX_REFRESH_MILLIS}; the plans are cached until the
+ * indexes of the collection change.
+ *
+ * The default policy is {@link QueryScanPolicy#WARN}, the collection scans are throttled or rejected only if it is configured. One planner
+ * is shared by all the repositories (see ArchiveMongoConfig), so the limit of concurrent scans applies to all the collections together.
+ */
+public class IndexAwareQueryPlanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexAwareQueryPlanner.class);
+
+    public static final QueryScanPolicy DEFAULT_SCAN_POLICY = QueryScanPolicy.WARN;
+    public static final int DEFAULT_MAX_CONCURRENT_SCANS = 2;
+    public static final long DEFAULT_SCAN_WAIT_MILLIS = 2000;
+    public static final long DEFAULT_INDEX_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int PLAN_CACHE_SIZE = 1024;
+
+    /** Regex that only match one literal value: ^value$ **/
+    private static final Pattern LITERAL_REGEX = Pattern.compile("^\\^((?:[^\\\\.^$|?*+()\\[\\]{}]|\\\\[\\\\.^$|?*+()\\[\\]{}])*)\\$$");
+    /** Regex that match a literal prefix: ^value or ^value.* **/
+    private static final Pattern PREFIX_REGEX = Pattern.compile("^\\^((?:[^\\\\.^$|?*+()\\[\\]{}]|\\\\[\\\\.^$|?*+()\\[\\]{}])*)(?:\\.\\*)?$");
+    private static final Pattern ESCAPED_CHAR = Pattern.compile("\\\\(.)");
+
+    /**
+     * Indexed clauses go first, from the most selective operator to the least selective one (the order of {@link FilterOperator}: equality,
+     * in, all, range, regex and OR groups), the negated clauses and the clauses without index go last. The sort is stable.
+     */
+    private static final Comparator<PlannedClause> SELECTIVITY_ORDER = Comparator
+            .comparing((PlannedClause x) -> !x.isIndexed())
+            .thenComparingInt(x -> x.selectivity);
+    private static final int NEGATED_SELECTIVITY = FilterOperator.values().length;
+
+    private volatile MongoOperations mongoOperations;
+    private volatile QueryScanPolicy scanPolicy = DEFAULT_SCAN_POLICY;
+    private volatile Semaphore scanPermits = new Semaphore(DEFAULT_MAX_CONCURRENT_SCANS);
+    private volatile long scanWaitMillis = DEFAULT_SCAN_WAIT_MILLIS;
+    private volatile long indexRefreshMillis = DEFAULT_INDEX_REFRESH_MILLIS;
+
+    private final Map<String, CollectionIndexes> indexesByCollection = new ConcurrentHashMap<>();
+    private final BoundedCache<String, QueryExecutionPlan> planCache = new BoundedCache<>(PLAN_CACHE_SIZE);
+
+    public IndexAwareQueryPlanner() {
+    }
+
+    public IndexAwareQueryPlanner(MongoOperations mongoOperations, QueryScanPolicy scanPolicy) {
+        this.mongoOperations = mongoOperations;
+        setScanPolicy(scanPolicy);
+    }
+
+    public void setMongoOperations(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        indexesByCollection.clear();
+        planCache.clear();
+    }
+
+    public void setScanPolicy(QueryScanPolicy scanPolicy) {
+        this.scanPolicy = (scanPolicy != null) ? scanPolicy : DEFAULT_SCAN_POLICY;
+        planCache.clear();
+    }
+
+    public QueryScanPolicy getScanPolicy() {
+        return scanPolicy;
+    }
+
+    /**
+     * Number of collection scans that can run at the same time with the {@link QueryScanPolicy#THROTTLE} policy.
+     *
+     * @param maxConcurrentScans maximum number of concurrent scans
+     */
+    public void setMaxConcurrentScans(int maxConcurrentScans) {
+        if (maxConcurrentScans < 1)
+            throw new IllegalArgumentException("The number of concurrent scans must be positive -- " + maxConcurrentScans);
+        this.scanPermits = new Semaphore(maxConcurrentScans);
+    }
+
+    /**
+     * Time that a collection scan waits for a free slot with the {@link QueryScanPolicy#THROTTLE} policy before it fails.
+     *
+     * @param scanWaitMillis waiting time in milliseconds
+     */
+    public void setScanWaitMillis(long scanWaitMillis) {
+        this.scanWaitMillis = Math.max(0, scanWaitMillis);
+    }
+
+    public void setIndexRefreshMillis(long indexRefreshMillis) {
+        this.indexRefreshMillis = Math.max(0, indexRefreshMillis);
+    }
+
+    /**
+     * Plan a filter query on the collection of an entity class.
+     *
+     * @param entityClass entity stored in the collection
+     * @param filterPlan  compiled filter
+     * @return QueryExecutionPlan
+     */
+    public QueryExecutionPlan plan(Class<?> entityClass, FilterQueryPlan filterPlan) {
+        String collection = mongoOperations.getCollectionName(entityClass);
+        CollectionIndexes indexes = getIndexes(collection, entityClass);
+        QueryScanPolicy policy = scanPolicy;
+        return planCache.get(collection + '\u0002' + policy + '\u0002' + filterPlan.getKey(), x -> buildPlan(collection, indexes, filterPlan, policy));
+    }
+
+    /**
+     * Run the queries of a plan (find, count...) applying the {@link QueryScanPolicy} if the plan is a collection scan.
+     *
+     * @param plan  plan of the query
+     * @param query the queries to run
+     * @param <T>   result of the queries
+     * @return the result of the queries
+     * @throws InvalidDataAccessApiUsageException   if the plan is a collection scan and the policy is {@link QueryScanPolicy#REJECT}
+     * @throws TransientDataAccessResourceException if the plan is a collection scan and there is no free slot for it
+     */
+    public <T> T execute(QueryExecutionPlan plan, Supplier<T> query) {
+        if (!plan.isCollectionScan())
+            return query.get();
+        switch (plan.getScanPolicy()) {
+            case WARN:
+                LOGGER.warn("The filter query will scan the whole collection -- " + plan);
+                return query.get();
+            case THROTTLE:
+                Semaphore permits = scanPermits;
+                boolean acquired;
+                try {
+                    acquired = permits.tryAcquire(scanWaitMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransientDataAccessResourceException("Interrupted while waiting to run a collection scan -- " + plan, e);
+                }
+                if (!acquired)
+                    throw new TransientDataAccessResourceException("Too many collection scans are running, the filter query can not run now -- " + plan);
+                try {
+                    LOGGER.debug("Running collection scan -- " + plan);
+                    return query.get();
+                } finally {
+                    permits.release();
+                }
+            case REJECT:
+                throw new InvalidDataAccessApiUsageException("The filter query does not use any index of the collection, add a filter on an indexed field -- " + plan);
+            default:
+                return query.get();
+        }
+    }
+
+    /**
+     * Forget the indexes and plans of all the collections, they are read again by the next query.
+     */
+    public void refresh() {
+        indexesByCollection.clear();
+        planCache.clear();
+    }
+
+    private CollectionIndexes getIndexes(String collection, Class<?> entityClass) {
+        CollectionIndexes indexes = indexesByCollection.get(collection);
+        if (indexes == null || System.currentTimeMillis() - indexes.loadedAt > indexRefreshMillis) {
+            CollectionIndexes loaded = new CollectionIndexes(readLeadingKeys(entityClass));
+            if (indexes != null && !indexes.leadingKeys.equals(loaded.leadingKeys)) {
+                LOGGER.info("The indexes of the collection -- " + collection + " have changed, the query plans are discarded");
+                planCache.clear();
+            }
+            indexesByCollection.put(collection, loaded);
+            indexes = loaded;
+        }
+        return indexes;
+    }
+
+    private Map<String, String> readLeadingKeys(Class<?> entityClass) {
+        Map<String, String> leadingKeys = new HashMap<>();
+        leadingKeys.put(PrideArchiveField.ID, "_id_");
+        leadingKeys.put("_id", "_id_");
+        for (IndexInfo index : mongoOperations.indexOps(entityClass).getIndexInfo()) {
+            List<IndexField> fields = index.getIndexFields();
+            if (fields.isEmpty() || fields.get(0).isText())
+                continue;
+            leadingKeys.putIfAbsent(fields.get(0).getKey(), index.getName());
+        }
+        return Collections.unmodifiableMap(leadingKeys);
+    }
+
+    static QueryExecutionPlan buildPlan(String collection, CollectionIndexes indexes, FilterQueryPlan filterPlan, QueryScanPolicy policy) {
+        List<PlannedClause> planned = new ArrayList<>(filterPlan.getClauses().size());
+        for (FilterClause clause : filterPlan.getClauses())
+            planned.add(planClause(clause, indexes));
+        planned.sort(SELECTIVITY_ORDER);
+
+        List<QueryExecutionPlan.ClauseDecision> decisions = new ArrayList<>(planned.size());
+        List<Criteria> criteria = new ArrayList<>(planned.size());
+        boolean indexed = false;
+        for (PlannedClause clause : planned) {
+            indexed |= clause.isIndexed();
+            decisions.add(new QueryExecutionPlan.ClauseDecision(clause.clause, clause.access, clause.indexName));
+            criteria.add(clause.criteria);
+        }
+        Document queryObject = criteria.isEmpty() ? new Document()
+                : new Criteria().andOperator(criteria.toArray(new Criteria[0])).getCriteriaObject();
+        // An empty filter is an explicit listing of the collection, it is paginated and never limited by the policy
+        boolean collectionScan = !criteria.isEmpty() && !indexed;
+        return new QueryExecutionPlan(collection, filterPlan.getKey(), decisions, queryObject, collectionScan, policy);
+    }
+
+    private static PlannedClause planClause(FilterClause clause, CollectionIndexes indexes) {
+        if (clause.getOperator() == FilterOperator.OR)
+            return planGroup(clause, indexes);
+        if (clause.getOperator() == FilterOperator.AND)
+            return planBranch(clause, indexes);
+        if (clause.isNegated())
+            return new PlannedClause(clause, QueryExecutionPlan.Access.SCAN, null, clause.toCriteria(), NEGATED_SELECTIVITY);
+
+        String indexName = indexes.leadingKeys.get(clause.getField());
+        QueryExecutionPlan.Access access = QueryExecutionPlan.Access.SCAN;
+        Criteria clauseCriteria = clause.toCriteria();
+        int selectivity = clause.getOperator().ordinal();
+        if (clause.getOperator() == FilterOperator.REGEX) {
+            String regex = (String) clause.getValues().get(0);
+            Matcher literal = LITERAL_REGEX.matcher(regex);
+            Matcher prefix = PREFIX_REGEX.matcher(regex);
+            boolean stringField = clause.getPrideField() == null || clause.getPrideField().getClassType() == String.class;
+            if (literal.matches() && stringField) {
+                clauseCriteria = Criteria.where(clause.getField()).is(ESCAPED_CHAR.matcher(literal.group(1)).replaceAll("$1"));
+                selectivity = FilterOperator.IS.ordinal();
+                if (indexName != null)
+                    access = QueryExecutionPlan.Access.REWRITTEN_EQUALITY;
+            } else if (prefix.matches() && !prefix.group(1).isEmpty()) {
+                if (!regex.equals("^" + prefix.group(1)))
+                    clauseCriteria = Criteria.where(clause.getField()).regex("^" + prefix.group(1));
+                if (indexName != null)
+                    access = regex.endsWith(".*") ? QueryExecutionPlan.Access.REWRITTEN_PREFIX : QueryExecutionPlan.Access.INDEX;
+            }
+        } else if (indexName != null) {
+            access = QueryExecutionPlan.Access.INDEX;
+        }
+        return new PlannedClause(clause, access, access != QueryExecutionPlan.Access.SCAN ? indexName : null, clauseCriteria, selectivity);
+    }
+
+    /**
+     * MongoDB answers an $or with the indexes only if every branch can use an index, the names of the indexes are joined with |.
+     */
+    private static PlannedClause planGroup(FilterClause group, CollectionIndexes indexes) {
+        List<PlannedClause> branches = new ArrayList<>(group.getChildren().size());
+        for (FilterClause branch : group.getChildren())
+            branches.add(planClause(branch, indexes));
+        Criteria[] criteria = branches.stream().map(x -> x.criteria).toArray(Criteria[]::new);
+        if (group.isNegated())
+            return new PlannedClause(group, QueryExecutionPlan.Access.SCAN, null, new Criteria().norOperator(criteria), NEGATED_SELECTIVITY);
+        boolean indexed = branches.stream().allMatch(PlannedClause::isIndexed);
+        String indexNames = indexed ? branches.stream().map(x -> x.indexName).distinct().collect(Collectors.joining("|")) : null;
+        return new PlannedClause(group, indexed ? QueryExecutionPlan.Access.INDEX : QueryExecutionPlan.Access.SCAN, indexNames,
+                new Criteria().orOperator(criteria), FilterOperator.OR.ordinal());
+    }
+
+    /**
+     * A branch of a group uses the index of its most selective clause.
+     */
+    private static PlannedClause planBranch(FilterClause branch, CollectionIndexes indexes) {
+        List<PlannedClause> clauses = new ArrayList<>(branch.getChildren().size());
+        for (FilterClause clause : branch.getChildren())
+            clauses.add(planClause(clause, indexes));
+        clauses.sort(SELECTIVITY_ORDER);
+        PlannedClause best = clauses.get(0);
+        Criteria criteria = new Criteria().andOperator(clauses.stream().map(x -> x.criteria).toArray(Criteria[]::new));
+        return new PlannedClause(branch, best.access, best.indexName, criteria, best.selectivity);
+    }
+
+    /**
+     * A clause with the decision of the planner and the criteria that will be sent to MongoDB.
+     */
+    private static final class PlannedClause {
+
+        final FilterClause clause;
+        final QueryExecutionPlan.Access access;
+        final String indexName;
+        final Criteria criteria;
+        final int selectivity;
+
+        PlannedClause(FilterClause clause, QueryExecutionPlan.Access access, String indexName, Criteria criteria, int selectivity) {
+            this.clause = clause;
+            this.access = access;
+            this.indexName = indexName;
+            this.criteria = criteria;
+            this.selectivity = selectivity;
+        }
+
+        boolean isIndexed() {
+            return access != QueryExecutionPlan.Access.SCAN;
+        }
+    }
+
+    /**
+     * Leading key of every index of a collection and the name of the index.
+     */
+    static final class CollectionIndexes {
+
+        final Map<String, String> leadingKeys;
+        final long loadedAt = System.currentTimeMillis();
+
+        CollectionIndexes(Map<String, String> leadingKeys) {
+            this.leadingKeys = leadingKeys;
+        }
+    }
+}
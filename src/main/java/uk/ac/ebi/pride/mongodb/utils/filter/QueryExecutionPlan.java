@@ -0,0 +1,153 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decision of the {@link IndexAwareQueryPlanner} for a filter query on one collection: how every clause is executed (which index it uses or
+ * how it has been rewritten) and if the whole query is a collection scan. The plan is immutable and can be logged.
+ */
+public final class QueryExecutionPlan {
+
+    /**
+     * How one clause of the filter is executed.
+     */
+    public enum Access {
+        /** The clause uses an index **/
+        INDEX,
+        /** A literal regex (^value$) has been rewritten to an equality that uses an index **/
+        REWRITTEN_EQUALITY,
+        /** An anchored regex has been rewritten to a plain prefix regex that uses an index **/
+        REWRITTEN_PREFIX,
+        /** The clause can not use an index **/
+        SCAN
+    }
+
+    /**
+     * Decision for one clause of the filter.
+     */
+    public static final class ClauseDecision {
+
+        private final FilterClause clause;
+        private final Access access;
+        private final String indexName;
+
+        ClauseDecision(FilterClause clause, Access access, String indexName) {
+            this.clause = clause;
+            this.access = access;
+            this.indexName = indexName;
+        }
+
+        public FilterClause getClause() {
+            return clause;
+        }
+
+        public Access getAccess() {
+            return access;
+        }
+
+        /**
+         * @return name of the index used by the clause (the names joined with | for an OR group), null if the clause does not use an index
+         */
+        public String getIndexName() {
+            return indexName;
+        }
+
+        @Override
+        public String toString() {
+            return clause + " -> " + access + ((indexName != null) ? " (" + indexName + ")" : "");
+        }
+    }
+
+    private final String collection;
+    private final String key;
+    private final List<ClauseDecision> decisions;
+    private final Document queryObject;
+    private final boolean collectionScan;
+    private final QueryScanPolicy scanPolicy;
+
+    QueryExecutionPlan(String collection, String key, List<ClauseDecision> decisions, Document queryObject, boolean collectionScan, QueryScanPolicy scanPolicy) {
+        this.collection = collection;
+        this.key = key;
+        this.decisions = Collections.unmodifiableList(decisions);
+        this.queryObject = queryObject;
+        this.collectionScan = collectionScan;
+        this.scanPolicy = scanPolicy;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * Key of the compiled filter ({@link FilterQueryPlan#getKey()}) planned on the collection.
+     *
+     * @return key of the filter
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true if the plan has no filter
+     */
+    public boolean isEmpty() {
+        return queryObject.isEmpty();
+    }
+
+    public List<ClauseDecision> getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * @return true if no clause of the filter can use an index and the whole collection will be read
+     */
+    public boolean isCollectionScan() {
+        return collectionScan;
+    }
+
+    /**
+     * @return true if at least one clause has been rewritten
+     */
+    public boolean isRewritten() {
+        return decisions.stream().anyMatch(x -> x.getAccess() == Access.REWRITTEN_EQUALITY || x.getAccess() == Access.REWRITTEN_PREFIX);
+    }
+
+    /**
+     * @return policy applied if the plan is a collection scan
+     */
+    public QueryScanPolicy getScanPolicy() {
+        return scanPolicy;
+    }
+
+    /**
+     * Create a new {@link Query} with the rewritten filter.
+     *
+     * @return Query
+     */
+    public Query toQuery() {
+        return new BasicQuery(PrideMongoUtils.deepCopy(queryObject));
+    }
+
+    /**
+     * Create a new {@link Query} with the rewritten filter and the pagination of a request.
+     *
+     * @param page Page requested
+     * @return Query
+     */
+    public Query toQuery(Pageable page) {
+        return toQuery().with(page);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryExecutionPlan{collection=" + collection + ", collectionScan=" + collectionScan + ", scanPolicy=" + scanPolicy
+                + ", clauses=" + decisions + ", query=" + queryObject.toJson() + "}";
+    }
+}
@@ -0,0 +1,19 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+/**
+ * What the {@link IndexAwareQueryPlanner} does with a filter query that can not use any index of the collection (a collection scan).
+ */
+public enum QueryScanPolicy {
+
+    /** Run the query **/
+    ALLOW,
+
+    /** Run the query and log the plan as a warning **/
+    WARN,
+
+    /** Run the query only if the number of collection scans running at the same time is below the limit **/
+    THROTTLE,
+
+    /** Never run the query **/
+    REJECT
+}
@@ -0,0 +1,67 @@
+package uk.ac.ebi.pride.mongodb.utils.ontology;
+
+import java.util.BitSet;
+
+/**
+ * Bloom filter of Strings. {@link #mightContain(String)} never returns false for a String that has been added, and returns true for a
+ * String that has not been added with the false positive probability given when the filter is created. The bit positions are computed
+ * with double hashing from two hashes of the String.
+ */
+final class BloomFilter {
+
+    private final BitSet bits;
+    private final int numberOfBits;
+    private final int numberOfHashes;
+
+    /**
+     * @param expectedElements          number of Strings that will be added
+     * @param falsePositiveProbability probability of false positives when the expected number of Strings has been added
+     */
+    BloomFilter(int expectedElements, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1 -- " + falsePositiveProbability);
+        int elements = Math.max(1, expectedElements);
+        long optimalBits = (long) Math.ceil(-elements * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.numberOfBits = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 1, optimalBits));
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / elements * Math.log(2)));
+        this.bits = new BitSet(numberOfBits);
+    }
+
+    void add(String value) {
+        int hash1 = value.hashCode();
+        int hash2 = secondHash(hash1);
+        for (int i = 0; i < numberOfHashes; i++)
+            bits.set(position(hash1, hash2, i));
+    }
+
+    boolean mightContain(String value) {
+        int hash1 = value.hashCode();
+        int hash2 = secondHash(hash1);
+        for (int i = 0; i < numberOfHashes; i++)
+            if (!bits.get(position(hash1, hash2, i)))
+                return false;
+        return true;
+    }
+
+    int getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    int getNumberOfHashes() {
+        return numberOfHashes;
+    }
+
+    private int position(int hash1, int hash2, int i) {
+        return (int) (((hash1 + (long) i * hash2) & Long.MAX_VALUE) % numberOfBits);
+    }
+
+    /** Finalizer of MurmurHash3, it spreads the bits of the hash of the String into a second independent hash **/
+    private static int secondHash(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash | 1;
+    }
+}
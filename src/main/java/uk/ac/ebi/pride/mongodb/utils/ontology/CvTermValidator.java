@@ -0,0 +1,79 @@
+package uk.ac.ebi.pride.mongodb.utils.ontology;
+
+import uk.ac.ebi.pride.archive.dataprovider.param.CvParamProvider;
+
+import java.util.function.BiPredicate;
+
+/**
+ * Validate the accessions of CvParams. The terms covered by the {@link OntologyTermIndex} are checked in memory, the other terms (or all of
+ * them if there is no index) are checked by the fallback, for example the ontology cache service that asks OLS.
+ */
+public class CvTermValidator {
+
+    private final OntologyTermIndex index;
+    private final BiPredicate<String, String> fallback;
+    private final TermValidationStats totalStats = new TermValidationStats();
+
+    /**
+     * @param index    index of terms, null to check all the terms with the fallback
+     * @param fallback function of (accession, cvLabel) that checks the terms not covered by the index
+     */
+    public CvTermValidator(OntologyTermIndex index, BiPredicate<String, String> fallback) {
+        this.index = index;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Check if the term of a CvParam exists, the result is counted in the stats of the batch.
+     *
+     * @param term  CvParam
+     * @param stats stats of the batch
+     * @return true if the term exists
+     */
+    public boolean isValid(CvParamProvider term, TermValidationStats stats) {
+        String accession = term.getAccession();
+        stats.setChecked(stats.getChecked() + 1);
+        if (index != null && index.covers(accession)) {
+            if (index.isRejected(accession)) {
+                stats.setBloomFilterRejections(stats.getBloomFilterRejections() + 1);
+                stats.setIndexMisses(stats.getIndexMisses() + 1);
+                return false;
+            }
+            boolean found = index.contains(accession);
+            if (found)
+                stats.setIndexHits(stats.getIndexHits() + 1);
+            else
+                stats.setIndexMisses(stats.getIndexMisses() + 1);
+            return found;
+        }
+        stats.setDelegated(stats.getDelegated() + 1);
+        boolean found = fallback.test(accession, term.getCvLabel());
+        if (found)
+            stats.setDelegatedHits(stats.getDelegatedHits() + 1);
+        return found;
+    }
+
+    /**
+     * Add the stats of a finished batch to the totals of the validator.
+     *
+     * @param stats stats of the batch
+     */
+    public void record(TermValidationStats stats) {
+        totalStats.add(stats);
+    }
+
+    /**
+     * @return stats of all the batches recorded by this validator
+     */
+    public TermValidationStats getTotalStats() {
+        TermValidationStats copy = new TermValidationStats();
+        synchronized (totalStats) {
+            copy.add(totalStats);
+        }
+        return copy;
+    }
+
+    public OntologyTermIndex getIndex() {
+        return index;
+    }
+}
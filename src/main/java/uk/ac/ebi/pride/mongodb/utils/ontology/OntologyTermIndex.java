@@ -0,0 +1,139 @@
+package uk.ac.ebi.pride.mongodb.utils.ontology;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Read-only index of the accessions of the terms of an ontology (for example PSI-MS), used to validate CvParams in memory. The index also
+ * knows the prefixes of the accessions (MS, UO...), an accession with another prefix is not covered by the index and it must be checked
+ * somewhere else. Optionally a {@link BloomFilter} is checked before the hash set, most of the unknown accessions are rejected without
+ * hashing the whole set.
+ */
+public final class OntologyTermIndex {
+
+    /** False positive probability of the Bloom filter **/
+    public static final double BLOOM_FILTER_FALSE_POSITIVES = 0.01;
+
+    private static final String TERM_STANZA = "[Term]";
+    private static final String ID_TAG = "id:";
+    private static final String ALT_ID_TAG = "alt_id:";
+
+    private final Set<String> accessions;
+    private final Set<String> prefixes;
+    private final BloomFilter bloomFilter;
+
+    private OntologyTermIndex(Set<String> accessions, Set<String> prefixes, BloomFilter bloomFilter) {
+        this.accessions = accessions;
+        this.prefixes = prefixes;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Build the index from a list of term accessions.
+     *
+     * @param termAccessions accessions of the terms (MS:1000031...)
+     * @param bloomFilter    check a Bloom filter before the hash set
+     * @return OntologyTermIndex
+     */
+    public static OntologyTermIndex of(Collection<String> termAccessions, boolean bloomFilter) {
+        Set<String> accessions = new HashSet<>(termAccessions.size() * 4 / 3 + 1);
+        Set<String> prefixes = new HashSet<>();
+        BloomFilter filter = bloomFilter ? new BloomFilter(termAccessions.size(), BLOOM_FILTER_FALSE_POSITIVES) : null;
+        for (String accession : termAccessions) {
+            String prefix = prefixOf(accession);
+            if (prefix == null)
+                continue;
+            accessions.add(accession);
+            prefixes.add(prefix);
+            if (filter != null)
+                filter.add(accession);
+        }
+        return new OntologyTermIndex(Collections.unmodifiableSet(accessions), Collections.unmodifiableSet(prefixes), filter);
+    }
+
+    /**
+     * Build the index from an ontology in OBO format, the id and alt_id of every [Term] stanza are indexed (obsolete terms included).
+     *
+     * @param obo         OBO content
+     * @param bloomFilter check a Bloom filter before the hash set
+     * @return OntologyTermIndex
+     * @throws IOException if the OBO can not be read
+     */
+    public static OntologyTermIndex fromObo(Reader obo, boolean bloomFilter) throws IOException {
+        Set<String> termAccessions = new HashSet<>();
+        BufferedReader reader = (obo instanceof BufferedReader) ? (BufferedReader) obo : new BufferedReader(obo);
+        boolean inTerm = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("["))
+                inTerm = line.equals(TERM_STANZA);
+            else if (inTerm && line.startsWith(ID_TAG))
+                termAccessions.add(tagValue(line, ID_TAG));
+            else if (inTerm && line.startsWith(ALT_ID_TAG))
+                termAccessions.add(tagValue(line, ALT_ID_TAG));
+        }
+        return of(termAccessions, bloomFilter);
+    }
+
+    /**
+     * Check if an accession has the prefix of one of the terms of the index.
+     *
+     * @param accession term accession
+     * @return true if the index can validate the accession
+     */
+    public boolean covers(String accession) {
+        String prefix = prefixOf(accession);
+        return prefix != null && prefixes.contains(prefix);
+    }
+
+    /**
+     * Check if the Bloom filter rejects an accession, an accession rejected is not in the index. Without Bloom filter nothing is rejected.
+     *
+     * @param accession term accession
+     * @return true if the accession is not in the index
+     */
+    public boolean isRejected(String accession) {
+        return accession == null || (bloomFilter != null && !bloomFilter.mightContain(accession));
+    }
+
+    public boolean contains(String accession) {
+        return !isRejected(accession) && accessions.contains(accession);
+    }
+
+    public boolean hasBloomFilter() {
+        return bloomFilter != null;
+    }
+
+    public Set<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public int size() {
+        return accessions.size();
+    }
+
+    private static String tagValue(String line, String tag) {
+        String value = line.substring(tag.length()).trim();
+        // Trailing modifiers or comments: id: MS:1000031 ! comment
+        int end = value.indexOf(' ');
+        return (end < 0) ? value : value.substring(0, end);
+    }
+
+    private static String prefixOf(String accession) {
+        if (accession == null)
+            return null;
+        int separator = accession.indexOf(':');
+        return (separator > 0) ? accession.substring(0, separator) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "OntologyTermIndex{terms=" + accessions.size() + ", prefixes=" + prefixes + ", bloomFilter=" + (bloomFilter != null) + "}";
+    }
+}
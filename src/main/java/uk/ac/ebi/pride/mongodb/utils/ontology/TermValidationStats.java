@@ -0,0 +1,40 @@
+package uk.ac.ebi.pride.mongodb.utils.ontology;
+
+import lombok.Data;
+
+/**
+ * Counts of one batch of term validations (for example the metadata of one MSRun): the terms found in the index, the terms not found
+ * (and how many of them were rejected by the Bloom filter) and the terms that the index does not cover and were checked by the fallback.
+ */
+@Data
+public class TermValidationStats {
+
+    private long checked;
+    private long indexHits;
+    private long indexMisses;
+    private long bloomFilterRejections;
+    private long delegated;
+    private long delegatedHits;
+
+    /**
+     * @return terms found in the index divided by the terms validated with the index, 0 if no term was validated with the index
+     */
+    public double getIndexHitRate() {
+        long indexed = indexHits + indexMisses;
+        return (indexed == 0) ? 0 : (double) indexHits / indexed;
+    }
+
+    /**
+     * Add the counts of another batch.
+     *
+     * @param other stats of another batch
+     */
+    public synchronized void add(TermValidationStats other) {
+        checked += other.checked;
+        indexHits += other.indexHits;
+        indexMisses += other.indexMisses;
+        bloomFilterRejections += other.bloomFilterRejections;
+        delegated += other.delegated;
+        delegatedHits += other.delegatedHits;
+    }
+}
@@ -0,0 +1,51 @@
+package uk.ac.ebi.pride.mongodb.utils.pagination;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) pagination. The page does not know its number or the total number of results, it only holds the opaque cursor
+ * that must be sent to retrieve the next page. The cursor is null if this is the last page.
+ *
+ * @param <T> type of the results
+ */
+public final class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final int pageSize;
+
+    public CursorPage(List<T> content, String nextCursor, int pageSize) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+        this.pageSize = pageSize;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return cursor of the next page, null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPage{size=" + content.size() + ", pageSize=" + pageSize + ", nextCursor=" + nextCursor + "}";
+    }
+}
@@ -0,0 +1,156 @@
+package uk.ac.ebi.pride.mongodb.utils.pagination;
+
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination for MongoDB queries. The results are sorted by one field and the _id, and every page starts right after the
+ * last (field, _id) of the previous page instead of skipping the previous results, so the cost of a page does not depend on its depth and
+ * the pages are stable when new documents are inserted.
+ *
+ * The position is returned to the client as an opaque cursor (URL safe Base64 of the sort field, the direction and the last values). A
+ * cursor can only be used with the sort that created it.
+ */
+public final class KeysetPagination {
+
+    private static final String ID_FIELD = "_id";
+    public static final String CURSOR_FIELD = "f";
+    public static final String CURSOR_DIRECTION = "d";
+    public static final String CURSOR_VALUE = "v";
+    public static final String CURSOR_ID = "i";
+
+    private static final JsonWriterSettings CURSOR_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Find one page of the results of a query.
+     *
+     * @param mongoOperations MongoOperations
+     * @param filter          query with the filters, its sort and pagination are ignored
+     * @param entityClass     entity of the collection
+     * @param sort            sort of the results, only the first order is used. If the sort is unsorted the results are sorted by _id
+     * @param cursor          cursor returned with the previous page, null or empty for the first page
+     * @param pageSize        number of results by page
+     * @param <T>             entity of the collection
+     * @return CursorPage
+     * @throws IllegalArgumentException if the cursor is not valid or it was created for another sort
+     */
+    public static <T> CursorPage<T> find(MongoOperations mongoOperations, Query filter, Class<T> entityClass, Sort sort, String cursor, int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("The page size must be positive -- " + pageSize);
+
+        MongoPersistentEntity<?> entity = getPersistentEntity(mongoOperations, entityClass);
+        Sort.Order order = (sort != null && sort.isSorted()) ? sort.iterator().next() : Sort.Order.asc(ID_FIELD);
+        String property = order.getProperty();
+        String field = ID_FIELD;
+        MongoPersistentProperty idProperty = entity.getIdProperty();
+        if (!property.equals(ID_FIELD) && (idProperty == null || !property.equals(idProperty.getName()))) {
+            MongoPersistentProperty persistentProperty = entity.getPersistentProperty(property);
+            if (persistentProperty == null)
+                throw new IllegalArgumentException("The sort field is not a property of " + entityClass.getSimpleName() + " -- " + property);
+            field = persistentProperty.getFieldName();
+        } else {
+            property = ID_FIELD;
+        }
+        boolean ascending = order.isAscending();
+
+        Document filterObject = PrideMongoUtils.deepCopy(filter.getQueryObject());
+        Query query = new BasicQuery(filterObject);
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            Document position = decode(cursor);
+            if (!property.equals(position.getString(CURSOR_FIELD)) || (ascending ? 1 : -1) != position.getInteger(CURSOR_DIRECTION, 0))
+                throw new IllegalArgumentException("The cursor was created for another sort -- " + property + " " + order.getDirection());
+            Document seek = seekCriteria(property, ascending, position.get(CURSOR_VALUE), position.get(CURSOR_ID)).getCriteriaObject();
+            query = new BasicQuery(filterObject.isEmpty() ? seek : new Document("$and", Arrays.asList(filterObject, seek)));
+        }
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort seekSort = property.equals(ID_FIELD) ? Sort.by(direction, ID_FIELD) : Sort.by(direction, property).and(Sort.by(direction, ID_FIELD));
+        query.with(seekSort).limit(pageSize + 1);
+
+        List<T> results = mongoOperations.find(query, entityClass);
+        if (results.size() <= pageSize)
+            return new CursorPage<>(results, null, pageSize);
+
+        results = results.subList(0, pageSize);
+        Document last = new Document();
+        mongoOperations.getConverter().write(results.get(pageSize - 1), last);
+        Object lastValue = property.equals(ID_FIELD) ? null : last.get(field);
+        return new CursorPage<>(results, encode(property, ascending, lastValue, last.get(ID_FIELD)), pageSize);
+    }
+
+    /**
+     * Condition that selects the documents after (value, id) in the sort. Missing and null values are sorted before any other value by
+     * MongoDB, so they are the first results in ascending order and the last ones in descending order.
+     */
+    static Criteria seekCriteria(String property, boolean ascending, Object value, Object id) {
+        Criteria afterId = ascending ? Criteria.where(ID_FIELD).gt(id) : Criteria.where(ID_FIELD).lt(id);
+        if (property.equals(ID_FIELD))
+            return afterId;
+        if (value == null) {
+            Criteria sameValue = new Criteria().andOperator(Criteria.where(property).is(null), afterId);
+            return ascending ? new Criteria().orOperator(sameValue, Criteria.where(property).ne(null)) : sameValue;
+        }
+        Criteria sameValue = new Criteria().andOperator(Criteria.where(property).is(value), afterId);
+        if (ascending)
+            return new Criteria().orOperator(Criteria.where(property).gt(value), sameValue);
+        return new Criteria().orOperator(Criteria.where(property).lt(value), sameValue, Criteria.where(property).is(null));
+    }
+
+    /**
+     * Encode a position of a sort into an opaque cursor.
+     *
+     * @param property  sort property
+     * @param ascending direction of the sort
+     * @param value     value of the property in the last result
+     * @param id        _id of the last result
+     * @return cursor
+     */
+    public static String encode(String property, boolean ascending, Object value, Object id) {
+        Document position = new Document(CURSOR_FIELD, property)
+                .append(CURSOR_DIRECTION, ascending ? 1 : -1)
+                .append(CURSOR_VALUE, value)
+                .append(CURSOR_ID, id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.toJson(CURSOR_JSON).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor created by {@link #encode(String, boolean, Object, Object)}.
+     *
+     * @param cursor cursor
+     * @return position with the sort property (f), the direction (d), the value (v) and the _id (i)
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static Document decode(String cursor) {
+        try {
+            Document position = Document.parse(new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8));
+            if (!position.containsKey(CURSOR_FIELD) || !position.containsKey(CURSOR_DIRECTION) || position.get(CURSOR_ID) == null)
+                throw new IllegalArgumentException("The pagination cursor is not valid -- " + cursor);
+            return position;
+        } catch (IllegalArgumentException | JsonParseException | ClassCastException e) {
+            throw new IllegalArgumentException("The pagination cursor is not valid -- " + cursor, e);
+        }
+    }
+
+    private static MongoPersistentEntity<?> getPersistentEntity(MongoOperations mongoOperations, Class<?> entityClass) {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoOperations.getConverter().getMappingContext();
+        return mappingContext.getRequiredPersistentEntity(entityClass);
+    }
+}
@@ -0,0 +1,66 @@
+package uk.ac.ebi.pride.mongodb.utils.projection;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Restricts the fields that MongoDB returns to the ones of a read-only DTO (or a subset of them). Only the projected fields are sent by the
+ * server and mapped by the converter, the other properties of the DTO are null.
+ */
+public final class FieldProjection {
+
+    private static final String ID_PROPERTY = "id";
+    private static final String ID_FIELD = "_id";
+
+    private static final Map<Class<?>, Set<String>> PROPERTIES = new ConcurrentHashMap<>();
+
+    private FieldProjection() {
+    }
+
+    /**
+     * Properties of a DTO that can be projected, the property names are the same as in the stored documents.
+     *
+     * @param dtoClass DTO class
+     * @return unmodifiable Set of property names
+     */
+    public static Set<String> propertiesOf(Class<?> dtoClass) {
+        return PROPERTIES.computeIfAbsent(dtoClass, x -> {
+            Set<String> properties = new LinkedHashSet<>();
+            for (Field field : x.getDeclaredFields())
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+                    properties.add(field.getName());
+            return Collections.unmodifiableSet(properties);
+        });
+    }
+
+    /**
+     * Add the projection of some properties of a DTO to a query. The _id is only returned if the id is requested.
+     *
+     * @param query    query
+     * @param dtoClass DTO class returned by the query
+     * @param fields   properties to retrieve
+     * @return the same query
+     * @throws IllegalArgumentException if a field is not a property of the DTO
+     */
+    public static Query include(Query query, Class<?> dtoClass, Collection<String> fields) {
+        if (fields == null || fields.isEmpty())
+            throw new IllegalArgumentException("At least one field must be projected for " + dtoClass.getSimpleName());
+        Set<String> properties = propertiesOf(dtoClass);
+        for (String field : fields) {
+            if (!properties.contains(field))
+                throw new IllegalArgumentException("The field -- " + field + " can not be projected in " + dtoClass.getSimpleName() + ", valid fields: " + properties);
+            query.fields().include(field);
+        }
+        if (!fields.contains(ID_PROPERTY))
+            query.fields().exclude(ID_FIELD);
+        return query;
+    }
+}
@@ -1,11 +1,13 @@
 package uk.ac.ebi.pride.mongodb.archive.config;
 
 import com.mongodb.MongoClient;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
 
 /**
  * This code is licensed under the Apache License, Version 2.0 (the
@@ -39,4 +41,9 @@ public class PrideMongoLocalhostConfig extends AbstractMongoConfiguration {
     public MongoClient mongoClient() {
         return new MongoClient("localhost" + ":" + "27017");
     }
+
+    @Bean
+    public IndexAwareQueryPlanner queryPlanner() throws Exception {
+        return new IndexAwareQueryPlanner(mongoTemplate(), IndexAwareQueryPlanner.DEFAULT_SCAN_POLICY);
+    }
 }
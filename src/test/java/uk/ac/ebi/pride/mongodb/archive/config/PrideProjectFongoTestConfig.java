@@ -6,7 +6,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
 
 /**
  * Test Configuration for Mongo PRIDE Projects using the fongo {@link Fongo} library.
@@ -29,7 +31,18 @@ public class PrideProjectFongoTestConfig extends AbstractMongoConfiguration{
     public MongoClient mongoClient() {
         return new Fongo("mongo-test").getMongo();
     }
-}
-
 
+    /**
+     * The services and repositories use the template of the archive database.
+     */
+    @Override
+    @Bean(name = "archiveMongoTemplate")
+    public MongoTemplate mongoTemplate() throws Exception {
+        return super.mongoTemplate();
+    }
 
+    @Bean
+    public IndexAwareQueryPlanner queryPlanner() throws Exception {
+        return new IndexAwareQueryPlanner(mongoTemplate(), IndexAwareQueryPlanner.DEFAULT_SCAN_POLICY);
+    }
+}
@@ -1,10 +1,12 @@
 package uk.ac.ebi.pride.mongodb.archive.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import uk.ac.ebi.pride.mongodb.configs.AbstractPrideMongoConfiguration;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
 
 /**
  * @author ypriverol
@@ -93,4 +95,9 @@ public class PrideProjectsHttpTestConfig extends AbstractPrideMongoConfiguration
     public String getMongoURI() {
         return mongoURI;
     }
+
+    @Bean
+    public IndexAwareQueryPlanner queryPlanner() throws Exception {
+        return new IndexAwareQueryPlanner(mongoTemplate(), IndexAwareQueryPlanner.DEFAULT_SCAN_POLICY);
+    }
 }
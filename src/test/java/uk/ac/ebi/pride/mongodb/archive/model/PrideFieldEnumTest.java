@@ -24,4 +24,13 @@ public class PrideFieldEnumTest {
 
         Assert.assertTrue(PrideFieldEnum.values().length > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fromFieldNameTest(){
+        Assert.assertEquals(PrideFieldEnum.PUBLIC_PROJECT, PrideFieldEnum.fromFieldName("publicProject"));
+        Assert.assertEquals(PrideFieldEnum.PUBLIC_PROJECT, PrideFieldEnum.fromFieldName("public_project"));
+        Assert.assertEquals(PrideFieldEnum.FILE_SIZE_MB, PrideFieldEnum.fromFieldName("fileSizeBytes"));
+        Assert.assertEquals(PrideFieldEnum.FILE_IS_COMPRESS, PrideFieldEnum.fromFieldName("compress"));
+        Assert.assertNull(PrideFieldEnum.fromFieldName("unknownField"));
+    }
+}
@@ -0,0 +1,205 @@
+package uk.ac.ebi.pride.mongodb.archive.repo.projects;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacet;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectFacetResult;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+import uk.ac.ebi.pride.mongodb.utils.filter.IndexAwareQueryPlanner;
+import uk.ac.ebi.pride.mongodb.utils.filter.QueryScanPolicy;
+import uk.ac.ebi.pride.mongodb.utils.pagination.CursorPage;
+import uk.ac.ebi.pride.mongodb.utils.pagination.KeysetPagination;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * {@link PrideProjectMongoRepositoryCustomImpl} unit tests of the facet search and text search pipelines, the template is mocked. The text
+ * search can not be tested with fongo, it does not support $text.
+ */
+public class PrideProjectMongoRepositoryCustomImplTest {
+
+    private static final String COLLECTION = PrideArchiveField.PRIDE_PROJECTS_COLLECTION_NAME;
+
+    private MongoTemplate mongoTemplate;
+    private PrideProjectMongoRepositoryCustomImpl repository;
+
+    @Before
+    public void setUp() {
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        Mockito.when(mongoTemplate.getCollectionName(MongoPrideProject.class)).thenReturn(COLLECTION);
+        Mockito.when(mongoTemplate.aggregate(ArgumentMatchers.any(TypedAggregation.class), ArgumentMatchers.eq(COLLECTION), ArgumentMatchers.eq(Document.class)))
+                .thenReturn(new AggregationResults<>(Collections.emptyList(), new Document()));
+        // Only the _id index is known by the planner
+        IndexOperations indexOperations = Mockito.mock(IndexOperations.class);
+        Mockito.when(indexOperations.getIndexInfo()).thenReturn(Collections.emptyList());
+        Mockito.when(mongoTemplate.indexOps(MongoPrideProject.class)).thenReturn(indexOperations);
+        repository = new PrideProjectMongoRepositoryCustomImpl(mongoTemplate);
+        repository.setQueryPlanner(new IndexAwareQueryPlanner(mongoTemplate, IndexAwareQueryPlanner.DEFAULT_SCAN_POLICY));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Document> capturePipeline() {
+        ArgumentCaptor<TypedAggregation> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+        Mockito.verify(mongoTemplate).aggregate(aggregation.capture(), ArgumentMatchers.eq(COLLECTION), ArgumentMatchers.eq(Document.class));
+        return (List<Document>) aggregation.getValue().toDocument(COLLECTION, Aggregation.DEFAULT_CONTEXT).get("pipeline");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unpagedFacetSearchIsRejected() {
+        repository.findByFiltersWithFacets(Collections.emptyList(), Pageable.unpaged(), EnumSet.of(PrideProjectFacet.INSTRUMENTS), 5);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void facetsAreComputedInTheSameAggregation() {
+        PrideProjectFacetResult result = repository.findByFiltersWithFacets(Collections.emptyList(), PageRequest.of(2, 10),
+                EnumSet.of(PrideProjectFacet.ORGANISMS, PrideProjectFacet.PUBLICATION_YEAR), 5);
+        Assert.assertEquals(0, result.getProjects().getTotalElements());
+
+        List<Document> pipeline = capturePipeline();
+        Assert.assertEquals(2, pipeline.size());
+        // An unsorted request is sorted by _id, so the pages are stable
+        Assert.assertEquals(new Document("$sort", new Document("_id", 1)), pipeline.get(0));
+        Document facet = (Document) pipeline.get(1).get("$facet");
+
+        Assert.assertEquals(Arrays.asList(new Document("$skip", 20L), new Document("$limit", 10)), facet.get("results"));
+
+        // Only the values of the organism attribute of the samples are counted
+        String samples = PrideArchiveField.SAMPLE_ATTRIBUTES_NAMES;
+        List<Document> organisms = (List<Document>) facet.get(PrideProjectFacet.ORGANISMS.getName());
+        Assert.assertEquals(new Document("$unwind", "$" + samples), organisms.get(0));
+        Assert.assertEquals(new Document("$match", new Document(samples + ".key.accession", "OBI:0100026")), organisms.get(1));
+        Assert.assertEquals(new Document("$unwind", "$" + samples + ".value"), organisms.get(2));
+        Assert.assertEquals("$" + samples + ".value.name", ((Document) organisms.get(3).get("$group")).get("_id"));
+        Assert.assertEquals(new Document("$limit", 5), organisms.get(organisms.size() - 1));
+
+        // The publications are counted by year, the projects without a publication date are skipped
+        String date = PrideArchiveField.PUBLICATION_DATE;
+        List<Document> years = (List<Document>) facet.get(PrideProjectFacet.PUBLICATION_YEAR.getName());
+        Assert.assertEquals(new Document("$match", new Document(date, new Document("$type", "date"))), years.get(0));
+        Assert.assertEquals(new Document("$year", "$" + date), ((Document) years.get(1).get("$group")).get("_id"));
+    }
+
+    @Test
+    public void facetSearchSortIsTieBrokenById() {
+        repository.findByFiltersWithFacets(Collections.emptyList(), PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "title")),
+                EnumSet.noneOf(PrideProjectFacet.class), 5);
+        Assert.assertEquals(new Document("$sort", new Document("title", -1).append("_id", 1)), capturePipeline().get(0));
+    }
+
+    @Test
+    public void facetSearchScanIsRejectedByThePlanner() {
+        repository.setQueryPlanner(new IndexAwareQueryPlanner(mongoTemplate, QueryScanPolicy.REJECT));
+        try {
+            repository.findByFiltersWithFacets(PrideMongoUtils.parseFilterParameters("title=regex=liver"), PageRequest.of(0, 10),
+                    EnumSet.of(PrideProjectFacet.INSTRUMENTS), 5);
+            Assert.fail("A facet search that scans the whole collection must be rejected");
+        } catch (InvalidDataAccessApiUsageException expected) {
+            // expected
+        }
+        Mockito.verify(mongoTemplate, Mockito.never()).aggregate(ArgumentMatchers.any(TypedAggregation.class), ArgumentMatchers.anyString(),
+                ArgumentMatchers.eq(Document.class));
+    }
+
+    /**
+     * Mock the text search aggregation: the pipeline sent is recorded and the given documents are returned.
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<Document>> mockTextSearch(List<Document> documents) {
+        List<List<Document>> pipelines = new ArrayList<>();
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        AggregateIterable<Document> iterable = Mockito.mock(AggregateIterable.class);
+        Mockito.when(collection.aggregate(ArgumentMatchers.anyList())).thenAnswer(invocation -> {
+            pipelines.add(invocation.getArgument(0));
+            return iterable;
+        });
+        Mockito.when(iterable.into(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            List<Document> target = invocation.getArgument(0);
+            target.addAll(documents);
+            return target;
+        });
+        Mockito.when(mongoTemplate.execute(ArgumentMatchers.eq(MongoPrideProject.class), ArgumentMatchers.any(CollectionCallback.class)))
+                .thenAnswer(invocation -> ((CollectionCallback<Object>) invocation.getArgument(1)).doInCollection(collection));
+
+        MongoConverter converter = Mockito.mock(MongoConverter.class);
+        Mockito.when(converter.read(ArgumentMatchers.eq(MongoPrideProject.class), ArgumentMatchers.any(Document.class)))
+                .thenAnswer(invocation -> MongoPrideProject.builder().accession(((Document) invocation.getArgument(1)).getString("accession")).build());
+        Mockito.when(mongoTemplate.getConverter()).thenReturn(converter);
+        return pipelines;
+    }
+
+    private static Document scored(String accession, ObjectId id, double score) {
+        return new Document("_id", id).append("accession", accession).append("score", score);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void textSearchCursorIsBoundToTheTerms() {
+        ObjectId lastId = new ObjectId();
+        List<List<Document>> pipelines = mockTextSearch(Arrays.asList(scored("PXD000001", new ObjectId(), 3.0),
+                scored("PXD000002", lastId, 2.5), scored("PXD000003", new ObjectId(), 1.0)));
+
+        CursorPage<MongoPrideProject> page = repository.findByText(" human liver ", null, 2);
+        Assert.assertEquals(2, page.getContent().size());
+        Assert.assertEquals("PXD000002", page.getContent().get(1).getAccession());
+
+        // The cursor holds the terms, the score and the id of the last project of the page
+        Document position = KeysetPagination.decode(page.getNextCursor());
+        Assert.assertEquals("score:human liver", position.getString(KeysetPagination.CURSOR_FIELD));
+        Assert.assertEquals(2.5, ((Number) position.get(KeysetPagination.CURSOR_VALUE)).doubleValue(), 0.0);
+        Assert.assertEquals(lastId, position.get(KeysetPagination.CURSOR_ID));
+
+        // The next page seeks after the last project: lower score, or same score and greater id
+        repository.findByText("human liver", page.getNextCursor(), 2);
+        Document seek = (Document) pipelines.get(1).get(2).get("$match");
+        List<Document> or = (List<Document>) seek.get("$or");
+        Assert.assertEquals(new Document("score", new Document("$lt", 2.5)), or.get(0));
+        Assert.assertEquals(new Document("score", 2.5).append("_id", new Document("$gt", lastId)), or.get(1));
+    }
+
+    @Test
+    public void textSearchCursorIsRejectedForOtherTerms() {
+        mockTextSearch(Arrays.asList(scored("PXD000001", new ObjectId(), 3.0), scored("PXD000002", new ObjectId(), 2.5)));
+        String cursor = repository.findByText("human liver", null, 1).getNextCursor();
+        Assert.assertNotNull(cursor);
+        try {
+            repository.findByText("mouse brain", cursor, 1);
+            Assert.fail("A cursor of another search must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void lastTextSearchPageHasNoCursor() {
+        mockTextSearch(Collections.singletonList(scored("PXD000001", new ObjectId(), 3.0)));
+        CursorPage<MongoPrideProject> page = repository.findByText("human", null, 2);
+        Assert.assertNull(page.getNextCursor());
+        Assert.assertTrue(page.isLast());
+    }
+}
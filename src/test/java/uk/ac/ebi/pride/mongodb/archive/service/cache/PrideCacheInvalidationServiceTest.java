@@ -0,0 +1,66 @@
+package uk.ac.ebi.pride.mongodb.archive.service.cache;
+
+import com.mongodb.client.model.changestream.OperationType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.utils.WeightedCache;
+
+import java.util.Collections;
+
+/**
+ * {@link PrideCacheInvalidationService} unit tests, the changes are applied directly to the registered caches.
+ */
+public class PrideCacheInvalidationServiceTest {
+
+    private static final String COLLECTION = PrideArchiveField.PRIDE_FILE_COLLECTION_NAME;
+
+    private PrideCacheInvalidationService invalidationService;
+    private WeightedCache<String, String> cache;
+
+    @Before
+    public void setUp() {
+        invalidationService = new PrideCacheInvalidationService();
+        cache = new WeightedCache<>(100, String::length);
+        invalidationService.register(COLLECTION, cache);
+        cache.put("PXF00000000001", "file 1");
+        cache.put("PXF00000000002", "file 2");
+    }
+
+    @Test
+    public void updateEvictsTheAccession() {
+        invalidationService.onChange(COLLECTION, OperationType.UPDATE, "PXF00000000001");
+        Assert.assertNull(cache.get("PXF00000000001"));
+        Assert.assertEquals("file 2", cache.get("PXF00000000002"));
+    }
+
+    @Test
+    public void insertDoesNotChangeTheCache() {
+        invalidationService.onChange(COLLECTION, OperationType.INSERT, "PXF00000000003");
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(0, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void deleteAndChangesWithoutAccessionClearTheCache() {
+        invalidationService.onChange(COLLECTION, OperationType.DELETE, null);
+        Assert.assertEquals(0, cache.size());
+
+        cache.put("PXF00000000001", "file 1");
+        invalidationService.onChange(COLLECTION, OperationType.REPLACE, null);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void changesOfOtherCollectionsAreIgnored() {
+        invalidationService.onChange(PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME, OperationType.DELETE, null);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void collectionsWithoutEnabledCacheAreNotFollowed() {
+        invalidationService.register(PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME, new WeightedCache<String, String>(0, String::length));
+        Assert.assertEquals(Collections.singleton(COLLECTION), invalidationService.getEnabledCollections());
+    }
+}
@@ -0,0 +1,121 @@
+package uk.ac.ebi.pride.mongodb.archive.service.detail;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.service.assays.PrideAssayMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.msruns.PrideMsRunMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.samples.PrideSampleMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.sdrf.PrideSdrfMongoService;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link PrideProjectDetailService} unit tests, the services of every part are mocked.
+ */
+public class PrideProjectDetailServiceTest {
+
+    private static final String ACCESSION = "PXD000001";
+
+    private PrideProjectMongoService projectService;
+    private PrideFileMongoService fileService;
+    private PrideMsRunMongoService msRunService;
+    private PrideAssayMongoService assayService;
+    private PrideSampleMongoService sampleService;
+    private PrideSdrfMongoService sdrfService;
+    private PrideProjectDetailService detailService;
+
+    @Before
+    public void setUp() {
+        projectService = Mockito.mock(PrideProjectMongoService.class);
+        fileService = Mockito.mock(PrideFileMongoService.class);
+        msRunService = Mockito.mock(PrideMsRunMongoService.class);
+        assayService = Mockito.mock(PrideAssayMongoService.class);
+        sampleService = Mockito.mock(PrideSampleMongoService.class);
+        sdrfService = Mockito.mock(PrideSdrfMongoService.class);
+        Mockito.when(projectService.findByAccession(ACCESSION)).thenReturn(Optional.of(MongoPrideProject.builder().accession(ACCESSION).build()));
+        Mockito.when(fileService.findFilesByProjectAccession(ACCESSION)).thenReturn(Collections.singletonList(MongoPrideFile.builder().build()));
+        detailService = new PrideProjectDetailService(projectService, fileService, msRunService, assayService, sampleService, sdrfService);
+    }
+
+    @After
+    public void tearDown() {
+        detailService.shutdown();
+    }
+
+    @Test
+    public void allThePartsAreFetched() {
+        PrideProjectDetail detail = detailService.findByAccession(ACCESSION);
+        Assert.assertTrue(detail.isComplete());
+        Assert.assertEquals(ACCESSION, detail.getProject().getAccession());
+        Assert.assertEquals(1, detail.getFiles().size());
+        Assert.assertEquals(EnumSet.allOf(ProjectDetailPart.class), detail.getPartTimesMillis().keySet());
+    }
+
+    @Test
+    public void failedAndSlowPartsAreReported() {
+        Mockito.when(assayService.findAssayByProjectAccession(ACCESSION)).thenThrow(new IllegalStateException("assays down"));
+        Mockito.when(sdrfService.findByProjectAccession(ACCESSION)).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return Collections.emptyList();
+        });
+        detailService.setPartTimeout(ProjectDetailPart.SDRF, 100);
+
+        PrideProjectDetail detail = detailService.findByAccession(ACCESSION);
+        Assert.assertFalse(detail.isComplete());
+        Assert.assertTrue(detail.getFailures().get(ProjectDetailPart.ASSAYS) instanceof IllegalStateException);
+        Assert.assertTrue(detail.getFailures().get(ProjectDetailPart.SDRF) instanceof TimeoutException);
+        Assert.assertTrue(detail.getAssays().isEmpty());
+        Assert.assertEquals(1, detail.getFiles().size());
+        Assert.assertTrue(detail.getTotalTimeMillis() < 2000);
+    }
+
+    @Test
+    public void runningQueriesOfTimedOutPartsAreCountedAsAbandoned() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Mockito.when(msRunService.getMSRunsByProject(ACCESSION)).thenAnswer(invocation -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+                return Collections.emptyList();
+            } finally {
+                finished.countDown();
+            }
+        });
+        detailService.setPartTimeout(ProjectDetailPart.MSRUNS, 100);
+
+        PrideProjectDetail detail = detailService.findByAccession(ACCESSION);
+        Assert.assertTrue(detail.getFailures().get(ProjectDetailPart.MSRUNS) instanceof TimeoutException);
+        Assert.assertEquals(EnumSet.of(ProjectDetailPart.MSRUNS), detail.getAbandoned());
+        // The timeout does not stop the query, it is still running
+        Assert.assertEquals(1, detailService.getAbandonedQueries());
+
+        release.countDown();
+        Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (detailService.getAbandonedQueries() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertEquals(0, detailService.getAbandonedQueries());
+        Assert.assertFalse(detail.getPartTimesMillis().containsKey(ProjectDetailPart.MSRUNS));
+    }
+
+    @Test
+    public void partsNotRequestedAreEmpty() {
+        PrideProjectDetail detail = detailService.findByAccession(ACCESSION, EnumSet.of(ProjectDetailPart.FILES));
+        Assert.assertTrue(detail.isComplete());
+        Assert.assertNull(detail.getProject());
+        Assert.assertEquals(1, detail.getFiles().size());
+        Mockito.verifyZeroInteractions(projectService, sdrfService);
+    }
+}
@@ -0,0 +1,370 @@
+package uk.ac.ebi.pride.mongodb.archive.service.fongo.files;
+
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
+import uk.ac.ebi.pride.mongodb.archive.config.PrideProjectFongoTestConfig;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.service.cache.PrideNearCacheService;
+import uk.ac.ebi.pride.mongodb.archive.service.files.FileChecksumIndex;
+import uk.ac.ebi.pride.mongodb.archive.service.files.FileIngestionSink;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.ingestion.PrideIngestionJournalService;
+import uk.ac.ebi.pride.mongodb.archive.service.msruns.PrideMsRunMongoService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * {@link PrideFileMongoService} bulk ingestion tests using the fongo database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {PrideProjectFongoTestConfig.class})
+public class PrideFongoFileServiceTest {
+
+    private static final String PROJECT_ACCESSION = "PXD000001";
+
+    @Autowired
+    PrideFileMongoService prideFileMongoService;
+
+    @Autowired
+    PrideMsRunMongoService prideMsRunMongoService;
+
+    @Autowired
+    PrideIngestionJournalService ingestionJournalService;
+
+    @Autowired
+    PrideNearCacheService nearCache;
+
+    @Before
+    public void setUp() {
+        prideFileMongoService.deleteAll();
+        prideMsRunMongoService.deleteAll();
+        ingestionJournalService.clear(PROJECT_ACCESSION);
+    }
+
+    @After
+    public void tearDown() {
+        // The near cache is shared by the tests of the context, it stays disabled like in the default configuration
+        nearCache.setFileCacheMaxWeight(0);
+        nearCache.setMSRunCacheMaxWeight(0);
+        nearCache.clear();
+    }
+
+    private static MongoPrideFile file(int number, String checksum) {
+        String accession = String.format("PXF%011d", number);
+        return MongoPrideFile.builder()
+                .accession(accession)
+                .fileName(accession + ".raw")
+                .checksum(checksum)
+                .fileSizeBytes(1024)
+                .projectAccessions(Collections.singleton(PROJECT_ACCESSION))
+                .build();
+    }
+
+    private static MongoPrideMSRun msRun(int number, long fileSizeBytes) {
+        String accession = String.format("PXF%011d", number);
+        return new MongoPrideMSRun(new ObjectId(), Collections.singleton(PROJECT_ACCESSION), null, accession, accession + ".raw",
+                fileSizeBytes, null, null, null, null, null, null);
+    }
+
+    /**
+     * Sink that records the accessions of the inserted and skipped Files.
+     */
+    static class RecordingSink implements FileIngestionSink {
+
+        final List<String> inserted = new ArrayList<>();
+        final List<String> skipped = new ArrayList<>();
+        final List<String> fileWindows = new ArrayList<>();
+        final List<String> msRunWindows = new ArrayList<>();
+        final List<String> skippedFileWindows = new ArrayList<>();
+        int insertedMsRuns;
+        int skippedMsRuns;
+
+        @Override
+        public void onFileInserted(MongoPrideFile submittedFile, MongoPrideFile insertedFile) {
+            inserted.add(insertedFile.getAccession());
+        }
+
+        @Override
+        public void onFileSkipped(MongoPrideFile submittedFile) {
+            skipped.add(submittedFile.getAccession());
+        }
+
+        @Override
+        public void onMsRunWindowCompleted(int insertedMsRuns, int skippedMsRuns) {
+            this.insertedMsRuns += insertedMsRuns;
+            this.skippedMsRuns += skippedMsRuns;
+            msRunWindows.add(insertedMsRuns + "/" + skippedMsRuns);
+        }
+
+        @Override
+        public void onFileWindowCompleted(int windowIndex, int windowSize) {
+            fileWindows.add(windowIndex + ":" + windowSize);
+        }
+
+        @Override
+        public void onFileWindowSkipped(int windowIndex, int windowSize) {
+            skippedFileWindows.add(windowIndex + ":" + windowSize);
+        }
+    }
+
+    @Test
+    public void bulkInsertCleanBatch() {
+        List<Tuple<MongoPrideFile, MongoPrideFile>> inserted = prideFileMongoService.insertAllFilesAndMsRunsInBulk(
+                Arrays.asList(file(1, "checksum-1"), file(2, "checksum-2")), Collections.singletonList(msRun(1, 1024)), 10);
+
+        Assert.assertEquals(2, inserted.size());
+        Assert.assertEquals(2, prideFileMongoService.count());
+        Assert.assertTrue(prideFileMongoService.findByFileAccession("PXF00000000002").isPresent());
+        Assert.assertTrue(prideMsRunMongoService.findMSRunByAccession("PXF00000000001").isPresent());
+    }
+
+    @Test
+    public void duplicateWithTheSameChecksumIsSkipped() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")), null, 10);
+
+        RecordingSink sink = new RecordingSink();
+        long inserted = prideFileMongoService.insertFilesAndMsRuns(Arrays.asList(file(1, "checksum-1"), file(2, "checksum-2")).iterator(),
+                Collections.singletonList(msRun(1, 1024)).iterator(), 10, sink);
+
+        Assert.assertEquals(1, inserted);
+        Assert.assertEquals(Collections.singletonList("PXF00000000002"), sink.inserted);
+        Assert.assertEquals(Collections.singletonList("PXF00000000001"), sink.skipped);
+        Assert.assertEquals(2, prideFileMongoService.count());
+
+        Assert.assertEquals(1, sink.insertedMsRuns);
+
+        // The same MSRun (same size) is skipped as well
+        prideFileMongoService.insertFilesAndMsRuns(Collections.<MongoPrideFile>emptyIterator(), Collections.singletonList(msRun(1, 1024)).iterator(),
+                10, sink);
+        Assert.assertEquals(1, sink.insertedMsRuns);
+        Assert.assertEquals(1, sink.skippedMsRuns);
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void duplicateWithADifferentChecksumFails() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")), null, 10);
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Arrays.asList(file(2, "checksum-2"), file(1, "other-checksum")), null, 10);
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void duplicateMsRunWithADifferentSizeFails() {
+        prideFileMongoService.insertFilesAndMsRuns(Collections.<MongoPrideFile>emptyIterator(), Collections.singletonList(msRun(1, 1024)).iterator(),
+                10, new RecordingSink());
+        prideFileMongoService.insertFilesAndMsRuns(Collections.<MongoPrideFile>emptyIterator(), Collections.singletonList(msRun(1, 2048)).iterator(),
+                10, new RecordingSink());
+    }
+
+    @Test
+    public void streamedIngestionIsWrittenWindowByWindow() {
+        List<MongoPrideFile> files = new ArrayList<>();
+        for (int i = 1; i <= 5; i++)
+            files.add(file(i, "checksum-" + i));
+        List<MongoPrideMSRun> msRuns = Arrays.asList(msRun(1, 1024), msRun(2, 1024), msRun(3, 1024));
+
+        RecordingSink sink = new RecordingSink();
+        long inserted = prideFileMongoService.insertFilesAndMsRuns(files.stream(), msRuns.stream(), 2, sink);
+
+        Assert.assertEquals(5, inserted);
+        // Two full windows and the last partial window
+        Assert.assertEquals(Arrays.asList("0:2", "1:2", "2:1"), sink.fileWindows);
+        Assert.assertEquals(Arrays.asList("2/0", "1/0"), sink.msRunWindows);
+        Assert.assertEquals(5, sink.inserted.size());
+        Assert.assertTrue(sink.skipped.isEmpty());
+        Assert.assertEquals(5, prideFileMongoService.count());
+    }
+
+    @Test
+    public void resumedLoadSkipsTheCommittedWindows() {
+        List<MongoPrideFile> firstRun = new ArrayList<>();
+        for (int i = 1; i <= 4; i++)
+            firstRun.add(file(i, "checksum-" + i));
+        RecordingSink firstSink = new RecordingSink();
+        Assert.assertEquals(4, prideFileMongoService.insertFilesAndMsRuns(PROJECT_ACCESSION, firstRun.iterator(), null, 2, firstSink));
+        Assert.assertEquals(Arrays.asList("0:2", "1:2"), firstSink.fileWindows);
+
+        // The committed Files are sent again with other checksums, writing them again would throw a DuplicateKeyException
+        List<MongoPrideFile> resumedRun = new ArrayList<>();
+        for (int i = 1; i <= 6; i++)
+            resumedRun.add(file(i, (i <= 4) ? "changed-" + i : "checksum-" + i));
+        RecordingSink resumedSink = new RecordingSink();
+        long inserted = prideFileMongoService.insertFilesAndMsRuns(PROJECT_ACCESSION, resumedRun.iterator(), null, 2, resumedSink);
+
+        Assert.assertEquals(2, inserted);
+        Assert.assertEquals(Arrays.asList("0:2", "1:2"), resumedSink.skippedFileWindows);
+        Assert.assertEquals(Collections.singletonList("2:2"), resumedSink.fileWindows);
+        Assert.assertEquals(Arrays.asList("PXF00000000005", "PXF00000000006"), resumedSink.inserted);
+        Assert.assertTrue(resumedSink.skipped.isEmpty());
+        Assert.assertEquals("checksum-1", prideFileMongoService.findByFileAccession("PXF00000000001").get().getChecksum());
+        Assert.assertEquals(6, prideFileMongoService.count());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resumedLoadWithAnotherWindowSizeFails() {
+        prideFileMongoService.insertFilesAndMsRuns(PROJECT_ACCESSION, Arrays.asList(file(1, "checksum-1"), file(2, "checksum-2")).iterator(),
+                null, 2, new RecordingSink());
+        ingestionJournalService.findCommittedBatches(PROJECT_ACCESSION, PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, 3);
+    }
+
+    @Test
+    public void checksumsAreFoundInBothChecksumFields() {
+        MongoPrideFile submitted = file(1, "checksum-1");
+        submitted.setSubmitterFileChecksum("submitter-1");
+        MongoPrideFile otherProject = file(2, "checksum-1");
+        otherProject.setProjectAccessions(Collections.singleton("PXD000002"));
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Arrays.asList(submitted, otherProject, file(3, "checksum-3")), null, 10);
+
+        FileChecksumIndex index = prideFileMongoService.findFilesByChecksums(Arrays.asList("checksum-1", "submitter-1", "unknown", null));
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("checksum-1", "submitter-1")), index.getChecksums());
+        Assert.assertFalse(index.contains("unknown"));
+        Assert.assertFalse(index.contains("checksum-3"));
+        Assert.assertEquals(Collections.singletonList("PXF00000000001"), index.getFileAccessions("submitter-1"));
+        // The same content is stored in two projects
+        Assert.assertEquals(new HashSet<>(Arrays.asList("PXF00000000001", "PXF00000000002")), new HashSet<>(index.getFileAccessions("checksum-1")));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(PROJECT_ACCESSION, "PXD000002")), index.getProjectAccessions("checksum-1"));
+    }
+
+    @Test
+    public void noChecksumsReturnsAnEmptyIndex() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")), null, 10);
+
+        Assert.assertEquals(0, prideFileMongoService.findFilesByChecksums(null).size());
+        Assert.assertEquals(0, prideFileMongoService.findFilesByChecksums(Collections.emptyList()).size());
+        Assert.assertEquals(0, prideFileMongoService.findFilesByChecksums(Collections.singletonList(null)).size());
+    }
+
+    @Test
+    public void duplicateWithoutChecksumIsSkipped() {
+        prideFileMongoService.insertAllFilesAndMsRuns(Collections.singletonList(file(1, null)), null);
+        Assert.assertTrue(prideFileMongoService.insertAllFilesAndMsRuns(Collections.singletonList(file(1, null)), null).isEmpty());
+        Assert.assertEquals(1, prideFileMongoService.count());
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void duplicateOfAFileWithoutChecksumFails() {
+        prideFileMongoService.insertAllFilesAndMsRuns(Collections.singletonList(file(1, null)), null);
+        prideFileMongoService.insertAllFilesAndMsRuns(Collections.singletonList(file(1, "checksum-1")), null);
+    }
+
+    @Test
+    public void bulkInsertEvictsTheCachedEntities() {
+        nearCache.setFileCacheMaxWeight(1024 * 1024);
+        nearCache.setMSRunCacheMaxWeight(1024 * 1024);
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")),
+                Collections.singletonList(msRun(1, 1024)), 10);
+        prideFileMongoService.findByFileAccession("PXF00000000001");
+        prideMsRunMongoService.findMSRunByAccession("PXF00000000001");
+        Assert.assertEquals(1, nearCache.getFileCache().size());
+        Assert.assertEquals(1, nearCache.getMSRunCache().size());
+
+        prideFileMongoService.insertFilesAndMsRuns(Collections.singletonList(file(1, "checksum-1")).iterator(),
+                Collections.singletonList(msRun(1, 1024)).iterator(), 10, new RecordingSink());
+        Assert.assertEquals(0, nearCache.getFileCache().size());
+        Assert.assertEquals(0, nearCache.getMSRunCache().size());
+    }
+
+    @Test
+    public void projectLinksAreAddedOnce() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Arrays.asList(file(1, "checksum-1"), file(2, "checksum-2")), null, 10);
+
+        List<String> files = Arrays.asList("PXF00000000001", "PXF00000000002");
+        Assert.assertEquals(2, prideFileMongoService.addProjectAccessionsToFiles(files, Arrays.asList("PXD000002", PROJECT_ACCESSION)));
+        // Linking the same project again matches the Files but adds no duplicate
+        Assert.assertEquals(2, prideFileMongoService.addProjectAccessionsToFiles(files, Collections.singletonList("PXD000002")));
+        Assert.assertTrue(prideFileMongoService.addProjectAccessions("PXF00000000001", Collections.singletonList("PXD000002")));
+
+        for (String accession : files) {
+            MongoPrideFile stored = prideFileMongoService.findByFileAccession(accession).get();
+            Assert.assertEquals(new HashSet<>(Arrays.asList(PROJECT_ACCESSION, "PXD000002")), stored.getProjectAccessions());
+            Assert.assertNull(stored.getAnalysisAccessions());
+        }
+        Assert.assertEquals(2, prideFileMongoService.findFilesByProjectAccession("PXD000002").size());
+    }
+
+    @Test
+    public void analysisLinksAreAddedToTheAnalysisAccessions() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Arrays.asList(file(1, "checksum-1"), file(2, "checksum-2")), null, 10);
+
+        Assert.assertEquals(2, prideFileMongoService.addAnalysisAccessionsToFiles(Arrays.asList("PXF00000000001", "PXF00000000002"),
+                Collections.singletonList("PRDA000001")));
+        Assert.assertTrue(prideFileMongoService.addAnalysisAccessions("PXF00000000001", Arrays.asList("PRDA000001", "PRDA000002")));
+
+        MongoPrideFile first = prideFileMongoService.findByFileAccession("PXF00000000001").get();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("PRDA000001", "PRDA000002")), first.getAnalysisAccessions());
+        Assert.assertEquals(Collections.singleton(PROJECT_ACCESSION), first.getProjectAccessions());
+        Assert.assertEquals(Collections.singleton("PRDA000001"), prideFileMongoService.findByFileAccession("PXF00000000002").get().getAnalysisAccessions());
+    }
+
+    @Test
+    public void unknownFilesAreNotLinked() {
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")), null, 10);
+
+        Assert.assertEquals(0, prideFileMongoService.addProjectAccessionsToFiles(Collections.singletonList("PXF00000000009"),
+                Collections.singletonList("PXD000002")));
+        Assert.assertEquals(0, prideFileMongoService.addAnalysisAccessionsToFiles(Collections.singletonList("PXF00000000009"),
+                Collections.singletonList("PRDA000001")));
+        Assert.assertFalse(prideFileMongoService.addProjectAccessions("PXF00000000009", Collections.singletonList("PXD000002")));
+        Assert.assertFalse(prideFileMongoService.addAnalysisAccessions("PXF00000000009", Collections.singletonList("PRDA000001")));
+
+        // The unknown Files are not upserted
+        Assert.assertEquals(1, prideFileMongoService.count());
+        Assert.assertFalse(prideFileMongoService.findByFileAccession("PXF00000000009").isPresent());
+    }
+
+    @Test
+    public void cachedFilesAreCopiedForEveryReader() {
+        nearCache.setFileCacheMaxWeight(1024 * 1024);
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")), null, 10);
+        Assert.assertEquals(1, prideFileMongoService.warmUpProjectFiles(PROJECT_ACCESSION));
+
+        MongoPrideFile first = prideFileMongoService.findByFileAccession("PXF00000000001").get();
+        first.setChecksum("changed");
+        first.getProjectAccessions().add("PXD000002");
+
+        long hits = nearCache.getFileCache().getHitCount();
+        MongoPrideFile second = prideFileMongoService.findByFileAccession("PXF00000000001").get();
+        Assert.assertEquals(hits + 1, nearCache.getFileCache().getHitCount());
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("checksum-1", second.getChecksum());
+        Assert.assertEquals(Collections.singleton(PROJECT_ACCESSION), second.getProjectAccessions());
+
+        // A write through the service evicts the File, the next read gets the stored one
+        second.setFileName("renamed.raw");
+        prideFileMongoService.save(second);
+        Assert.assertEquals(0, nearCache.getFileCache().size());
+        Assert.assertEquals("renamed.raw", prideFileMongoService.findByFileAccession("PXF00000000001").get().getFileName());
+    }
+
+    @Test
+    public void cachedMsRunsAreCopiedForEveryReader() {
+        nearCache.setMSRunCacheMaxWeight(1024 * 1024);
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(Collections.singletonList(file(1, "checksum-1")),
+                Collections.singletonList(msRun(1, 1024)), 10);
+        prideMsRunMongoService.findMSRunByAccession("PXF00000000001").get().setFileSizeBytes(2048);
+
+        long hits = nearCache.getMSRunCache().getHitCount();
+        MongoPrideMSRun cached = prideMsRunMongoService.findMSRunByAccession("PXF00000000001").get();
+        Assert.assertEquals(hits + 1, nearCache.getMSRunCache().getHitCount());
+        Assert.assertEquals(1024, cached.getFileSizeBytes());
+
+        cached.setFileSizeBytes(4096);
+        prideMsRunMongoService.updateMSRun(cached);
+        Assert.assertEquals(0, nearCache.getMSRunCache().size());
+        Assert.assertEquals(4096, prideMsRunMongoService.findMSRunByAccession("PXF00000000001").get().getFileSizeBytes());
+    }
+}
@@ -0,0 +1,143 @@
+package uk.ac.ebi.pride.mongodb.archive.service.fongo.projects;
+
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.pride.mongodb.archive.config.PrideProjectFongoTestConfig;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+import uk.ac.ebi.pride.mongodb.archive.service.assays.PrideAssayMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectCascadeDeleteService;
+import uk.ac.ebi.pride.mongodb.archive.service.sdrf.PrideSdrfMongoService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PrideProjectCascadeDeleteService} tests using the fongo database: two projects are stored and only the data of the deleted one
+ * is removed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {PrideProjectFongoTestConfig.class})
+public class PrideFongoCascadeDeleteServiceTest {
+
+    private static final String DELETED_PROJECT = "PXD000051";
+    private static final String KEPT_PROJECT = "PXD000052";
+
+    @Autowired
+    PrideProjectCascadeDeleteService cascadeDeleteService;
+
+    @Autowired
+    PrideFileMongoService prideFileMongoService;
+
+    @Autowired
+    PrideAssayMongoService prideAssayMongoService;
+
+    @Autowired
+    PrideSdrfMongoService prideSdrfMongoService;
+
+    @Autowired
+    @Qualifier("archiveMongoTemplate")
+    MongoTemplate mongoTemplate;
+
+    @Before
+    public void setUp() {
+        List<String> projects = Arrays.asList(DELETED_PROJECT, KEPT_PROJECT);
+        mongoTemplate.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).in(projects)), MongoPrideFile.class);
+        mongoTemplate.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).in(projects)), MongoPrideMSRun.class);
+        mongoTemplate.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).in(projects)), MongoPrideAssay.class);
+        mongoTemplate.remove(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSION).in(projects)), MongoPrideSdrf.class);
+    }
+
+    /**
+     * Store the Files, MSRuns, Assays and SDRF rows of a project, the first number is used to build unique accessions.
+     */
+    private void seedProject(String projectAccession, int firstNumber, int files, int assays, int sdrfRows) {
+        List<MongoPrideFile> prideFiles = new ArrayList<>();
+        List<MongoPrideMSRun> msRuns = new ArrayList<>();
+        for (int i = firstNumber; i < firstNumber + files; i++) {
+            String accession = String.format("PXF%011d", i);
+            prideFiles.add(MongoPrideFile.builder()
+                    .accession(accession)
+                    .fileName(accession + ".raw")
+                    .checksum("checksum-" + i)
+                    .projectAccessions(Collections.singleton(projectAccession))
+                    .build());
+            msRuns.add(new MongoPrideMSRun(new ObjectId(), Collections.singleton(projectAccession), null, accession, accession + ".raw",
+                    1024, null, null, null, null, null, null));
+        }
+        prideFileMongoService.insertAllFilesAndMsRunsInBulk(prideFiles, msRuns, 10);
+
+        for (int i = firstNumber; i < firstNumber + assays; i++)
+            prideAssayMongoService.insert(MongoPrideAssay.builder()
+                    .accession(String.valueOf(i))
+                    .projectAccessions(Collections.singleton(projectAccession))
+                    .build());
+
+        List<MongoPrideSdrf> sdrf = new ArrayList<>();
+        for (int i = firstNumber; i < firstNumber + sdrfRows; i++)
+            sdrf.add(MongoPrideSdrf.builder()
+                    .projectAccession(projectAccession)
+                    .filechecksum("checksum-" + i)
+                    .sample(Collections.singletonMap("source name", "sample " + i))
+                    .build());
+        prideSdrfMongoService.saveSdrfList(sdrf);
+    }
+
+    private void assertDeleted(Map<String, Long> deleted) {
+        Assert.assertEquals(4, deleted.size());
+        Assert.assertEquals(Long.valueOf(3), deleted.get(PrideArchiveField.PRIDE_FILE_COLLECTION_NAME));
+        Assert.assertEquals(Long.valueOf(3), deleted.get(PrideArchiveField.PRIDE_MSRUN_COLLECTION_NAME));
+        Assert.assertEquals(Long.valueOf(2), deleted.get(PrideArchiveField.PRIDE_ASSAY_COLLECTION_NAME));
+        Assert.assertEquals(Long.valueOf(4), deleted.get(PrideArchiveField.PRIDE_SDRF_COLLECTION_NAME));
+
+        Assert.assertTrue(prideFileMongoService.findFilesByProjectAccession(DELETED_PROJECT).isEmpty());
+        Assert.assertEquals(0, mongoTemplate.count(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).is(DELETED_PROJECT)),
+                MongoPrideMSRun.class));
+        Assert.assertTrue(prideAssayMongoService.findAssayByProjectAccession(DELETED_PROJECT).isEmpty());
+        Assert.assertTrue(prideSdrfMongoService.findByProjectAccession(DELETED_PROJECT).isEmpty());
+
+        // The data of the other project is not touched
+        Assert.assertEquals(2, prideFileMongoService.findFilesByProjectAccession(KEPT_PROJECT).size());
+        Assert.assertEquals(2, mongoTemplate.count(new Query(Criteria.where(PrideArchiveField.EXTERNAL_PROJECT_ACCESSIONS).is(KEPT_PROJECT)),
+                MongoPrideMSRun.class));
+        Assert.assertEquals(1, prideAssayMongoService.findAssayByProjectAccession(KEPT_PROJECT).size());
+        Assert.assertEquals(3, prideSdrfMongoService.findByProjectAccession(KEPT_PROJECT).size());
+    }
+
+    @Test
+    public void sequentialDeleteRemovesOnlyTheProjectData() {
+        seedProject(DELETED_PROJECT, 51001, 3, 2, 4);
+        seedProject(KEPT_PROJECT, 52001, 2, 1, 3);
+
+        assertDeleted(cascadeDeleteService.deleteByProjectAccession(DELETED_PROJECT));
+    }
+
+    @Test
+    public void parallelDeleteRemovesOnlyTheProjectData() {
+        seedProject(DELETED_PROJECT, 51001, 3, 2, 4);
+        seedProject(KEPT_PROJECT, 52001, 2, 1, 3);
+
+        assertDeleted(cascadeDeleteService.deleteByProjectAccession(DELETED_PROJECT, true));
+
+        // Nothing is left to delete
+        Map<String, Long> deletedAgain = cascadeDeleteService.deleteByProjectAccession(DELETED_PROJECT, true);
+        Assert.assertTrue(deletedAgain.values().stream().allMatch(count -> count == 0));
+    }
+}
@@ -1,5 +1,6 @@
 package uk.ac.ebi.pride.mongodb.archive.service.fongo.projects;
 
+import org.bson.types.ObjectId;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,13 +18,16 @@ import uk.ac.ebi.pride.data.io.SubmissionFileParser;
 import uk.ac.ebi.pride.data.model.DataFile;
 import uk.ac.ebi.pride.data.model.Submission;
 import uk.ac.ebi.pride.mongodb.archive.config.PrideProjectFongoTestConfig;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
 import uk.ac.ebi.pride.mongodb.archive.model.msrun.MongoPrideMSRun;
 import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
 import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.service.assays.PrideAssayMongoService;
 import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
 import uk.ac.ebi.pride.mongodb.archive.service.msruns.PrideMsRunMongoService;
 import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
 import uk.ac.ebi.pride.mongodb.archive.utils.TestUtils;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
 
 import java.io.File;
 import java.net.URISyntaxException;
@@ -50,8 +54,12 @@ public class PrideFongoProjectServiceTest {
     @Autowired
     PrideMsRunMongoService prideMsRunMongoService;
 
+    @Autowired
+    PrideAssayMongoService prideAssayMongoService;
+
     @Before
     public void setUp(){
+        prideProjectService.deleteAll();
     }
 
     /**
@@ -66,6 +74,124 @@ public class PrideFongoProjectServiceTest {
         prideProjectService.insert(project);
     }
 
+    /**
+     * The cached project is not shared: changing a project returned by findByAccession does not change the next one returned.
+     */
+    @Test
+    public void findByAccessionReturnsACopyOfTheCachedProject() {
+        prideProjectService.insert(MongoPrideProject.builder()
+                .accession("PXD000021")
+                .title("Original title")
+                .keywords(new ArrayList<>(Collections.singletonList("proteomics")))
+                .build());
+
+        MongoPrideProject first = prideProjectService.findByAccession("PXD000021").get();
+        first.setTitle("Changed title");
+        first.getKeywords().add("changed");
+
+        MongoPrideProject second = prideProjectService.findByAccession("PXD000021").get();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("Original title", second.getTitle());
+        Assert.assertEquals(Collections.singletonList("proteomics"), new ArrayList<>(second.getKeywords()));
+    }
+
+    private static MongoPrideProject project(String accession, String title) {
+        return MongoPrideProject.builder().accession(accession).title(title).build();
+    }
+
+    /**
+     * Inserting an accession that is already in the database does not overwrite the stored project.
+     */
+    @Test
+    public void insertOfAnExistingAccessionIsSkipped() {
+        Optional<MongoPrideProject> inserted = prideProjectService.insert(project("PXD000031", "Original title"));
+        Assert.assertTrue(inserted.isPresent());
+        Assert.assertNotNull(inserted.get().getId());
+
+        Assert.assertFalse(prideProjectService.insert(project("PXD000031", "Other title")).isPresent());
+        MongoPrideProject stored = prideProjectService.findByAccession("PXD000031").get();
+        Assert.assertEquals("Original title", stored.getTitle());
+        Assert.assertEquals(inserted.get().getId(), stored.getId());
+    }
+
+    /**
+     * Updating an accession that is not in the database does not insert it.
+     */
+    @Test
+    public void updateOfAMissingAccessionIsSkipped() {
+        Assert.assertFalse(prideProjectService.update(project("PXD000032", "Title")).isPresent());
+        Assert.assertFalse(prideProjectService.findByAccession("PXD000032").isPresent());
+    }
+
+    /**
+     * An upsert replaces the stored project and keeps its _id.
+     */
+    @Test
+    public void upsertKeepsTheIdOfTheStoredProject() {
+        ObjectId id = prideProjectService.insert(project("PXD000033", "Original title")).get().getId();
+
+        MongoPrideProject upserted = prideProjectService.upsert(project("PXD000033", "New title")).get();
+        Assert.assertEquals(id, upserted.getId());
+        MongoPrideProject stored = prideProjectService.findByAccession("PXD000033").get();
+        Assert.assertEquals(id, stored.getId());
+        Assert.assertEquals("New title", stored.getTitle());
+
+        // The updated project is also read back with the same _id
+        Assert.assertEquals(id, prideProjectService.update(project("PXD000033", "Updated title")).get().getId());
+        Assert.assertEquals("Updated title", prideProjectService.findByAccession("PXD000033").get().getTitle());
+    }
+
+    /**
+     * Batch insert and upsert of projects that are partly in the database.
+     */
+    @Test
+    public void batchInsertAndUpsertCountTheStoredProjects() {
+        ObjectId id = prideProjectService.insert(project("PXD000034", "Original title")).get().getId();
+
+        BulkUpsertResult inserted = prideProjectService.insertAll(Arrays.asList(project("PXD000034", "Other title"),
+                project("PXD000035", "Title"), project("PXD000036", "Title")));
+        Assert.assertEquals(2, inserted.getInserted());
+        Assert.assertEquals(1, inserted.getMatched());
+        Assert.assertEquals("Original title", prideProjectService.findByAccession("PXD000034").get().getTitle());
+        Assert.assertTrue(prideProjectService.findByAccession("PXD000036").isPresent());
+
+        BulkUpsertResult upserted = prideProjectService.upsertAll(Arrays.asList(project("PXD000034", "New title"), project("PXD000037", "Title")));
+        Assert.assertEquals(1, upserted.getInserted());
+        Assert.assertEquals(1, upserted.getMatched());
+        Assert.assertEquals(1, upserted.getModified());
+        MongoPrideProject stored = prideProjectService.findByAccession("PXD000034").get();
+        Assert.assertEquals("New title", stored.getTitle());
+        Assert.assertEquals(id, stored.getId());
+        Assert.assertTrue(prideProjectService.findByAccession("PXD000037").isPresent());
+    }
+
+    private static MongoPrideAssay assay(String accession, String description) {
+        return MongoPrideAssay.builder()
+                .accession(accession)
+                .assayDescription(description)
+                .projectAccessions(Collections.singleton("PXD000041"))
+                .build();
+    }
+
+    /**
+     * The assays are upserted by accession: the new assay is inserted and the stored one is replaced and keeps its _id.
+     */
+    @Test
+    public void saveAssaysUpsertsByAccession() {
+        ObjectId id = prideAssayMongoService.insert(assay("41001", "Original description")).getId();
+
+        BulkUpsertResult result = prideProjectService.saveAssays(Arrays.asList(assay("41001", "New description"), assay("41002", "Description")));
+        Assert.assertEquals(1, result.getInserted());
+        Assert.assertEquals(1, result.getMatched());
+
+        Map<String, MongoPrideAssay> assays = prideAssayMongoService.findAssayByProjectAccession("PXD000041").stream()
+                .collect(Collectors.toMap(MongoPrideAssay::getAccession, x -> x));
+        Assert.assertEquals(2, assays.size());
+        Assert.assertEquals(id, assays.get("41001").getId());
+        Assert.assertEquals("New description", assays.get("41001").getAssayDescription());
+        Assert.assertNotNull(assays.get("41002").getId());
+    }
+
     private Submission readSubmission() throws SubmissionFileException, URISyntaxException {
         File pxFile = new File(Objects.requireNonNull(PrideFongoProjectServiceTest.class.getClassLoader().getResource("pride-submission-three.px")).toURI());
         return SubmissionFileParser.parse(pxFile);
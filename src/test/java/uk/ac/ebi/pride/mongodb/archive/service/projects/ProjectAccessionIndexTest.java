@@ -0,0 +1,75 @@
+package uk.ac.ebi.pride.mongodb.archive.service.projects;
+
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.PrideProjectSummary;
+import uk.ac.ebi.pride.mongodb.archive.repo.projects.PrideProjectMongoRepository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ProjectAccessionIndex} unit tests, the repository is mocked and the clock is controlled by the test.
+ */
+public class ProjectAccessionIndexTest {
+
+    private final ObjectId firstId = new ObjectId(new Date(1000));
+    private final ObjectId secondId = new ObjectId(new Date(2000));
+    private final Date updatedDate = new Date(5000);
+
+    private PrideProjectMongoRepository repository;
+    private AtomicLong now;
+    private ProjectAccessionIndex index;
+
+    @Before
+    public void setUp() {
+        repository = Mockito.mock(PrideProjectMongoRepository.class);
+        now = new AtomicLong(100000);
+        index = new ProjectAccessionIndex(repository, 1000, 60000, now::get);
+        List<PrideProjectSummary> projects = Arrays.asList(project(firstId, "PXD000001", null), project(secondId, "PXD000002", updatedDate));
+        Mockito.when(repository.findAccessionsChangedSince(null, null)).thenReturn(projects);
+    }
+
+    @Test
+    public void setIsOnlyReadAgainAfterTheRefreshInterval() {
+        Assert.assertTrue(index.get().contains("PXD000002"));
+        now.addAndGet(999);
+        index.get();
+        Mockito.verify(repository, Mockito.times(1)).findAccessionsChangedSince(null, null);
+        Mockito.verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void refreshOnlyReadsTheProjectsChangedSinceTheLastOne() {
+        index.get();
+        List<PrideProjectSummary> changes = Collections.singletonList(project(new ObjectId(new Date(3000)), "PXD000003", null));
+        Mockito.when(repository.findAccessionsChangedSince(updatedDate, secondId)).thenReturn(changes);
+        now.addAndGet(1000);
+        Assert.assertEquals(3, index.get().size());
+        Mockito.verify(repository).findAccessionsChangedSince(updatedDate, secondId);
+    }
+
+    @Test
+    public void deleteLoadsTheSetAgain() {
+        index.get();
+        index.markDeleted();
+        List<PrideProjectSummary> projects = Collections.singletonList(project(firstId, "PXD000001", null));
+        Mockito.when(repository.findAccessionsChangedSince(null, null)).thenReturn(projects);
+        Assert.assertFalse(index.get().contains("PXD000002"));
+        Mockito.verify(repository, Mockito.times(2)).findAccessionsChangedSince(null, null);
+    }
+
+    private static PrideProjectSummary project(ObjectId id, String accession, Date updatedDate) {
+        PrideProjectSummary project = Mockito.mock(PrideProjectSummary.class);
+        Mockito.when(project.getId()).thenReturn(id);
+        Mockito.when(project.getAccession()).thenReturn(accession);
+        Mockito.when(project.getUpdatedDate()).thenReturn(updatedDate);
+        return project;
+    }
+}
@@ -0,0 +1,160 @@
+package uk.ac.ebi.pride.mongodb.archive.service.submission;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import uk.ac.ebi.pride.archive.dataprovider.common.Tuple;
+import uk.ac.ebi.pride.mongodb.archive.model.assay.MongoPrideAssay;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.MongoPrideProject;
+import uk.ac.ebi.pride.mongodb.archive.model.sdrf.MongoPrideSdrf;
+import uk.ac.ebi.pride.mongodb.archive.service.files.PrideFileMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.projects.PrideProjectMongoService;
+import uk.ac.ebi.pride.mongodb.archive.service.sdrf.PrideSdrfMongoService;
+import uk.ac.ebi.pride.mongodb.utils.BulkUpsertResult;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link PrideSubmissionLoader} unit tests, the services of every stage are mocked.
+ */
+public class PrideSubmissionLoaderTest {
+
+    private static final String ACCESSION = "PXD000001";
+
+    private PrideProjectMongoService projectService;
+    private PrideFileMongoService fileService;
+    private PrideSdrfMongoService sdrfService;
+    private PrideSubmissionLoader loader;
+
+    private final MongoPrideFile file = MongoPrideFile.builder().accession("PXF00000000001").build();
+    private final AtomicBoolean projectDone = new AtomicBoolean();
+    private final AtomicBoolean filesDone = new AtomicBoolean();
+
+    @Before
+    public void setUp() {
+        projectService = Mockito.mock(PrideProjectMongoService.class);
+        fileService = Mockito.mock(PrideFileMongoService.class);
+        sdrfService = Mockito.mock(PrideSdrfMongoService.class);
+        loader = new PrideSubmissionLoader(projectService, fileService, sdrfService);
+    }
+
+    @After
+    public void tearDown() {
+        loader.shutdown();
+    }
+
+    private PrideSubmission submission(boolean withRelations, List<Boolean> relationCalls) {
+        return PrideSubmission.builder()
+                .project(MongoPrideProject.builder().accession(ACCESSION).build())
+                .files(Collections.singletonList(file))
+                .assays(Collections.singletonList(MongoPrideAssay.builder().build()))
+                .sdrf(Collections.singletonList(MongoPrideSdrf.builder().build()))
+                .fileRelations(withRelations ? insertedFiles -> {
+                    // The relations must see the project and the Files in the database
+                    relationCalls.add(projectDone.get() && filesDone.get());
+                    return Collections.emptyList();
+                } : null)
+                .build();
+    }
+
+    private void stubProject(long millis) {
+        Mockito.when(projectService.insert(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Thread.sleep(millis);
+            projectDone.set(true);
+            return Optional.empty();
+        });
+    }
+
+    private void stubFiles(long millis) {
+        Mockito.when(fileService.insertAllFilesAndMsRunsInBulk(ArgumentMatchers.anyList(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Thread.sleep(millis);
+            filesDone.set(true);
+            return Collections.singletonList(new Tuple<>(file, file));
+        });
+    }
+
+    @Test
+    public void fileRelationsRunAfterTheProjectAndTheFiles() {
+        stubProject(200);
+        stubFiles(100);
+        List<Boolean> relationCalls = new CopyOnWriteArrayList<>();
+
+        SubmissionLoadReport report = loader.load(submission(true, relationCalls));
+
+        Assert.assertEquals(1, relationCalls.size());
+        Assert.assertEquals(Boolean.TRUE, relationCalls.get(0));
+        Assert.assertEquals(1, report.getInsertedFiles().size());
+    }
+
+    @Test
+    public void independentStagesRunConcurrently() {
+        // Every stage waits for the other three, the load only finishes if the four stages run at the same time
+        CountDownLatch allStarted = new CountDownLatch(4);
+        AtomicBoolean concurrent = new AtomicBoolean(true);
+        Runnable await = () -> {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(5, TimeUnit.SECONDS))
+                    concurrent.set(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                concurrent.set(false);
+            }
+        };
+        Mockito.when(projectService.insert(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            await.run();
+            return Optional.empty();
+        });
+        Mockito.when(fileService.insertAllFilesAndMsRunsInBulk(ArgumentMatchers.anyList(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+            await.run();
+            return Collections.emptyList();
+        });
+        Mockito.when(projectService.saveAssays(ArgumentMatchers.anyList())).thenAnswer(invocation -> {
+            await.run();
+            return Mockito.mock(BulkUpsertResult.class);
+        });
+        Mockito.doAnswer(invocation -> {
+            await.run();
+            return null;
+        }).when(sdrfService).saveSdrfList(ArgumentMatchers.anyList());
+
+        loader.load(submission(false, null));
+        Assert.assertTrue(concurrent.get());
+    }
+
+    @Test
+    public void firstFailureIsThrownWhenAllTheStagesHaveFinished() {
+        Mockito.when(projectService.insert(ArgumentMatchers.any())).thenThrow(new IllegalStateException("project failed"));
+        stubFiles(300);
+        try {
+            loader.load(submission(true, new CopyOnWriteArrayList<>()));
+            Assert.fail("The failure of the project stage must be thrown");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("project failed", ex.getMessage());
+            Assert.assertTrue(filesDone.get());
+        }
+    }
+
+    @Test
+    public void stageTimesAreReported() {
+        stubProject(0);
+        stubFiles(150);
+
+        SubmissionLoadReport report = loader.load(submission(true, new CopyOnWriteArrayList<>()));
+
+        Assert.assertEquals(EnumSet.allOf(SubmissionStage.class), report.getStageTimesMillis().keySet());
+        Assert.assertTrue(report.getStageTimesMillis().get(SubmissionStage.FILES_AND_MSRUNS) >= 100);
+        Assert.assertTrue(report.getTotalTimeMillis() >= report.getSlowestStageMillis());
+    }
+}
@@ -0,0 +1,82 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import uk.ac.ebi.pride.mongodb.archive.model.projects.CounterCollection;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * {@link AccessionBlockAllocator} unit tests, the counter collection is simulated with a mocked {@link MongoOperations}.
+ */
+public class AccessionBlockAllocatorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    private MongoOperations mongoOperations;
+    private AtomicInteger sequence;
+
+    @Before
+    public void setUp() {
+        sequence = new AtomicInteger();
+        mongoOperations = Mockito.mock(MongoOperations.class);
+        Mockito.when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(CounterCollection.class)))
+                .thenAnswer(invocation -> CounterCollection.builder().id("test").seq(sequence.addAndGet(BLOCK_SIZE)).build());
+    }
+
+    @Test
+    public void consecutiveAccessionsInOneBlock() {
+        AccessionBlockAllocator allocator = new AccessionBlockAllocator(mongoOperations, "test", BLOCK_SIZE, 0);
+        for (long i = 1; i <= BLOCK_SIZE; i++)
+            Assert.assertEquals(i, allocator.next());
+        Assert.assertEquals(BLOCK_SIZE, allocator.getLeasedCount());
+        allocator.close();
+    }
+
+    @Test
+    public void uniqueAccessionsAcrossAllocatorsAndThreads() throws InterruptedException {
+        AccessionBlockAllocator first = new AccessionBlockAllocator(mongoOperations, "test", BLOCK_SIZE);
+        AccessionBlockAllocator second = new AccessionBlockAllocator(mongoOperations, "test", BLOCK_SIZE);
+        Set<Long> accessions = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            AccessionBlockAllocator allocator = (i % 2 == 0) ? first : second;
+            executor.execute(() -> accessions.add(allocator.next()));
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assert.assertEquals(1000, accessions.size());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void unusedAccessionsAreReported() {
+        AccessionBlockAllocator allocator = new AccessionBlockAllocator(mongoOperations, "test", BLOCK_SIZE, 0);
+        allocator.next();
+        allocator.next();
+        Assert.assertEquals(BLOCK_SIZE - 2, allocator.getUnusedCount());
+        allocator.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedAllocator() {
+        AccessionBlockAllocator allocator = new AccessionBlockAllocator(mongoOperations, "test", BLOCK_SIZE);
+        allocator.close();
+        allocator.next();
+    }
+}
@@ -0,0 +1,39 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link BoundedCache} unit tests.
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void valuesAreLoadedOnce() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 5; i++)
+            Assert.assertEquals(Integer.valueOf(3), cache.get("key", key -> {
+                loads.incrementAndGet();
+                return key.length();
+            }));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(4, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,49 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * {@link CompactAccessionSet} unit tests.
+ */
+public class CompactAccessionSetTest {
+
+    @Test
+    public void accessionsAreFoundWithTheirPadding() {
+        CompactAccessionSet accessions = CompactAccessionSet.of(Arrays.asList("PXD000010", "PRD000001", "PXD1000000", "PXD000002", "PXD000002", null));
+        Assert.assertEquals(4, accessions.size());
+        Assert.assertTrue(accessions.contains("PXD000002"));
+        Assert.assertTrue(accessions.contains("PXD1000000"));
+        Assert.assertFalse(accessions.contains("PXD2"));
+        Assert.assertFalse(accessions.contains("PXD0000002"));
+        Assert.assertFalse(accessions.contains("PRD000002"));
+        Assert.assertFalse(accessions.contains(null));
+    }
+
+    @Test
+    public void accessionsAreIteratedByPrefixAndNumber() {
+        CompactAccessionSet accessions = CompactAccessionSet.of(Arrays.asList("PXD1000000", "PXD000010", "other", "PRD000001", "PXD0000001", "PXD000002"));
+        Assert.assertEquals(Arrays.asList("PRD000001", "PXD000002", "PXD000010", "PXD1000000", "PXD0000001", "other"), new ArrayList<>(accessions));
+        Assert.assertEquals(new HashSet<>(accessions), accessions);
+    }
+
+    @Test
+    public void addingKnownAccessionsReturnsTheSameSet() {
+        CompactAccessionSet accessions = CompactAccessionSet.of(Arrays.asList("PXD000001", "PXD000003"));
+        Assert.assertSame(accessions, accessions.withAdded(Collections.singletonList("PXD000003")));
+
+        CompactAccessionSet added = accessions.withAdded(Arrays.asList("PXD000002", "PXD000003"));
+        Assert.assertEquals(Arrays.asList("PXD000001", "PXD000002", "PXD000003"), new ArrayList<>(added));
+        Assert.assertEquals(2, accessions.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setIsReadOnly() {
+        CompactAccessionSet.of(Collections.singletonList("PXD000001")).add("PXD000002");
+    }
+}
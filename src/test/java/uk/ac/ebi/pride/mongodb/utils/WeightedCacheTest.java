@@ -0,0 +1,82 @@
+package uk.ac.ebi.pride.mongodb.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link WeightedCache} unit tests, the weight of a value is its length.
+ */
+public class WeightedCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedByWeight() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+        cache.put("c", "cccccc");
+        Assert.assertEquals(10, cache.getWeight());
+        Assert.assertEquals("aaaa", cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void valueHeavierThanTheCacheIsNotStored() {
+        WeightedCache<String, String> cache = new WeightedCache<>(3, String::length);
+        Assert.assertEquals("value", cache.get("key", key -> "value"));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void valueLoadedDuringAnInvalidationIsNotStored() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100, String::length);
+        Assert.assertEquals("old", cache.get("key", key -> {
+            cache.invalidate(key);
+            return "old";
+        }));
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals("new", cache.get("key", key -> "new"));
+        Assert.assertEquals("new", cache.get("key", key -> "never"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void entriesExpireAfterWrite() {
+        AtomicLong now = new AtomicLong(1000);
+        WeightedCache<String, String> cache = new WeightedCache<>(100, String::length, now::get);
+        cache.setExpireAfterWriteMillis(50);
+        cache.put("key", "value");
+        now.addAndGet(49);
+        Assert.assertEquals("value", cache.get("key"));
+        now.addAndGet(1);
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(0, cache.getWeight());
+        Assert.assertEquals(1, cache.getExpirationCount());
+        Assert.assertEquals("new", cache.get("key", key -> "new"));
+        Assert.assertEquals("new", cache.get("key"));
+    }
+
+    @Test
+    public void loadStoresTheValuesByKeyUnlessTheCacheIsInvalidated() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100, String::length);
+        Assert.assertEquals(2, cache.load(() -> Arrays.asList("a1", "b22"), x -> x.substring(0, 1)));
+        Assert.assertEquals("b22", cache.get("b"));
+        Assert.assertEquals(0, cache.load(() -> {
+            cache.invalidate("a");
+            return Arrays.asList("a333", "c4444");
+        }, x -> x.substring(0, 1)));
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNull(cache.get("c"));
+
+        WeightedCache<String, String> disabled = new WeightedCache<>(0, String::length);
+        Assert.assertEquals(0, disabled.load(() -> {
+            throw new AssertionError("A disabled cache must not load");
+        }, x -> x));
+    }
+}
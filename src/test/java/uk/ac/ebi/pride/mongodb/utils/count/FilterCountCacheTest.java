@@ -0,0 +1,47 @@
+package uk.ac.ebi.pride.mongodb.utils.count;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link FilterCountCache} unit tests.
+ */
+public class FilterCountCacheTest {
+
+    @Test
+    public void countsAreCachedByCollectionAndFilter() {
+        FilterCountCache cache = new FilterCountCache(16, 60000);
+        AtomicInteger counts = new AtomicInteger();
+        Assert.assertEquals(10, cache.get("pride_files", "fileName==a.raw", () -> { counts.incrementAndGet(); return 10; }));
+        Assert.assertEquals(10, cache.get("pride_files", "fileName==a.raw", () -> { counts.incrementAndGet(); return 20; }));
+        Assert.assertEquals(30, cache.get("pride_msruns", "fileName==a.raw", () -> { counts.incrementAndGet(); return 30; }));
+        Assert.assertEquals(2, counts.get());
+    }
+
+    @Test
+    public void writesInvalidateTheCollection() {
+        FilterCountCache cache = new FilterCountCache(16, 60000);
+        cache.get("pride_files", "key", () -> 10);
+        cache.get("pride_msruns", "key", () -> 30);
+        cache.invalidate("pride_files");
+        Assert.assertEquals(11, cache.get("pride_files", "key", () -> 11));
+        Assert.assertEquals(30, cache.get("pride_msruns", "key", () -> 31));
+    }
+
+    @Test
+    public void countDuringAWriteIsNotKept() {
+        FilterCountCache cache = new FilterCountCache(16, 60000);
+        Assert.assertEquals(10, cache.get("pride_files", "key", () -> { cache.invalidate("pride_files"); return 10; }));
+        Assert.assertEquals(11, cache.get("pride_files", "key", () -> 11));
+    }
+
+    @Test
+    public void expiredCounts() throws InterruptedException {
+        FilterCountCache cache = new FilterCountCache(16, 1);
+        cache.get("pride_files", "key", () -> 10);
+        Thread.sleep(10);
+        Assert.assertEquals(11, cache.get("pride_files", "key", () -> 11));
+    }
+}
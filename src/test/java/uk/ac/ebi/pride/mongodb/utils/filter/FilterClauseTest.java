@@ -0,0 +1,75 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * {@link FilterClause} unit tests.
+ */
+public class FilterClauseTest {
+
+    @Test
+    public void megabytesAreConvertedToTheStoredBytes() {
+        FilterClause clause = FilterClause.of("fileSizeMB", "range", "[0 TO 1000]");
+        Assert.assertEquals("fileSizeBytes", clause.getField());
+        Assert.assertEquals(Arrays.asList(0L, 1000L * 1048576L), clause.getValues());
+        Document criteria = clause.toCriteria().getCriteriaObject();
+        Assert.assertEquals(new Document("$gte", 0L).append("$lte", 1000L * 1048576L), criteria.get("fileSizeBytes"));
+        Assert.assertEquals(524288L, FilterClause.of("fileSizeMB", "is", "0.5").getValues().get(0));
+    }
+
+    @Test
+    public void bytesAreNotConverted() {
+        FilterClause clause = FilterClause.of("fileSizeBytes", "range", "[0 TO 1000]");
+        Assert.assertEquals("fileSizeBytes", clause.getField());
+        Assert.assertEquals(Arrays.asList(0L, 1000L), clause.getValues());
+    }
+
+    @Test
+    public void booleanValues() {
+        FilterClause clause = FilterClause.of("public_project", "is", "TRUE");
+        Assert.assertEquals("publicProject", clause.getField());
+        Assert.assertEquals(Boolean.TRUE, clause.toCriteria().getCriteriaObject().get("publicProject"));
+    }
+
+    @Test
+    public void cvParamFiltersTheAccession() {
+        FilterClause clause = FilterClause.of("fileCategory", "in", "PRIDE:0000404|PRIDE:0000409");
+        Assert.assertEquals("fileCategory.accession", clause.getField());
+        Assert.assertEquals(Arrays.asList("PRIDE:0000404", "PRIDE:0000409"), clause.getValues());
+    }
+
+    @Test
+    public void nonCvParamObjectsAreNotAccessionFilters() {
+        Assert.assertEquals("headLab", FilterClause.of("lab_heads", "is", "Smith").getField());
+        Assert.assertEquals("experimentalFactors", FilterClause.of("experimentalFactors", "is", "time").getField());
+    }
+
+    @Test
+    public void datesAreParsed() {
+        FilterClause clause = FilterClause.of("submissionDate", "range", "[2018-01-01 TO 2018-12-31]");
+        Assert.assertTrue(clause.getValues().get(0) instanceof Date);
+        Assert.assertTrue(((Date) clause.getValues().get(0)).before((Date) clause.getValues().get(1)));
+    }
+
+    @Test
+    public void unknownFieldsAreStrings() {
+        FilterClause clause = FilterClause.of("fileCategory.value", "is", "RAW");
+        Assert.assertEquals("fileCategory.value", clause.getField());
+        Assert.assertEquals("RAW", clause.getValues().get(0));
+    }
+
+    @Test
+    public void unsupportedOperator() {
+        Assert.assertNull(FilterClause.of("fileName", "near", "test"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNumber() {
+        FilterClause.of("fileSizeMB", "is", "big");
+    }
+}
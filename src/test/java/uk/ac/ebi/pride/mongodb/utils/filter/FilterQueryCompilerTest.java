@@ -0,0 +1,103 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.mongodb.utils.PrideMongoUtils;
+
+import java.util.List;
+
+/**
+ * {@link FilterQueryCompiler} unit tests.
+ */
+public class FilterQueryCompilerTest {
+
+    @Test
+    public void equivalentFiltersShareThePlan() {
+        FilterQueryCompiler compiler = new FilterQueryCompiler(16);
+        FilterQueryPlan plan = compiler.compile("fileName==test.raw,projectAccessions=all=PXD000001");
+        Assert.assertSame(plan, compiler.compile(" fileName==test.raw , projectAccessions=all=PXD000001,"));
+        Assert.assertSame(plan, compiler.compile("fileName==test.raw", "projectAccessions=all=PXD000001"));
+        Assert.assertEquals(2, plan.getFilters().size());
+        Assert.assertEquals(1, compiler.getPlanCache().size());
+    }
+
+    @Test
+    public void everyRequestGetsANewQuery() {
+        FilterQueryCompiler compiler = new FilterQueryCompiler(16);
+        FilterQueryPlan plan = compiler.compile("fileName==test.raw");
+        Query first = plan.toQuery(PageRequest.of(0, 10));
+        Query second = plan.toQuery(PageRequest.of(3, 50));
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getQueryObject(), second.getQueryObject());
+        Assert.assertEquals(10, first.getLimit());
+        Assert.assertEquals(150, second.getSkip());
+
+        first.getQueryObject().put("other", "value");
+        Assert.assertFalse(plan.toQuery().getQueryObject().containsKey("other"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void nestedValuesOfTheQueryAreCopied() {
+        FilterQueryPlan plan = new FilterQueryCompiler(16).compile("fileName=in=a.raw|b.raw");
+        String original = plan.toQuery().getQueryObject().toJson();
+
+        Document in = (Document) plan.toQuery().getQueryObject().get("fileName");
+        in.put("$nin", "c.raw");
+        Document query = plan.toQuery().getQueryObject();
+        ((List<Object>) ((Document) query.get("fileName")).get("$in")).add("c.raw");
+
+        Assert.assertEquals(original, plan.toQuery().getQueryObject().toJson());
+    }
+
+    @Test
+    public void buildCriteriaUsesTheTypedFilters() {
+        Assert.assertNull(PrideMongoUtils.buildCriteria(PrideMongoUtils.parseFilterParameters("")));
+        Criteria single = PrideMongoUtils.buildCriteria(PrideMongoUtils.parseFilterParameters("fileName==test.raw"));
+        Assert.assertEquals(new Document("fileName", "test.raw"), single.getCriteriaObject());
+
+        Criteria both = PrideMongoUtils.buildCriteria(PrideMongoUtils.parseFilterParameters("fileName==test.raw,fileSizeBytes=gte=10"));
+        Assert.assertEquals(PrideMongoUtils.buildQuery(PrideMongoUtils.parseFilterParameters("fileName==test.raw,fileSizeBytes=gte=10"))
+                .getQueryObject().toJson(), new Query(both).getQueryObject().toJson());
+    }
+
+    @Test
+    public void emptyFilterMatchesEverything() {
+        FilterQueryPlan plan = new FilterQueryCompiler(16).compile("", null, " ");
+        Assert.assertTrue(plan.isEmpty());
+        Assert.assertTrue(plan.toQuery().getQueryObject().isEmpty());
+    }
+
+    @Test
+    public void groupsAndNegationsCompileIntoOneQuery() {
+        FilterQueryCompiler compiler = new FilterQueryCompiler(16);
+        FilterQueryPlan plan = compiler.compile("(fileName==a.raw,fileSizeMB=range=[0 TO 10] ; fileName=regex=^b(1|2)),!fileName==c.raw");
+        Assert.assertSame(plan, compiler.compile("(fileName==a.raw, fileSizeMB=range=[0 TO 10];fileName=regex=^b(1|2);), !fileName==c.raw"));
+        Assert.assertEquals(2, plan.getClauses().size());
+
+        FilterClause group = plan.getClauses().get(0);
+        Assert.assertEquals(FilterOperator.OR, group.getOperator());
+        Assert.assertEquals(FilterOperator.AND, group.getChildren().get(0).getOperator());
+        Assert.assertEquals(FilterOperator.REGEX, group.getChildren().get(1).getOperator());
+        Assert.assertTrue(plan.getClauses().get(1).isNegated());
+
+        String query = plan.toQuery().getQueryObject().toJson();
+        Assert.assertTrue(query.contains("$or"));
+        Assert.assertTrue(query.contains("\"$ne\" : \"c.raw\""));
+    }
+
+    @Test
+    public void negatedGroupIsANor() {
+        FilterQueryPlan plan = new FilterQueryCompiler(16).compile("!(fileName==a.raw;fileName==b.raw)");
+        Assert.assertTrue(plan.toQuery().getQueryObject().toJson().contains("$nor"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFilterInsideAGroup() {
+        new FilterQueryCompiler(16).compile("(fileName==a.raw;fileName=unknown=b.raw)");
+    }
+}
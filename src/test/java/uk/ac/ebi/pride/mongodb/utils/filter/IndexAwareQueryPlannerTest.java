@@ -0,0 +1,113 @@
+package uk.ac.ebi.pride.mongodb.utils.filter;
+
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.util.ClassTypeInformation;
+import uk.ac.ebi.pride.mongodb.archive.model.PrideArchiveField;
+import uk.ac.ebi.pride.mongodb.archive.model.files.MongoPrideFile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link IndexAwareQueryPlanner} unit tests, the indexes of the collection are given to the planner.
+ */
+public class IndexAwareQueryPlannerTest {
+
+    private static QueryExecutionPlan plan(QueryScanPolicy policy, String... filters) {
+        Map<String, String> leadingKeys = new HashMap<>();
+        leadingKeys.put("fileName", "fileName_idx");
+        leadingKeys.put("fileSizeBytes", "fileSizeBytes_idx");
+        IndexAwareQueryPlanner.CollectionIndexes indexes = new IndexAwareQueryPlanner.CollectionIndexes(leadingKeys);
+        return IndexAwareQueryPlanner.buildPlan("pride_files", indexes, new FilterQueryCompiler(16).compile(filters), policy);
+    }
+
+    @Test
+    public void literalRegexIsRewrittenToEquality() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=^sample\\.raw$");
+        Assert.assertFalse(plan.isCollectionScan());
+        Assert.assertEquals(QueryExecutionPlan.Access.REWRITTEN_EQUALITY, plan.getDecisions().get(0).getAccess());
+        Document query = plan.toQuery().getQueryObject();
+        Assert.assertTrue(query.toJson().contains("\"fileName\" : \"sample.raw\""));
+    }
+
+    @Test
+    public void anchoredRegexIsRewrittenToPrefix() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=^sample.*");
+        Assert.assertEquals(QueryExecutionPlan.Access.REWRITTEN_PREFIX, plan.getDecisions().get(0).getAccess());
+        Assert.assertEquals("fileName_idx", plan.getDecisions().get(0).getIndexName());
+        Assert.assertTrue(plan.isRewritten());
+    }
+
+    @Test
+    public void unanchoredRegexIsACollectionScan() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=sample");
+        Assert.assertTrue(plan.isCollectionScan());
+    }
+
+    @Test
+    public void oneIndexedClauseAvoidsTheScan() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=sample,fileSizeMB=range=[0 TO 10]");
+        Assert.assertFalse(plan.isCollectionScan());
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void rejectedScan() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=sample");
+        new IndexAwareQueryPlanner().execute(plan, () -> "never");
+    }
+
+    @Test
+    public void scansOnlyWarnByDefault() {
+        Assert.assertEquals(QueryScanPolicy.WARN, new IndexAwareQueryPlanner().getScanPolicy());
+    }
+
+    @Test
+    public void allowedScan() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.WARN, "fileName=regex=sample");
+        Assert.assertEquals("done", new IndexAwareQueryPlanner().execute(plan, () -> "done"));
+    }
+
+    @Test
+    public void groupWithAllBranchesIndexed() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "(fileName=regex=^sample.*;fileSizeMB=range=[0 TO 10])");
+        Assert.assertFalse(plan.isCollectionScan());
+        Assert.assertEquals("fileName_idx|fileSizeBytes_idx", plan.getDecisions().get(0).getIndexName());
+    }
+
+    @Test
+    public void groupWithOneBranchWithoutIndexIsACollectionScan() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "(fileName==sample.raw;fileName=regex=sample)");
+        Assert.assertTrue(plan.isCollectionScan());
+    }
+
+    @Test
+    public void mostSelectiveIndexedClauseGoesFirst() {
+        QueryExecutionPlan plan = plan(QueryScanPolicy.REJECT, "fileName=regex=sample,!fileName==other.raw,fileSizeMB=range=[0 TO 10],fileName==sample.raw");
+        Assert.assertEquals(FilterOperator.IS, plan.getDecisions().get(0).getClause().getOperator());
+        Assert.assertEquals(FilterOperator.RANGE, plan.getDecisions().get(1).getClause().getOperator());
+        Assert.assertEquals(FilterOperator.REGEX, plan.getDecisions().get(2).getClause().getOperator());
+        Assert.assertTrue(plan.getDecisions().get(3).getClause().isNegated());
+        Assert.assertEquals(QueryExecutionPlan.Access.SCAN, plan.getDecisions().get(3).getAccess());
+    }
+
+    @Test
+    public void fileCategoryFilterUsesTheIndexesOfTheFiles() {
+        // The indexes are the ones declared by the annotations of MongoPrideFile
+        Map<String, String> leadingKeys = new HashMap<>();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(new MongoMappingContext());
+        for (MongoPersistentEntityIndexResolver.IndexDefinitionHolder index : resolver.resolveIndexFor(ClassTypeInformation.from(MongoPrideFile.class)))
+            leadingKeys.putIfAbsent(index.getIndexKeys().keySet().iterator().next(), (String) index.getIndexOptions().get("name"));
+        IndexAwareQueryPlanner.CollectionIndexes indexes = new IndexAwareQueryPlanner.CollectionIndexes(leadingKeys);
+
+        QueryExecutionPlan plan = IndexAwareQueryPlanner.buildPlan(PrideArchiveField.PRIDE_FILE_COLLECTION_NAME, indexes,
+                new FilterQueryCompiler(16).compile("fileCategory==PRIDE:0000404"), QueryScanPolicy.REJECT);
+        Assert.assertFalse(plan.isCollectionScan());
+        Assert.assertEquals(QueryExecutionPlan.Access.INDEX, plan.getDecisions().get(0).getAccess());
+        Assert.assertEquals(PrideArchiveField.FILE_CATEGORY_ACCESSION, plan.getDecisions().get(0).getIndexName());
+    }
+}
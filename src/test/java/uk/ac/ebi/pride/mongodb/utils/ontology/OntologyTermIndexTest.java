@@ -0,0 +1,65 @@
+package uk.ac.ebi.pride.mongodb.utils.ontology;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link OntologyTermIndex} unit tests with a small OBO.
+ */
+public class OntologyTermIndexTest {
+
+    private static final String OBO = "format-version: 1.2\n"
+            + "ontology: ms\n\n"
+            + "[Term]\n"
+            + "id: MS:1000031\n"
+            + "name: instrument model\n\n"
+            + "[Term]\n"
+            + "id: MS:1000121 ! SCIEX instrument model\n"
+            + "alt_id: MS:1000122\n"
+            + "is_obsolete: true\n\n"
+            + "[Typedef]\n"
+            + "id: part_of\n"
+            + "name: part_of\n";
+
+    @Test
+    public void termsAndAlternativeIdsAreIndexed() throws IOException {
+        OntologyTermIndex index = OntologyTermIndex.fromObo(new StringReader(OBO), false);
+        Assert.assertEquals(3, index.size());
+        Assert.assertTrue(index.contains("MS:1000031"));
+        Assert.assertTrue(index.contains("MS:1000121"));
+        Assert.assertTrue(index.contains("MS:1000122"));
+        Assert.assertFalse(index.contains("MS:1000999"));
+        Assert.assertFalse(index.contains("part_of"));
+    }
+
+    @Test
+    public void onlyTheOntologyPrefixesAreCovered() throws IOException {
+        OntologyTermIndex index = OntologyTermIndex.fromObo(new StringReader(OBO), false);
+        Assert.assertTrue(index.covers("MS:1000999"));
+        Assert.assertFalse(index.covers("UO:0000010"));
+        Assert.assertFalse(index.covers("1000031"));
+        Assert.assertFalse(index.covers(null));
+    }
+
+    @Test
+    public void bloomFilterNeverRejectsIndexedTerms() {
+        List<String> accessions = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+            accessions.add(String.format("MS:%07d", i));
+        OntologyTermIndex index = OntologyTermIndex.of(accessions, true);
+        Assert.assertTrue(index.hasBloomFilter());
+        accessions.forEach(x -> Assert.assertTrue(index.contains(x)));
+
+        int rejected = 0;
+        for (int i = 5000; i < 15000; i++)
+            if (index.isRejected(String.format("MS:%07d", i)))
+                rejected++;
+        // 1% of false positives are expected, the test allows 5%
+        Assert.assertTrue("Rejected " + rejected, rejected > 9500);
+    }
+}
@@ -0,0 +1,56 @@
+package uk.ac.ebi.pride.mongodb.utils.pagination;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link KeysetPagination} unit tests for the cursor and the seek conditions.
+ */
+public class KeysetPaginationTest {
+
+    @Test
+    public void cursorKeepsTheTypesOfTheValues() {
+        ObjectId id = new ObjectId();
+        Date date = new Date(1546300800000L);
+        String cursor = KeysetPagination.encode("submissionDate", false, date, id);
+        Assert.assertFalse(cursor.contains("submissionDate"));
+
+        Document position = KeysetPagination.decode(cursor);
+        Assert.assertEquals(date, position.get("v"));
+        Assert.assertEquals(id, position.get("i"));
+        Assert.assertEquals(Integer.valueOf(-1), position.getInteger("d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCursor() {
+        KeysetPagination.decode("not-a-cursor");
+    }
+
+    @Test
+    public void ascendingSeek() {
+        ObjectId id = new ObjectId();
+        Document seek = KeysetPagination.seekCriteria("fileName", true, "a.raw", id).getCriteriaObject();
+        List<?> or = (List<?>) seek.get("$or");
+        Assert.assertEquals(2, or.size());
+        Assert.assertEquals(new Document("fileName", new Document("$gt", "a.raw")), or.get(0));
+    }
+
+    @Test
+    public void descendingSeekKeepsTheNullValues() {
+        Document seek = KeysetPagination.seekCriteria("fileName", false, "a.raw", new ObjectId()).getCriteriaObject();
+        List<?> or = (List<?>) seek.get("$or");
+        Assert.assertEquals(3, or.size());
+        Assert.assertEquals(new Document("fileName", null), or.get(2));
+    }
+
+    @Test
+    public void idSeek() {
+        ObjectId id = new ObjectId();
+        Assert.assertEquals(new Document("_id", new Document("$gt", id)), KeysetPagination.seekCriteria("_id", true, null, id).getCriteriaObject());
+    }
+}
@@ -0,0 +1,43 @@
+package uk.ac.ebi.pride.mongodb.utils.projection;
+
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileSummary;
+import uk.ac.ebi.pride.mongodb.archive.model.files.PrideFileView;
+
+import java.util.Arrays;
+
+/**
+ * {@link FieldProjection} unit tests.
+ */
+public class FieldProjectionTest {
+
+    @Test
+    public void viewFieldsAreProjected() {
+        Query query = FieldProjection.include(new Query(), PrideFileSummary.class, PrideFileView.FILE_LISTING.getFields());
+        Document fields = query.getFieldsObject();
+        Assert.assertEquals(1, fields.get("fileName"));
+        Assert.assertEquals(1, fields.get("fileCategory"));
+        Assert.assertEquals(0, fields.get("_id"));
+        Assert.assertFalse(fields.containsKey("publicFileLocations"));
+    }
+
+    @Test
+    public void idIsProjectedOnRequest() {
+        Query query = FieldProjection.include(new Query(), PrideFileSummary.class, Arrays.asList("id", "accession"));
+        Assert.assertFalse(query.getFieldsObject().containsKey("_id"));
+    }
+
+    @Test
+    public void allViewsUseSummaryProperties() {
+        for (PrideFileView view : PrideFileView.values())
+            Assert.assertTrue(FieldProjection.propertiesOf(PrideFileSummary.class).containsAll(view.getFields()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownField() {
+        FieldProjection.include(new Query(), PrideFileSummary.class, Arrays.asList("accession", "fileSize"));
+    }
+}